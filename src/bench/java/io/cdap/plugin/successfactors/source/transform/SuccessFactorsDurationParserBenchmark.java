@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This {@code SuccessFactorsDurationParserBenchmark} compares the {@code SuccessFactorsDurationParser} with
+ * {@code Duration.parse} on time of day values as sent for the Edm.Time properties, e.g. 'PT08H30M00S'.
+ * <p>
+ * Built with the 'benchmark' profile and run with the JMH runner:
+ * mvn -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/benchmark.classpath
+ * java -cp target/classes:target/test-classes:$(cat target/benchmark.classpath) org.openjdk.jmh.Main
+ * SuccessFactorsDurationParserBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuccessFactorsDurationParserBenchmark {
+  private static final int VALUE_COUNT = 1024;
+
+  private String[] values;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    values = new String[VALUE_COUNT];
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      // mostly whole minutes, as for the working time and shift properties
+      int seconds = random.nextInt(4) == 0 ? random.nextInt(60) : 0;
+      values[i] = String.format("PT%02dH%02dM%02dS", random.nextInt(24), random.nextInt(60), seconds);
+    }
+  }
+
+  @Benchmark
+  public void durationParse(Blackhole blackhole) {
+    for (String value : values) {
+      blackhole.consume(Duration.parse(value).toNanos() / 1000);
+    }
+  }
+
+  @Benchmark
+  public void singlePassParse(Blackhole blackhole) {
+    for (String value : values) {
+      blackhole.consume(SuccessFactorsDurationParser.parseMicros(value));
+    }
+  }
+}
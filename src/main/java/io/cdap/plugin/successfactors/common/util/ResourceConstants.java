@@ -25,6 +25,13 @@ public enum ResourceConstants {
   ERR_MISSING_PARAM_PREFIX(null, "err.missing.param.prefix"),
   ERR_MISSING_PARAM_OR_MACRO_ACTION(null, "err.missing.param.or.macro.action"),
   ERR_INVALID_BASE_URL(null, "err.invalid.base.url"),
+  ERR_NEGATIVE_PARAM_PREFIX(null, "err.negative.param.prefix"),
+  ERR_NEGATIVE_PARAM_ACTION(null, "err.negative.param.action"),
+  ERR_NON_POSITIVE_PARAM_ACTION(null, "err.non.positive.param.action"),
+  ERR_RETRY_MAX_WAIT(null, "err.retry.max.wait"),
+  ERR_INVALID_PAGINATION_TYPE(null, "err.invalid.pagination.type"),
+  ERR_INVALID_SPLIT_STRATEGY(null, "err.invalid.split.strategy"),
+  ERR_INVALID_EXTRACTION_MODE(null, "err.invalid.extraction.mode"),
   ERR_FEATURE_NOT_SUPPORTED("CDF_SAP_ODATA_01500", "err.feature.not.supported"),
   ROOT_CAUSE_LOG(null, "root.cause.log"),
   ERR_ODATA_SERVICE_CALL("CDF_SAP_ODATA_01532", "err.odata.service.call"),
@@ -39,6 +46,8 @@ public enum ResourceConstants {
   ERR_NOT_FOUND(null, "err.resource.not.found"),
   DEBUG_TEST_ENDPOINT(null, "debug.test.endpoint"),
   DEBUG_METADATA_ENDPOINT(null, "debug.metadata.endpoint"),
+  DEBUG_COUNT_ENDPOINT(null, "debug.count.endpoint"),
+  DEBUG_DATA_ENDPOINT(null, "debug.data.endpoint"),
   DEBUG_CALL_SERVICE_START(null, "debug.call.service.start"),
   DEBUG_CALL_SERVICE_END(null, "debug.call.service.end"),
   ERR_NO_COLUMN_FOUND(null, "err.no.column.found"),
@@ -46,7 +55,29 @@ public enum ResourceConstants {
   DEBUG_NAVIGATION_NOT_FOUND(null, "debug.navigation.not.found"),
   DEBUG_NAV_PROP_NOT_FOUND(null, "debug.nav.prop.not.found"),
   DEBUG_ENTITY_NOT_FOUND(null, "debug.entity.not.found"),
-  ERR_READING_METADATA(null, "err.reading.metadata");
+  ERR_READING_METADATA(null, "err.reading.metadata"),
+  ERR_RECORD_COUNT(null, "err.record.count"),
+  ERR_INVALID_RECORD_COUNT(null, "err.invalid.record.count"),
+  ERR_RECORD_PULL(null, "err.record.pull"),
+  ERR_INVALID_NEXT_LINK(null, "err.invalid.next.link"),
+  ERR_RECORD_PROCESSING(null, "err.record.processing"),
+  ERR_MAX_RETRY(null, "err.max.retry"),
+  DEBUG_RETRY_ON_FAILURE(null, "debug.retry.on.failure"),
+  WARN_PAGE_SIZE_REDUCED(null, "warn.page.size.reduced"),
+  DEBUG_PAGE_SIZE_ADJUSTED(null, "debug.page.size.adjusted"),
+  INFO_TRANSFER_BYTES(null, "info.transfer.bytes"),
+  ERR_INVALID_WATERMARK_FIELD(null, "err.invalid.watermark.field"),
+  ERR_WATERMARK_VALUE(null, "err.watermark.value"),
+  ERR_WATERMARK_FILE(null, "err.watermark.file"),
+  ERR_KEY_RANGE(null, "err.key.range"),
+  INFO_SPLIT_PLAN(null, "info.split.plan"),
+  INFO_KEY_RANGE_NOT_SUPPORTED(null, "info.key.range.not.supported"),
+  INFO_DELTA_FILTER(null, "info.delta.filter"),
+  INFO_WATERMARK_SAVED(null, "info.watermark.saved"),
+  DEBUG_METADATA_CACHE_HIT(null, "debug.metadata.cache.hit"),
+  ERR_METADATA_CACHE(null, "err.metadata.cache"),
+  ERR_METADATA_CACHE_DIRECTORY(null, "err.metadata.cache.directory"),
+  DEBUG_METADATA_NOT_REDUCED(null, "debug.metadata.not.reduced");
 
   private final String code;
   private final String key;
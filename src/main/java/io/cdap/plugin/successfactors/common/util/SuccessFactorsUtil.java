@@ -86,4 +86,22 @@ public class SuccessFactorsUtil {
     }
     return rawString;
   }
+
+  /**
+   * AND-combines the given '$filter' conditions, ignoring any null or empty condition.
+   *
+   * @param first  first filter condition
+   * @param second second filter condition
+   * @return combined filter condition or null if both are null or empty
+   */
+  @Nullable
+  public static String andFilters(@Nullable String first, @Nullable String second) {
+    if (isNullOrEmpty(second)) {
+      return isNullOrEmpty(first) ? null : first;
+    }
+    if (isNullOrEmpty(first)) {
+      return second;
+    }
+    return String.format("(%s) and (%s)", first, second);
+  }
 }
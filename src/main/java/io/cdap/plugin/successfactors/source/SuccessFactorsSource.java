@@ -18,34 +18,50 @@ package io.cdap.plugin.successfactors.source;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.batch.Input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
+import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
 import io.cdap.plugin.successfactors.common.exception.TransportException;
 import io.cdap.plugin.successfactors.common.util.ExceptionParser;
 import io.cdap.plugin.successfactors.common.util.ResourceConstants;
 import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.input.SuccessFactorsInputFormatProvider;
+import io.cdap.plugin.successfactors.source.input.SuccessFactorsWatermarkStore;
 import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
  * Plugin returns records from SuccessFactors using entity name provided by user.
  * Reads data in batches, every batch is processed as a separate split by mapreduce.
+ * In the incremental extraction mode only the records changed since the last successful run are read.
  */
 @Plugin(type = BatchSource.PLUGIN_TYPE)
 @Name(SuccessFactorsSource.NAME)
 @Description("Reads the SuccessFactors data which is exposed as OData services from SAP.")
 public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRecord, StructuredRecord> {
   public static final String NAME = "SuccessFactors";
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsSource.class);
   private final SuccessFactorsPluginConfig config;
+  // highest watermark value read by this run, saved once the run succeeds
+  private String nextWatermark;
 
   public SuccessFactorsSource(SuccessFactorsPluginConfig config) {
     this.config = config;
@@ -57,7 +73,8 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
     config.validatePluginParameters(failureCollector);
 
     if (config.isSchemaBuildRequired()) {
-      pipelineConfigurer.getStageConfigurer().setOutputSchema(getOutputSchema(failureCollector));
+      pipelineConfigurer.getStageConfigurer().setOutputSchema(getOutputSchema(getSuccessFactorsService(),
+                                                                              failureCollector));
     } else {
       pipelineConfigurer.getStageConfigurer().setOutputSchema(null);
     }
@@ -65,20 +82,91 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
 
   @Override
   public void prepareRun(BatchSourceContext context) throws Exception {
+    FailureCollector failureCollector = context.getFailureCollector();
+    config.validatePluginParameters(failureCollector);
+
+    SuccessFactorsService successFactorsService = getSuccessFactorsService();
+    Schema outputSchema = getOutputSchema(successFactorsService, failureCollector);
+    // service metadata is already fetched while building the output schema
+    List<String> entityKeys = successFactorsService.getEntityKeyNames();
+
+    LineageRecorder lineageRecorder = new LineageRecorder(context, config.getReferenceName());
+    lineageRecorder.createExternalDataset(outputSchema);
+    lineageRecorder.recordRead("Read", String.format("Read from SAP SuccessFactors entity '%s'.",
+                                                     config.getEntityName()),
+                               outputSchema.getFields().stream().map(Schema.Field::getName)
+                                 .collect(Collectors.toList()));
+
+    String deltaFilter = config.isIncrementalExtraction() ? prepareDeltaFilter(successFactorsService) : null;
+    EdmSimpleTypeKind rangeKeyType = null;
+    if (config.isKeyRangeSplit() && !config.isServerSidePagination()) {
+      rangeKeyType = successFactorsService.getRangeKeyType();
+      if (rangeKeyType == null) {
+        LOG.info(ResourceConstants.INFO_KEY_RANGE_NOT_SUPPORTED.getMsgForKey(config.getEntityName()));
+      }
+    }
+
+    context.setInput(Input.of(config.getReferenceName(),
+                              new SuccessFactorsInputFormatProvider(config, outputSchema, entityKeys, deltaFilter,
+                                                                    rangeKeyType)));
+  }
+
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    if (!succeeded || nextWatermark == null) {
+      return;
+    }
+
+    try {
+      new SuccessFactorsWatermarkStore(config.getWatermarkPath()).write(nextWatermark);
+      LOG.info(ResourceConstants.INFO_WATERMARK_SAVED.getMsgForKey(nextWatermark, config.getWatermarkPath()));
+    } catch (IOException ioe) {
+      // records are already written, so the next run reads the same changes again
+      LOG.error(ioe.getMessage(), ioe);
+    }
+  }
 
+  @Override
+  public void transform(KeyValue<LongWritable, StructuredRecord> input, Emitter<StructuredRecord> emitter) {
+    emitter.emit(input.getValue());
+  }
+
+  /**
+   * Builds the delta filter of the incremental extraction from the last saved watermark and the current highest
+   * watermark value, which becomes the next watermark once the run succeeds.
+   *
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @return delta filter or null in case all the records must be read
+   */
+  @Nullable
+  private String prepareDeltaFilter(SuccessFactorsService successFactorsService)
+    throws IOException, TransportException, SuccessFactorsServiceException {
+
+    String lastWatermark = new SuccessFactorsWatermarkStore(config.getWatermarkPath()).read();
+    nextWatermark = successFactorsService.getMaxWatermarkValue();
+    String deltaFilter = SuccessFactorsWatermarkStore.buildDeltaFilter(config.getWatermarkField(), lastWatermark,
+                                                                       nextWatermark);
+
+    LOG.info(ResourceConstants.INFO_DELTA_FILTER.getMsgForKey(config.getEntityName(), deltaFilter));
+    return deltaFilter;
+  }
+
+  private SuccessFactorsService getSuccessFactorsService() {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(config.getUsername(), config.getPassword());
+    return new SuccessFactorsService(config, transporter);
   }
 
   /**
    * Gets the appropriate Schema based on the provided plugin parameters and also
    * sets the appropriate error messages in case any error is identified while preparing the Schema.
    *
-   * @param failureCollector {@code FailureCollector}
+   * @param successFactorsServices {@code SuccessFactorsService}
+   * @param failureCollector       {@code FailureCollector}
    * @return {@code Schema}
    */
   @Nullable
-  private Schema getOutputSchema(FailureCollector failureCollector) {
-    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(config.getUsername(), config.getPassword());
-    SuccessFactorsService successFactorsServices = new SuccessFactorsService(config, transporter);
+  private Schema getOutputSchema(SuccessFactorsService successFactorsServices, FailureCollector failureCollector) {
     try {
       //validate if the given parameters form a valid SuccessFactors URL.
       successFactorsServices.checkSuccessFactorsURL();
@@ -24,8 +24,10 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.successfactors.common.util.ResourceConstants;
 import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsRetryPolicy;
 import okhttp3.HttpUrl;
 
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
@@ -37,6 +39,26 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
   public static final String ENTITY_NAME = "entityName";
   public static final String UNAME = "username";
   public static final String PASSWORD = "password";
+  public static final String NUM_SPLITS = "numSplits";
+  public static final String MAX_REQUESTS_PER_SECOND = "maxRequestsPerSecond";
+  public static final String MAX_CONCURRENT_REQUESTS = "maxConcurrentRequests";
+  public static final String PAGES_PER_BATCH = "pagesPerBatch";
+  public static final String MAX_RETRY_ATTEMPTS = "maxRetryAttempts";
+  public static final String RETRY_BASE_WAIT_SECONDS = "retryBaseWaitSeconds";
+  public static final String RETRY_MAX_WAIT_SECONDS = "retryMaxWaitSeconds";
+  public static final String RETRY_TIME_BUDGET_SECONDS = "retryTimeBudgetSeconds";
+  public static final String PAGINATION_TYPE = "paginationType";
+  public static final String CLIENT_SIDE_PAGINATION = "clientSide";
+  public static final String SERVER_SIDE_PAGINATION = "serverSide";
+  public static final String SPLIT_STRATEGY = "splitStrategy";
+  public static final String OFFSET_SPLIT = "offset";
+  public static final String KEY_RANGE_SPLIT = "keyRange";
+  public static final String EXTRACTION_MODE = "extractionMode";
+  public static final String FULL_EXTRACTION = "full";
+  public static final String INCREMENTAL_EXTRACTION = "incremental";
+  public static final String WATERMARK_FIELD = "watermarkField";
+  public static final String WATERMARK_PATH = "watermarkPath";
+  public static final String DEFAULT_WATERMARK_FIELD = "lastModifiedDateTime";
   public static final String REFERENCE_NAME = "referenceName";
   public static final String REFERENCE_NAME_DESCRIPTION = "This will be used to uniquely identify this source/sink " +
     "for lineage, annotating metadata, etc.";
@@ -83,7 +105,100 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
   @Macro
   @Description("List of navigation fields to be expanded in the extracted output data e.g.: State/City")
   private final String expandOption;
-  
+
+  @Nullable
+  @Macro
+  @Name(NUM_SPLITS)
+  @Description("The number of splits used to partition the input data. Each split is extracted in parallel. " +
+    "Default is 0, which derives the number of splits from the total number of available records.")
+  private final Integer numSplits;
+
+  @Nullable
+  @Macro
+  @Name(MAX_REQUESTS_PER_SECOND)
+  @Description("Maximum number of requests per second sent to the SuccessFactors base URL by all the splits " +
+    "together. Default is 0, which does not limit the request rate.")
+  private final Double maxRequestsPerSecond;
+
+  @Nullable
+  @Macro
+  @Name(MAX_CONCURRENT_REQUESTS)
+  @Description("Maximum number of concurrent requests sent to the SuccessFactors base URL by all the splits " +
+    "together. Default is 0, which does not limit the concurrent requests.")
+  private final Integer maxConcurrentRequests;
+
+  @Nullable
+  @Macro
+  @Name(PAGES_PER_BATCH)
+  @Description("Number of consecutive pages fetched in one '$batch' request with the client side pagination. " +
+    "Default is 1, which fetches every page in its own request.")
+  private final Integer pagesPerBatch;
+
+  @Nullable
+  @Macro
+  @Name(MAX_RETRY_ATTEMPTS)
+  @Description("Maximum number of attempts of a record fetch call throttled or failing with a temporary server " +
+    "error, the first attempt included. Default is 8.")
+  private final Integer maxRetryAttempts;
+
+  @Nullable
+  @Macro
+  @Name(RETRY_BASE_WAIT_SECONDS)
+  @Description("Lowest wait time in seconds before the next attempt of a record fetch call, when SuccessFactors " +
+    "does not send any 'Retry-After' header. Default is 1.")
+  private final Integer retryBaseWaitSeconds;
+
+  @Nullable
+  @Macro
+  @Name(RETRY_MAX_WAIT_SECONDS)
+  @Description("Highest wait time in seconds before the next attempt of a record fetch call, when SuccessFactors " +
+    "does not send any 'Retry-After' header. Default is 60.")
+  private final Integer retryMaxWaitSeconds;
+
+  @Nullable
+  @Macro
+  @Name(RETRY_TIME_BUDGET_SECONDS)
+  @Description("Total time in seconds a record fetch call may spend in attempts and waits before it fails. " +
+    "Default is 300.")
+  private final Integer retryTimeBudgetSeconds;
+
+  @Nullable
+  @Macro
+  @Name(PAGINATION_TYPE)
+  @Description("The type of pagination used to read the records. 'clientSide' reads the key ordered record ranges " +
+    "with '$skip' and '$top' in parallel splits. 'serverSide' follows the '__next' links returned by SuccessFactors " +
+    "in a single split and avoids the cost of deep '$skip' offsets. Default is 'clientSide'.")
+  private final String paginationType;
+
+  @Nullable
+  @Macro
+  @Name(SPLIT_STRATEGY)
+  @Description("The strategy used to cut the records into splits. 'offset' cuts the key ordered records into " +
+    "'$skip' ranges. 'keyRange' cuts the key values into 'key ge a and key lt b' ranges, only for the entities " +
+    "having a single integer or date key. Default is 'offset'.")
+  private final String splitStrategy;
+
+  @Nullable
+  @Macro
+  @Name(EXTRACTION_MODE)
+  @Description("The extraction mode. 'full' reads all the records. 'incremental' reads only the records changed " +
+    "since the last successful run as per the watermark field. Default is 'full'.")
+  private final String extractionMode;
+
+  @Nullable
+  @Macro
+  @Name(WATERMARK_FIELD)
+  @Description("Field used to find the changed records in the incremental extraction mode. " +
+    "Default is 'lastModifiedDateTime'.")
+  private final String watermarkField;
+
+  @Nullable
+  @Macro
+  @Name(WATERMARK_PATH)
+  @Description("Path of the file holding the watermark of the last successful run in the incremental extraction " +
+    "mode, e.g. gs://bucket/successfactors/PerPerson.watermark")
+  private final String watermarkPath;
+
   /**
    * Basic parameters.
    */
@@ -98,7 +213,20 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
                              @Nullable String password,
                              @Nullable String filterOption,
                              @Nullable String selectOption,
-                             @Nullable String expandOption) {
+                             @Nullable String expandOption,
+                             @Nullable Integer numSplits,
+                             @Nullable Double maxRequestsPerSecond,
+                             @Nullable Integer maxConcurrentRequests,
+                             @Nullable Integer pagesPerBatch,
+                             @Nullable Integer maxRetryAttempts,
+                             @Nullable Integer retryBaseWaitSeconds,
+                             @Nullable Integer retryMaxWaitSeconds,
+                             @Nullable Integer retryTimeBudgetSeconds,
+                             @Nullable String paginationType,
+                             @Nullable String splitStrategy,
+                             @Nullable String extractionMode,
+                             @Nullable String watermarkField,
+                             @Nullable String watermarkPath) {
 
     this.referenceName = referenceName;
     this.baseURL = baseURL;
@@ -108,6 +236,19 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     this.filterOption = filterOption;
     this.selectOption = selectOption;
     this.expandOption = expandOption;
+    this.numSplits = numSplits;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.pagesPerBatch = pagesPerBatch;
+    this.maxRetryAttempts = maxRetryAttempts;
+    this.retryBaseWaitSeconds = retryBaseWaitSeconds;
+    this.retryMaxWaitSeconds = retryMaxWaitSeconds;
+    this.retryTimeBudgetSeconds = retryTimeBudgetSeconds;
+    this.paginationType = paginationType;
+    this.splitStrategy = splitStrategy;
+    this.extractionMode = extractionMode;
+    this.watermarkField = watermarkField;
+    this.watermarkPath = watermarkPath;
   }
 
   public static Builder builder() {
@@ -163,6 +304,95 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     return SuccessFactorsUtil.removeWhitespace(this.expandOption);
   }
 
+  public int getNumSplits() {
+    return this.numSplits == null ? 0 : this.numSplits;
+  }
+
+  public double getMaxRequestsPerSecond() {
+    return this.maxRequestsPerSecond == null ? 0 : this.maxRequestsPerSecond;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return this.maxConcurrentRequests == null ? 0 : this.maxConcurrentRequests;
+  }
+
+  public int getPagesPerBatch() {
+    return this.pagesPerBatch == null ? 1 : this.pagesPerBatch;
+  }
+
+  public int getMaxRetryAttempts() {
+    return this.maxRetryAttempts == null ? SuccessFactorsRetryPolicy.DEFAULT_MAX_ATTEMPTS : this.maxRetryAttempts;
+  }
+
+  public int getRetryBaseWaitSeconds() {
+    return this.retryBaseWaitSeconds == null ?
+      (int) TimeUnit.MILLISECONDS.toSeconds(SuccessFactorsRetryPolicy.DEFAULT_BASE_WAIT_MILLIS) :
+      this.retryBaseWaitSeconds;
+  }
+
+  public int getRetryMaxWaitSeconds() {
+    return this.retryMaxWaitSeconds == null ?
+      (int) TimeUnit.MILLISECONDS.toSeconds(SuccessFactorsRetryPolicy.DEFAULT_MAX_WAIT_MILLIS) :
+      this.retryMaxWaitSeconds;
+  }
+
+  public int getRetryTimeBudgetSeconds() {
+    return this.retryTimeBudgetSeconds == null ?
+      (int) TimeUnit.MILLISECONDS.toSeconds(SuccessFactorsRetryPolicy.DEFAULT_TIME_BUDGET_MILLIS) :
+      this.retryTimeBudgetSeconds;
+  }
+
+  /**
+   * Builds the retry policy of the record fetch calls as per the retry parameters.
+   *
+   * @return {@code SuccessFactorsRetryPolicy}
+   */
+  public SuccessFactorsRetryPolicy getRetryPolicy() {
+    return SuccessFactorsRetryPolicy.builder()
+      .maxAttempts(getMaxRetryAttempts())
+      .baseWaitMillis(TimeUnit.SECONDS.toMillis(getRetryBaseWaitSeconds()))
+      .maxWaitMillis(TimeUnit.SECONDS.toMillis(getRetryMaxWaitSeconds()))
+      .timeBudgetMillis(TimeUnit.SECONDS.toMillis(getRetryTimeBudgetSeconds()))
+      .build();
+  }
+
+  public String getPaginationType() {
+    return SuccessFactorsUtil.isNullOrEmpty(this.paginationType) ? CLIENT_SIDE_PAGINATION :
+      SuccessFactorsUtil.trim(this.paginationType);
+  }
+
+  public boolean isServerSidePagination() {
+    return SERVER_SIDE_PAGINATION.equals(getPaginationType());
+  }
+
+  public String getSplitStrategy() {
+    return SuccessFactorsUtil.isNullOrEmpty(this.splitStrategy) ? OFFSET_SPLIT :
+      SuccessFactorsUtil.trim(this.splitStrategy);
+  }
+
+  public boolean isKeyRangeSplit() {
+    return KEY_RANGE_SPLIT.equals(getSplitStrategy());
+  }
+
+  public String getExtractionMode() {
+    return SuccessFactorsUtil.isNullOrEmpty(this.extractionMode) ? FULL_EXTRACTION :
+      SuccessFactorsUtil.trim(this.extractionMode);
+  }
+
+  public boolean isIncrementalExtraction() {
+    return INCREMENTAL_EXTRACTION.equals(getExtractionMode());
+  }
+
+  public String getWatermarkField() {
+    return SuccessFactorsUtil.isNullOrEmpty(this.watermarkField) ? DEFAULT_WATERMARK_FIELD :
+      SuccessFactorsUtil.trim(this.watermarkField);
+  }
+
+  @Nullable
+  public String getWatermarkPath() {
+    return SuccessFactorsUtil.trim(this.watermarkPath);
+  }
+
   /**
    * Checks if the call to SuccessFactors service is required for metadata creation.
    * condition parameters: ['host' | 'serviceName' | 'entityName' | 'username' | 'password']
@@ -178,6 +408,7 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     validateMandatoryParameters(failureCollector);
     validateBasicCredentials(failureCollector);
     validateEntityParameter(failureCollector);
+    validateAdvancedParameters(failureCollector);
     failureCollector.getOrThrowException();
   }
 
@@ -237,6 +468,97 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     }
   }
 
+  /**
+   * Validates the advanced parameters.
+   *
+   * @param failureCollector {@code FailureCollector}
+   */
+  private void validateAdvancedParameters(FailureCollector failureCollector) {
+    if (!containsMacro(NUM_SPLITS) && getNumSplits() < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Number of Splits to Generate");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(NUM_SPLITS);
+    }
+    if (!containsMacro(MAX_REQUESTS_PER_SECOND) && getMaxRequestsPerSecond() < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Max Requests per Second");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(MAX_REQUESTS_PER_SECOND);
+    }
+    if (!containsMacro(MAX_CONCURRENT_REQUESTS) && getMaxConcurrentRequests() < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Max Concurrent Requests");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(MAX_CONCURRENT_REQUESTS);
+    }
+    if (!containsMacro(PAGES_PER_BATCH) && getPagesPerBatch() < 1) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Pages per Batch Request");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NON_POSITIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(PAGES_PER_BATCH);
+    }
+    validateRetryParameters(failureCollector);
+    if (!containsMacro(PAGINATION_TYPE) && !CLIENT_SIDE_PAGINATION.equals(getPaginationType())
+      && !SERVER_SIDE_PAGINATION.equals(getPaginationType())) {
+      String errMsg = ResourceConstants.ERR_INVALID_PAGINATION_TYPE.getMsgForKey(getPaginationType());
+      failureCollector.addFailure(errMsg, null).withConfigProperty(PAGINATION_TYPE);
+    }
+    if (!containsMacro(SPLIT_STRATEGY) && !OFFSET_SPLIT.equals(getSplitStrategy()) && !isKeyRangeSplit()) {
+      String errMsg = ResourceConstants.ERR_INVALID_SPLIT_STRATEGY.getMsgForKey(getSplitStrategy());
+      failureCollector.addFailure(errMsg, null).withConfigProperty(SPLIT_STRATEGY);
+    }
+    validateIncrementalParameters(failureCollector);
+  }
+
+  /**
+   * Validates the retry parameters of the record fetch calls.
+   *
+   * @param failureCollector {@code FailureCollector}
+   */
+  private void validateRetryParameters(FailureCollector failureCollector) {
+    if (!containsMacro(MAX_RETRY_ATTEMPTS) && getMaxRetryAttempts() < 1) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Max Retry Attempts");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NON_POSITIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(MAX_RETRY_ATTEMPTS);
+    }
+    if (!containsMacro(RETRY_BASE_WAIT_SECONDS) && getRetryBaseWaitSeconds() < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Retry Base Wait");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(RETRY_BASE_WAIT_SECONDS);
+    }
+    if (!containsMacro(RETRY_MAX_WAIT_SECONDS) && getRetryMaxWaitSeconds() < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Retry Max Wait");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(RETRY_MAX_WAIT_SECONDS);
+    } else if (!containsMacro(RETRY_MAX_WAIT_SECONDS) && !containsMacro(RETRY_BASE_WAIT_SECONDS)
+      && getRetryMaxWaitSeconds() < getRetryBaseWaitSeconds()) {
+      failureCollector.addFailure(ResourceConstants.ERR_RETRY_MAX_WAIT.getMsgForKey(), null)
+        .withConfigProperty(RETRY_MAX_WAIT_SECONDS);
+    }
+    if (!containsMacro(RETRY_TIME_BUDGET_SECONDS) && getRetryTimeBudgetSeconds() < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Retry Time Budget");
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(RETRY_TIME_BUDGET_SECONDS);
+    }
+  }
+
+  /**
+   * Validates the incremental extraction parameters.
+   *
+   * @param failureCollector {@code FailureCollector}
+   */
+  private void validateIncrementalParameters(FailureCollector failureCollector) {
+    if (containsMacro(EXTRACTION_MODE)) {
+      return;
+    }
+    if (!FULL_EXTRACTION.equals(getExtractionMode()) && !INCREMENTAL_EXTRACTION.equals(getExtractionMode())) {
+      String errMsg = ResourceConstants.ERR_INVALID_EXTRACTION_MODE.getMsgForKey(getExtractionMode());
+      failureCollector.addFailure(errMsg, null).withConfigProperty(EXTRACTION_MODE);
+    }
+    if (isIncrementalExtraction() && SuccessFactorsUtil.isNullOrEmpty(getWatermarkPath())
+      && !containsMacro(WATERMARK_PATH)) {
+      String errMsg = ResourceConstants.ERR_MISSING_PARAM_PREFIX.getMsgForKey("Watermark Path");
+      failureCollector.addFailure(errMsg, COMMON_ACTION).withConfigProperty(WATERMARK_PATH);
+    }
+  }
+
   /**
    * Helper class to simplify {@link SuccessFactorsPluginConfig} class creation.
    */
@@ -249,6 +571,19 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     private String filterOption;
     private String selectOption;
     private String expandOption;
+    private Integer numSplits;
+    private Double maxRequestsPerSecond;
+    private Integer maxConcurrentRequests;
+    private Integer pagesPerBatch;
+    private Integer maxRetryAttempts;
+    private Integer retryBaseWaitSeconds;
+    private Integer retryMaxWaitSeconds;
+    private Integer retryTimeBudgetSeconds;
+    private String paginationType;
+    private String splitStrategy;
+    private String extractionMode;
+    private String watermarkField;
+    private String watermarkPath;
 
     public Builder referenceName(String referenceName) {
       this.referenceName = referenceName;
@@ -290,9 +625,78 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
       return this;
     }
 
+    public Builder numSplits(@Nullable Integer numSplits) {
+      this.numSplits = numSplits;
+      return this;
+    }
+
+    public Builder maxRequestsPerSecond(@Nullable Double maxRequestsPerSecond) {
+      this.maxRequestsPerSecond = maxRequestsPerSecond;
+      return this;
+    }
+
+    public Builder maxConcurrentRequests(@Nullable Integer maxConcurrentRequests) {
+      this.maxConcurrentRequests = maxConcurrentRequests;
+      return this;
+    }
+
+    public Builder pagesPerBatch(@Nullable Integer pagesPerBatch) {
+      this.pagesPerBatch = pagesPerBatch;
+      return this;
+    }
+
+    public Builder maxRetryAttempts(@Nullable Integer maxRetryAttempts) {
+      this.maxRetryAttempts = maxRetryAttempts;
+      return this;
+    }
+
+    public Builder retryBaseWaitSeconds(@Nullable Integer retryBaseWaitSeconds) {
+      this.retryBaseWaitSeconds = retryBaseWaitSeconds;
+      return this;
+    }
+
+    public Builder retryMaxWaitSeconds(@Nullable Integer retryMaxWaitSeconds) {
+      this.retryMaxWaitSeconds = retryMaxWaitSeconds;
+      return this;
+    }
+
+    public Builder retryTimeBudgetSeconds(@Nullable Integer retryTimeBudgetSeconds) {
+      this.retryTimeBudgetSeconds = retryTimeBudgetSeconds;
+      return this;
+    }
+
+    public Builder paginationType(@Nullable String paginationType) {
+      this.paginationType = paginationType;
+      return this;
+    }
+
+    public Builder splitStrategy(@Nullable String splitStrategy) {
+      this.splitStrategy = splitStrategy;
+      return this;
+    }
+
+    public Builder extractionMode(@Nullable String extractionMode) {
+      this.extractionMode = extractionMode;
+      return this;
+    }
+
+    public Builder watermarkField(@Nullable String watermarkField) {
+      this.watermarkField = watermarkField;
+      return this;
+    }
+
+    public Builder watermarkPath(@Nullable String watermarkPath) {
+      this.watermarkPath = watermarkPath;
+      return this;
+    }
+
     public SuccessFactorsPluginConfig build() {
       return new SuccessFactorsPluginConfig(referenceName, baseURL, entityName, username, password, filterOption,
-                                            selectOption, expandOption);
+                                            selectOption, expandOption, numSplits, maxRequestsPerSecond,
+                                            maxConcurrentRequests, pagesPerBatch, maxRetryAttempts,
+                                            retryBaseWaitSeconds, retryMaxWaitSeconds, retryTimeBudgetSeconds,
+                                            paginationType, splitStrategy, extractionMode, watermarkField,
+                                            watermarkPath);
     }
   }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.common.util.ExceptionParser;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeException;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This {@code SuccessFactorsInputFormat} plans the splits based on the total available record count of the entity,
+ * either as record ranges or as key ranges, and creates the {@code SuccessFactorsRecordReader} to read the records of
+ * each split.
+ * <p>
+ * The configured request budget is the limit of the whole pipeline. As the executors do not talk to each other, every
+ * split gets an even share of it, the budget divided by the number of splits expected to run at the same time, i.e.
+ * the number of splits or, if lower, the number of tasks the engine runs in parallel as per its configuration. The
+ * executors pass the share of a finished split on to the splits they still run.
+ */
+public class SuccessFactorsInputFormat extends InputFormat<LongWritable, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsInputFormat.class);
+  static final String SPARK_DYNAMIC_ALLOCATION = "spark.dynamicAllocation.enabled";
+  static final String SPARK_MAX_EXECUTORS = "spark.dynamicAllocation.maxExecutors";
+  static final String SPARK_EXECUTOR_INSTANCES = "spark.executor.instances";
+  static final String SPARK_EXECUTOR_CORES = "spark.executor.cores";
+  static final String MAPREDUCE_RUNNING_MAP_LIMIT = "mapreduce.job.running.map.limit";
+
+  @Override
+  public List<InputSplit> getSplits(JobContext jobContext) throws IOException {
+    SuccessFactorsPluginConfig pluginConfig =
+      SuccessFactorsInputFormatProvider.getPluginConfig(jobContext.getConfiguration());
+
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(pluginConfig.getUsername(),
+                                                                          pluginConfig.getPassword());
+    Configuration conf = jobContext.getConfiguration();
+    SuccessFactorsService successFactorsService = new SuccessFactorsService(
+      pluginConfig, transporter, conf.get(SuccessFactorsInputFormatProvider.DELTA_FILTER));
+    String rangeKeyType = conf.get(SuccessFactorsInputFormatProvider.RANGE_KEY_TYPE);
+
+    long availableRecordCount;
+    List<SuccessFactorsInputSplit> splits;
+    try {
+      availableRecordCount = successFactorsService.getTotalAvailableRowCount();
+      if (rangeKeyType != null) {
+        String keyName = conf.get(SuccessFactorsInputFormatProvider.ENTITY_KEYS);
+        splits = buildKeyRangeSplits(pluginConfig, successFactorsService, availableRecordCount, keyName,
+                                     EdmSimpleTypeKind.valueOf(rangeKeyType));
+      } else {
+        // server side pagination follows the '__next' links of one single chain, so it can not be split
+        int numSplits = pluginConfig.isServerSidePagination() ? 1 : pluginConfig.getNumSplits();
+        splits = SuccessFactorsPartitionBuilder.buildSplits(availableRecordCount, numSplits);
+      }
+    } catch (TransportException te) {
+      throw new IOException(ExceptionParser.buildTransportError(te), te);
+    } catch (SuccessFactorsServiceException ose) {
+      throw new IOException(ExceptionParser.buildSuccessFactorsServiceError(ose), ose);
+    }
+
+    // every split gets an even share of the request budget, the executors rebalance the shares of the finished splits
+    int concurrentSplits = getConcurrentSplits(conf, splits.size());
+    for (SuccessFactorsInputSplit split : splits) {
+      split.setRequestBudget(pluginConfig.getMaxRequestsPerSecond() / concurrentSplits,
+                             (double) pluginConfig.getMaxConcurrentRequests() / concurrentSplits);
+    }
+
+    LOG.info(ResourceConstants.INFO_SPLIT_PLAN.getMsgForKey(availableRecordCount, pluginConfig.getEntityName(),
+                                                             splits.size()));
+
+    return new ArrayList<>(splits);
+  }
+
+  /**
+   * Estimates the number of splits read at the same time: the number of parallel tasks as per the engine
+   * configuration, i.e. the Spark executors times their cores or the MapReduce running map limit, at most the number
+   * of splits. When the engine configuration does not bound it, e.g. with the Spark dynamic allocation and no max
+   * executors, all the splits are assumed to run at the same time.
+   *
+   * @param conf      job configuration
+   * @param numSplits number of planned splits
+   * @return number of splits expected to run at the same time, at least 1
+   */
+  static int getConcurrentSplits(Configuration conf, int numSplits) {
+    long parallelTasks = 0;
+    int executorCores = conf.getInt(SPARK_EXECUTOR_CORES, 1);
+    if (conf.getBoolean(SPARK_DYNAMIC_ALLOCATION, false)) {
+      parallelTasks = (long) conf.getInt(SPARK_MAX_EXECUTORS, 0) * executorCores;
+    } else if (conf.get(SPARK_EXECUTOR_INSTANCES) != null) {
+      parallelTasks = (long) conf.getInt(SPARK_EXECUTOR_INSTANCES, 0) * executorCores;
+    } else if (conf.getInt(MAPREDUCE_RUNNING_MAP_LIMIT, 0) > 0) {
+      parallelTasks = conf.getInt(MAPREDUCE_RUNNING_MAP_LIMIT, 0);
+    }
+    if (parallelTasks <= 0 || parallelTasks > numSplits) {
+      return Math.max(1, numSplits);
+    }
+    return (int) parallelTasks;
+  }
+
+  /**
+   * Probes the lowest and highest key values and cuts them into key range splits.
+   *
+   * @param pluginConfig          {@code SuccessFactorsPluginConfig}
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @param availableRecordCount  total number of records available for the given filter
+   * @param keyName               key property name
+   * @param keyType               key property type
+   * @return list of {@code SuccessFactorsInputSplit}
+   */
+  private List<SuccessFactorsInputSplit> buildKeyRangeSplits(SuccessFactorsPluginConfig pluginConfig,
+                                                             SuccessFactorsService successFactorsService,
+                                                             long availableRecordCount, String keyName,
+                                                             EdmSimpleTypeKind keyType)
+    throws TransportException, SuccessFactorsServiceException {
+
+    Long minKey = successFactorsService.getKeyBoundary(keyName, keyType, false);
+    Long maxKey = successFactorsService.getKeyBoundary(keyName, keyType, true);
+    if (minKey == null || maxKey == null) {
+      return SuccessFactorsPartitionBuilder.buildSplits(availableRecordCount, 1);
+    }
+
+    try {
+      return SuccessFactorsPartitionBuilder.buildKeyRangeSplits(availableRecordCount, pluginConfig.getNumSplits(),
+                                                                keyName, keyType.getEdmSimpleTypeInstance(), minKey,
+                                                                maxKey);
+    } catch (EdmSimpleTypeException e) {
+      String errMsg = ResourceConstants.ERR_KEY_RANGE.getMsgForKey(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, e);
+    }
+  }
+
+  @Override
+  public RecordReader<LongWritable, StructuredRecord> createRecordReader(InputSplit inputSplit,
+                                                                         TaskAttemptContext taskAttemptContext) {
+    return new SuccessFactorsRecordReader();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import io.cdap.cdap.api.data.batch.InputFormatProvider;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsInputFormatProvider} provides the {@code SuccessFactorsInputFormat} class name and the
+ * configuration required at runtime i.e. plugin config, output schema, entity key names, the delta filter of the
+ * incremental extraction and the key type of the key range splits.
+ */
+public class SuccessFactorsInputFormatProvider implements InputFormatProvider {
+
+  public static final String PROPERTY_CONFIG_JSON = "cdap.successfactors.plugin.config";
+  public static final String OUTPUT_SCHEMA = "cdap.successfactors.output.schema";
+  public static final String ENTITY_KEYS = "cdap.successfactors.entity.keys";
+  public static final String DELTA_FILTER = "cdap.successfactors.delta.filter";
+  public static final String RANGE_KEY_TYPE = "cdap.successfactors.range.key.type";
+  private static final Gson GSON = new Gson();
+
+  private final Map<String, String> conf;
+
+  public SuccessFactorsInputFormatProvider(SuccessFactorsPluginConfig pluginConfig, Schema outputSchema,
+                                           List<String> entityKeys, @Nullable String deltaFilter,
+                                           @Nullable EdmSimpleTypeKind rangeKeyType) {
+    ImmutableMap.Builder<String, String> builder = new ImmutableMap.Builder<String, String>()
+      .put(PROPERTY_CONFIG_JSON, GSON.toJson(pluginConfig))
+      .put(OUTPUT_SCHEMA, outputSchema.toString())
+      .put(ENTITY_KEYS, String.join(",", entityKeys));
+    if (deltaFilter != null) {
+      builder.put(DELTA_FILTER, deltaFilter);
+    }
+    if (rangeKeyType != null) {
+      builder.put(RANGE_KEY_TYPE, rangeKeyType.name());
+    }
+    this.conf = builder.build();
+  }
+
+  /**
+   * Reads back the {@code SuccessFactorsPluginConfig} from the given hadoop configuration.
+   *
+   * @param configuration hadoop configuration
+   * @return {@code SuccessFactorsPluginConfig}
+   */
+  public static SuccessFactorsPluginConfig getPluginConfig(Configuration configuration) {
+    return GSON.fromJson(configuration.get(PROPERTY_CONFIG_JSON), SuccessFactorsPluginConfig.class);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return SuccessFactorsInputFormat.class.getName();
+  }
+
+  @Override
+  public Map<String, String> getInputFormatConfiguration() {
+    return conf;
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsInputSplit} holds the record range of one split.
+ * - start: number of records to skip in the key ordered entity, i.e. '$skip' of the first page
+ * - end: exclusive end of the record range
+ * - pageSize: number of records fetched in one call, i.e. '$top' of a full page
+ * - rangeFilter: key range condition of the key range splits e.g. 'id ge 100 and id lt 200'. The split reads all the
+ * records of the key range page by page and the record range is only an estimate of its size.
+ * - requestsPerSecond, maxConcurrency: share of the configured request budget, 0 for no limit
+ */
+public class SuccessFactorsInputSplit extends InputSplit implements Writable {
+
+  private long start;
+  private long end;
+  private long pageSize;
+  @Nullable
+  private String rangeFilter;
+  private double requestsPerSecond;
+  private double maxConcurrency;
+
+  // default constructor is required by hadoop to deserialize the split
+  public SuccessFactorsInputSplit() {
+  }
+
+  public SuccessFactorsInputSplit(long start, long end, long pageSize) {
+    this(start, end, pageSize, null);
+  }
+
+  public SuccessFactorsInputSplit(long start, long end, long pageSize, @Nullable String rangeFilter) {
+    this.start = start;
+    this.end = end;
+    this.pageSize = pageSize;
+    this.rangeFilter = rangeFilter;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public long getPageSize() {
+    return pageSize;
+  }
+
+  @Nullable
+  public String getRangeFilter() {
+    return rangeFilter;
+  }
+
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  public double getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Assigns the share of the request budget the split may use.
+   *
+   * @param requestsPerSecond requests per second share, 0 for no rate limit
+   * @param maxConcurrency    concurrent requests share, 0 for no concurrency limit
+   */
+  public void setRequestBudget(double requestsPerSecond, double maxConcurrency) {
+    this.requestsPerSecond = requestsPerSecond;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  @Override
+  public void write(DataOutput dataOutput) throws IOException {
+    dataOutput.writeLong(start);
+    dataOutput.writeLong(end);
+    dataOutput.writeLong(pageSize);
+    dataOutput.writeBoolean(rangeFilter != null);
+    if (rangeFilter != null) {
+      dataOutput.writeUTF(rangeFilter);
+    }
+    dataOutput.writeDouble(requestsPerSecond);
+    dataOutput.writeDouble(maxConcurrency);
+  }
+
+  @Override
+  public void readFields(DataInput dataInput) throws IOException {
+    this.start = dataInput.readLong();
+    this.end = dataInput.readLong();
+    this.pageSize = dataInput.readLong();
+    this.rangeFilter = dataInput.readBoolean() ? dataInput.readUTF() : null;
+    this.requestsPerSecond = dataInput.readDouble();
+    this.maxConcurrency = dataInput.readDouble();
+  }
+
+  /**
+   * Returns the number of records in the split, used by the framework to sort the splits by size.
+   *
+   * @return number of records in the split
+   */
+  @Override
+  public long getLength() {
+    return end - start;
+  }
+
+  @Override
+  public String[] getLocations() {
+    return new String[0];
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.common.util.ExceptionParser;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This {@code SuccessFactorsNestedPageFetcher} completes the expanded 1 to * navigation properties of the records.
+ * SuccessFactors pages such a collection as any entity set: the record holds the first page only, an object with the
+ * 'results' array and the '__next' link of the following page, at any depth of the '$expand'.
+ * <p>
+ * The following pages are fetched by the asynchronous record fetch of the transporter, which bounds the requests in
+ * flight per base URL, so the collections of many records are fetched concurrently without any thread waiting per
+ * collection. These calls take the concurrent request slots of the request budget like the pages of the entity, the
+ * page of the record being completed is downloaded in full first, so it holds no slot they wait for. The pages of one
+ * collection follow each other, as the link of a page is only known at the end of the previous one, and their records
+ * are appended to the 'results' array in order. A page is buffered and its connection released before its records are
+ * read, so the pages of the nested collections are never read from inside each other. A record is handed over once all
+ * its collections are complete, without any '__next' link left. Cancelling the future of a record cancels the calls of
+ * its collections.
+ */
+class SuccessFactorsNestedPageFetcher implements Closeable {
+  private static final String RESULTS = "results";
+  private static final String NEXT = "__next";
+
+  private final SuccessFactorsService successFactorsService;
+  private final SuccessFactorsUrlContainer urlContainer;
+  private final long awaitTimeoutMillis;
+  // calls in progress, cancelled on close
+  private final Set<CompletableFuture<SuccessFactorsResponseContainer>> calls = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  /**
+   * @param successFactorsService {@code SuccessFactorsService} fetching the pages
+   * @param urlContainer          {@code SuccessFactorsUrlContainer} resolving the '__next' links
+   * @param awaitTimeoutMillis    longest wait for the collections of one record
+   */
+  SuccessFactorsNestedPageFetcher(SuccessFactorsService successFactorsService,
+                                  SuccessFactorsUrlContainer urlContainer, long awaitTimeoutMillis) {
+    this.successFactorsService = successFactorsService;
+    this.urlContainer = urlContainer;
+    this.awaitTimeoutMillis = awaitTimeoutMillis;
+  }
+
+  /**
+   * Checks if the given record schema holds any expanded 1 to * navigation property, at any depth.
+   *
+   * @param recordSchema record schema
+   * @return true if any field is an array
+   */
+  static boolean hasCollections(Schema recordSchema) {
+    for (Schema.Field field : recordSchema.getFields()) {
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      if (fieldSchema.getType() == Schema.Type.ARRAY
+        || (fieldSchema.getType() == Schema.Type.RECORD && hasCollections(fieldSchema))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Starts to fetch the following pages of every collection of the given record.
+   *
+   * @param record JSON entry from the 'results' array
+   * @return future completed with the given record once all its collections are complete
+   */
+  CompletableFuture<JsonNode> complete(JsonNode record) {
+    RecordCalls recordCalls = new RecordCalls();
+    List<CompletableFuture<Void>> collections = new ArrayList<>();
+    fetchCollections(record, collections, recordCalls);
+    if (collections.isEmpty()) {
+      return CompletableFuture.completedFuture(record);
+    }
+    CompletableFuture<JsonNode> completeRecord = CompletableFuture.allOf(collections.toArray(new CompletableFuture[0]))
+      .thenApply(done -> record);
+    // a cancelled record drops the pages of its collections still being fetched
+    completeRecord.whenComplete((done, failure) -> {
+      if (completeRecord.isCancelled()) {
+        recordCalls.cancel();
+      }
+    });
+    return completeRecord;
+  }
+
+  /**
+   * Waits for the given record to be complete, at most the await timeout.
+   *
+   * @param record future returned by {@code complete}
+   * @return complete record
+   * @throws IOException any error while fetching a page of its collections, or if the timeout is reached
+   */
+  JsonNode await(CompletableFuture<JsonNode> record) throws IOException {
+    try {
+      return record.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the expanded records.");
+    } catch (TimeoutException te) {
+      throw new IOException(String.format("Expanded records not complete after %d ms.", awaitTimeoutMillis), te);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof TransportException) {
+        throw new IOException(ExceptionParser.buildTransportError((TransportException) cause), cause);
+      }
+      if (cause instanceof SuccessFactorsServiceException) {
+        SuccessFactorsServiceException ose = (SuccessFactorsServiceException) cause;
+        throw new IOException(ExceptionParser.buildSuccessFactorsServiceError(ose), ose);
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Walks the expanded objects of the given node and starts to fetch the following pages of every collection holding
+   * a '__next' link. The link is removed, so the node is left as one single page collection.
+   *
+   * @param node        JSON entry or expanded object
+   * @param collections futures of the collections being completed
+   * @param recordCalls calls of the record the node belongs to
+   */
+  private void fetchCollections(JsonNode node, List<CompletableFuture<Void>> collections, RecordCalls recordCalls) {
+    for (JsonNode value : node) {
+      if (!value.isObject()) {
+        continue;
+      }
+      JsonNode results = value.get(RESULTS);
+      if (results == null || !results.isArray()) {
+        // expanded 1 to 1 navigation property
+        fetchCollections(value, collections, recordCalls);
+        continue;
+      }
+
+      for (JsonNode item : results) {
+        fetchCollections(item, collections, recordCalls);
+      }
+      JsonNode nextLink = ((ObjectNode) value).remove(NEXT);
+      if (nextLink != null && nextLink.isTextual()) {
+        collections.add(fetchPages((ArrayNode) results, nextLink.asText(), recordCalls));
+      }
+    }
+  }
+
+  /**
+   * Fetches the page of the given link and the following ones, appending their records to the given array.
+   *
+   * @param results     'results' array of the collection
+   * @param nextLink    '__next' link of the page
+   * @param recordCalls calls of the record the collection belongs to
+   * @return future completed once the collection is complete
+   */
+  private CompletableFuture<Void> fetchPages(ArrayNode results, String nextLink, RecordCalls recordCalls) {
+    URL nextURL;
+    try {
+      nextURL = urlContainer.getNextLinkURL(nextLink);
+    } catch (IllegalArgumentException iae) {
+      return failedFuture(new IOException(iae.getMessage(), iae));
+    }
+    if (nextURL == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    if (closed || recordCalls.cancelled) {
+      return failedFuture(new IOException("Expanded records fetch is closed."));
+    }
+
+    CompletableFuture<SuccessFactorsResponseContainer> call = successFactorsService.readEntityDataAsync(nextURL);
+    calls.add(call);
+    recordCalls.calls.add(call);
+    call.whenComplete((responseContainer, failure) -> {
+      calls.remove(call);
+      recordCalls.calls.remove(call);
+    });
+    // closed or cancelled in between, the call may have been missed by the cancel
+    if (closed || recordCalls.cancelled) {
+      call.cancel(false);
+    }
+    return call.thenCompose(responseContainer -> readPage(results, responseContainer, recordCalls));
+  }
+
+  /**
+   * Reads the records of the given page into the given array, starting to fetch their own collections and the next
+   * page of the collection. The page is buffered and read on the thread completing its call.
+   *
+   * @param results           'results' array of the collection
+   * @param responseContainer page of the collection
+   * @param recordCalls       calls of the record the collection belongs to
+   * @return future completed once the collection and the collections of its records are complete
+   */
+  private CompletableFuture<Void> readPage(ArrayNode results, SuccessFactorsResponseContainer responseContainer,
+                                           RecordCalls recordCalls) {
+    List<CompletableFuture<Void>> collections = new ArrayList<>();
+    String nextLink;
+    byte[] page;
+    try (SuccessFactorsResponseContainer pageContainer = responseContainer) {
+      page = ByteStreams.toByteArray(pageContainer.getResponseStream());
+    } catch (IOException ioe) {
+      throw new CompletionException(ioe);
+    }
+    try (SuccessFactorsPageReader pageReader = new SuccessFactorsPageReader(new ByteArrayInputStream(page))) {
+      JsonNode item;
+      while ((item = pageReader.nextRecord()) != null) {
+        fetchCollections(item, collections, recordCalls);
+        results.add(item);
+      }
+      nextLink = pageReader.getNextLink();
+    } catch (IOException ioe) {
+      throw new CompletionException(ioe);
+    }
+
+    if (nextLink != null) {
+      collections.add(fetchPages(results, nextLink, recordCalls));
+    }
+    return CompletableFuture.allOf(collections.toArray(new CompletableFuture[0]));
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable failure) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
+  }
+
+  /**
+   * Cancels the calls in progress, a page being read is dropped once read. No more call is started.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    calls.forEach(call -> call.cancel(false));
+  }
+
+  /**
+   * Calls in progress for the collections of one record, cancelled with the record.
+   */
+  private static final class RecordCalls {
+    private final Set<CompletableFuture<SuccessFactorsResponseContainer>> calls = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private void cancel() {
+      cancelled = true;
+      calls.forEach(call -> call.cancel(false));
+    }
+  }
+}
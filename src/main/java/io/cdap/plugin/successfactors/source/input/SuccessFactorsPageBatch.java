@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsBatchResponse;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * This {@code SuccessFactorsPageBatch} fetches several consecutive pages of one split in a single '$batch' request.
+ * The request is sent when the first page is asked for and the pages are then read one by one, in order, from the
+ * multipart response. The response is released once the last page is read or the batch is closed. A page which is
+ * throttled or temporarily unavailable within the '$batch' response is fetched again on its own.
+ * <p>
+ * The pages are read by the prefetcher thread while the batch may be closed by the reader thread, closing never waits
+ * for a page being read, the response is then released by the prefetcher thread right after that page.
+ */
+class SuccessFactorsPageBatch implements Closeable {
+  private final SuccessFactorsService successFactorsService;
+  private final List<URL> dataURLs;
+  private SuccessFactorsBatchResponse batchResponse;
+  private long latencyNanos;
+  private int pagesRead;
+  private boolean reading;
+  private boolean closed;
+
+  /**
+   * @param successFactorsService service of the split
+   * @param dataURLs              data URLs of the consecutive pages
+   */
+  SuccessFactorsPageBatch(SuccessFactorsService successFactorsService, List<URL> dataURLs) {
+    this.successFactorsService = successFactorsService;
+    this.dataURLs = dataURLs;
+  }
+
+  /**
+   * Returns the number of pages of the batch.
+   *
+   * @return number of pages
+   */
+  int size() {
+    return dataURLs.size();
+  }
+
+  /**
+   * Returns the time taken to receive the '$batch' response, 0 until the request is sent.
+   *
+   * @return latency in nanoseconds
+   */
+  synchronized long getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /**
+   * Reads the next page of the batch, sending the '$batch' request for the first page.
+   *
+   * @return {@code SuccessFactorsResponseContainer} holding the JSON response of the page
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   * @throws IllegalStateException          if the batch is closed or all its pages are read
+   */
+  SuccessFactorsResponseContainer nextPage() throws TransportException, SuccessFactorsServiceException {
+    SuccessFactorsBatchResponse response;
+    URL dataURL;
+    synchronized (this) {
+      if (closed || pagesRead >= dataURLs.size()) {
+        throw new IllegalStateException("No more page can be read from the '$batch' request.");
+      }
+      reading = true;
+      response = batchResponse;
+      dataURL = dataURLs.get(pagesRead);
+    }
+
+    try {
+      if (response == null) {
+        long startNanos = System.nanoTime();
+        response = successFactorsService.readEntityDataBatch(dataURLs);
+        synchronized (this) {
+          batchResponse = response;
+          latencyNanos = System.nanoTime() - startNanos;
+        }
+      }
+      return successFactorsService.readBatchPart(response, dataURL);
+    } finally {
+      synchronized (this) {
+        reading = false;
+        // a failed '$batch' request is not sent again for the following pages
+        if (++pagesRead >= dataURLs.size() || closed || batchResponse == null) {
+          closed = true;
+          releaseResponse();
+        }
+      }
+    }
+  }
+
+  /**
+   * Releases the '$batch' response, right away or after the page being read.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (!reading) {
+      releaseResponse();
+    }
+  }
+
+  private void releaseResponse() {
+    if (batchResponse != null) {
+      batchResponse.close();
+      batchResponse = null;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.common.util.ExceptionParser;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseBuffer;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This {@code SuccessFactorsPagePrefetcher} fetches the pages of one split ahead of the reader on a single background
+ * thread, so the round trip of the next page overlaps the conversion of the current page.
+ * <p>
+ * Pages are handed over in the order they are submitted through a queue bounded by the prefetch depth. A prefetched
+ * page is downloaded up to its end on the background thread into a {@code SuccessFactorsResponseBuffer}, so the whole
+ * body download overlaps the conversion of the current page and the connection and the concurrent request slot of
+ * the call are released before the page is read. The memory stays capped by the spill threshold of the buffer, a
+ * larger page is spilled to a temporary file.
+ */
+class SuccessFactorsPagePrefetcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsPagePrefetcher.class);
+
+  private final int depth;
+  private final long spillThreshold;
+  private final ExecutorService executor;
+  private final Deque<Future<SuccessFactorsResponseContainer>> pages;
+  private volatile boolean closed;
+
+  /**
+   * @param depth maximum number of pages fetched ahead of the page being read
+   */
+  SuccessFactorsPagePrefetcher(int depth) {
+    this(depth, SuccessFactorsResponseBuffer.DEFAULT_SPILL_THRESHOLD);
+  }
+
+  /**
+   * @param depth          maximum number of pages fetched ahead of the page being read
+   * @param spillThreshold highest page size kept on heap
+   */
+  SuccessFactorsPagePrefetcher(int depth, long spillThreshold) {
+    this.depth = depth;
+    this.spillThreshold = spillThreshold;
+    this.pages = new ArrayDeque<>(depth);
+    this.executor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("successfactors-page-prefetch-%d").build());
+  }
+
+  /**
+   * Returns true if no more page can be submitted until the next one is taken.
+   *
+   * @return true if the hand-off queue is full
+   */
+  boolean isFull() {
+    return pages.size() >= depth;
+  }
+
+  /**
+   * Returns true if there is no submitted page left to take.
+   *
+   * @return true if the hand-off queue is empty
+   */
+  boolean isEmpty() {
+    return pages.isEmpty();
+  }
+
+  /**
+   * Submits the fetch of the next page.
+   *
+   * @param pageFetch call fetching the page
+   * @throws IllegalStateException if the hand-off queue is full or the prefetcher is closed
+   */
+  void submit(Callable<SuccessFactorsResponseContainer> pageFetch) {
+    if (closed || isFull()) {
+      throw new IllegalStateException("No more page can be prefetched.");
+    }
+    pages.add(executor.submit(() -> closed ? null : buffer(pageFetch.call())));
+  }
+
+  /**
+   * Downloads the given page up to its end, the page is released if the download fails.
+   *
+   * @param page fetched page
+   * @return buffered page
+   * @throws IOException any error while downloading the page
+   */
+  private SuccessFactorsResponseContainer buffer(SuccessFactorsResponseContainer page) throws IOException {
+    try {
+      return page.toBuffered(spillThreshold);
+    } catch (IOException | RuntimeException e) {
+      try {
+        page.close();
+      } catch (IOException closeError) {
+        e.addSuppressed(closeError);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Takes the oldest submitted page, waiting for its fetch to complete.
+   *
+   * @return {@code SuccessFactorsResponseContainer} of the page
+   * @throws IOException any error while fetching the page
+   * @throws IllegalStateException if no page was submitted
+   */
+  SuccessFactorsResponseContainer take() throws IOException {
+    Future<SuccessFactorsResponseContainer> page = pages.poll();
+    if (page == null) {
+      throw new IllegalStateException("No page was prefetched.");
+    }
+
+    try {
+      return page.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      // kept to be released on close
+      pages.addFirst(page);
+      throw new InterruptedIOException("Interrupted while waiting for the next page.");
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof TransportException) {
+        throw new IOException(ExceptionParser.buildTransportError((TransportException) cause), cause);
+      }
+      if (cause instanceof SuccessFactorsServiceException) {
+        SuccessFactorsServiceException ose = (SuccessFactorsServiceException) cause;
+        throw new IOException(ExceptionParser.buildSuccessFactorsServiceError(ose), ose);
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Discards all the pages not taken yet, releasing their response streams, and stops the background thread. The
+   * pages are released on the background thread itself once their fetch is complete, so closing never waits for a
+   * fetch in progress.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    discardAll();
+    executor.shutdown();
+  }
+
+  /**
+   * Discards all the submitted pages, the pages are released in the background once their fetch is complete.
+   */
+  void discardAll() {
+    Deque<Future<SuccessFactorsResponseContainer>> discardedPages = new ArrayDeque<>(pages);
+    pages.clear();
+    // single thread executor runs the tasks in order, so all the discarded fetches are complete by then
+    executor.submit(() -> discardedPages.forEach(SuccessFactorsPagePrefetcher::closeFetchedPage));
+  }
+
+  private static void closeFetchedPage(Future<SuccessFactorsResponseContainer> page) {
+    try {
+      SuccessFactorsResponseContainer responseContainer = page.get();
+      if (responseContainer != null) {
+        responseContainer.close();
+      }
+    } catch (ExecutionException e) {
+      // failed fetch, nothing to release
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOG.debug("Failed to release the prefetched page.", e);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsPageReader} incrementally decodes one JSON page of the SuccessFactors entity data
+ * straight from the response stream. Only the record being returned is materialized as a {@code JsonNode}, so the
+ * memory needed to read a page does not depend on the page size.
+ * <p>
+ * Supported page layouts are:
+ * - {"d": {"results": [...], "__next": "..."}}
+ * - {"d": [...]}
+ */
+public class SuccessFactorsPageReader implements Closeable {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final String DATA = "d";
+  private static final String RESULTS = "results";
+  private static final String NEXT = "__next";
+
+  private final JsonParser parser;
+  private boolean inResults;
+  private long recordCount;
+  @Nullable
+  private String nextLink;
+
+  public SuccessFactorsPageReader(InputStream responseStream) throws IOException {
+    this.parser = OBJECT_MAPPER.getFactory().createParser(responseStream);
+    this.inResults = seekResults();
+  }
+
+  /**
+   * Decodes the next record of the 'results' array.
+   *
+   * @return next record or null once all the records of the page are read
+   * @throws IOException any error while reading or decoding the response stream
+   */
+  @Nullable
+  public JsonNode nextRecord() throws IOException {
+    if (!inResults) {
+      return null;
+    }
+
+    JsonToken token = parser.nextToken();
+    if (token == null || token == JsonToken.END_ARRAY) {
+      inResults = false;
+      // '__next' link is placed after the 'results' array
+      seekResultsInData();
+      return null;
+    }
+
+    JsonNode record = parser.readValueAsTree();
+    // only the fully decoded records are counted, so a page failing midway can be resumed after the last one
+    recordCount++;
+    return record;
+  }
+
+  /**
+   * Returns the number of records read so far.
+   *
+   * @return number of records read so far
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the server side pagination link of the next page, available once all the records of the page are read.
+   *
+   * @return '__next' link or null if this is the last page
+   */
+  @Nullable
+  public String getNextLink() {
+    return nextLink;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+
+  /**
+   * Moves the parser to the start of the records array.
+   *
+   * @return true if the records array is found
+   * @throws IOException any error while reading the response stream
+   */
+  private boolean seekResults() throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return false;
+    }
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken valueToken = parser.nextToken();
+      if (DATA.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+        return true;
+      }
+      if (DATA.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+        return seekResultsInData();
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * Reads the fields of the 'd' object up to the 'results' array or up to the end of the object, capturing the
+   * '__next' link on the way.
+   *
+   * @return true if the 'results' array is found
+   * @throws IOException any error while reading the response stream
+   */
+  private boolean seekResultsInData() throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken valueToken = parser.nextToken();
+      if (RESULTS.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+        return true;
+      }
+      if (NEXT.equals(fieldName)) {
+        nextLink = parser.getValueAsString();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return false;
+  }
+}
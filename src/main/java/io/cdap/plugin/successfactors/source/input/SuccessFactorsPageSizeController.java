@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This {@code SuccessFactorsPageSizeController} adjusts the '$top' of the client side pagination pages of one split
+ * from the observed latency and response size of the full pages.
+ * - grows the page size twofold while both the latency and the response size stay under half of their target
+ * - shrinks the page size to fit both targets once any of them is exceeded
+ * - halves the page size after a timeout or a server error
+ * <p>
+ * The page size starts at the planned page size of the split, which is also the highest page size, and never goes
+ * below {@code MIN_PAGE_SIZE}.
+ */
+class SuccessFactorsPageSizeController {
+  static final long MIN_PAGE_SIZE = 50L;
+  static final long TARGET_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(30);
+  static final long TARGET_RESPONSE_BYTES = 32L * 1024 * 1024;
+
+  private final long minPageSize;
+  private final long maxPageSize;
+  private long pageSize;
+
+  /**
+   * @param maxPageSize planned page size of the split
+   */
+  SuccessFactorsPageSizeController(long maxPageSize) {
+    this.maxPageSize = Math.max(1, maxPageSize);
+    this.minPageSize = Math.min(MIN_PAGE_SIZE, this.maxPageSize);
+    this.pageSize = this.maxPageSize;
+  }
+
+  /**
+   * Returns the '$top' of the next full page.
+   *
+   * @return page size
+   */
+  long getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Adjusts the page size from the given observation of a page fetched with the current page size. The smaller pages
+   * e.g. the last page of a split say nothing about the current page size and are ignored.
+   *
+   * @param top           '$top' of the page
+   * @param latencyNanos  time taken to receive the response of the page
+   * @param responseBytes size of the response body of the page
+   */
+  void onPageRead(long top, long latencyNanos, long responseBytes) {
+    if (top != pageSize) {
+      return;
+    }
+
+    if (latencyNanos > TARGET_LATENCY_NANOS || responseBytes > TARGET_RESPONSE_BYTES) {
+      double ratio = Math.min((double) TARGET_LATENCY_NANOS / Math.max(1, latencyNanos),
+                              (double) TARGET_RESPONSE_BYTES / Math.max(1, responseBytes));
+      pageSize = Math.max(minPageSize, (long) (pageSize * ratio));
+    } else if (latencyNanos <= TARGET_LATENCY_NANOS / 2 && responseBytes <= TARGET_RESPONSE_BYTES / 2) {
+      pageSize = Math.min(maxPageSize, pageSize * 2);
+    }
+  }
+
+  /**
+   * Halves the page size after a page failed with a timeout or a server error.
+   *
+   * @return true if the page size got smaller, false if it is already the lowest one
+   */
+  boolean onPageFailed() {
+    if (pageSize <= minPageSize) {
+      return false;
+    }
+    pageSize = Math.max(minPageSize, pageSize / 2);
+    return true;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import org.apache.olingo.odata2.api.edm.EdmLiteralKind;
+import org.apache.olingo.odata2.api.edm.EdmSimpleType;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeException;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsPartitionBuilder} cuts the total available record count into contiguous record ranges.
+ * Records are read in the entity key order, so every range always covers the same set of records across the
+ * splits and no record is read twice or missed.
+ * <p>
+ * In case the number of splits is not provided (i.e. 0), it is derived from the record count as
+ * 'ceil(record count / (page size * pages per split))' and capped at {@code MAX_DERIVED_SPLITS}.
+ * <p>
+ * For the entities with a single integer or date key, the key values can be cut into ranges instead. A range condition
+ * lets SuccessFactors seek the key index, while a deep '$skip' makes it scan and discard all the skipped records.
+ * The first and the last range are open ended, so no record is missed even if the key boundaries are not exact.
+ */
+public class SuccessFactorsPartitionBuilder {
+
+  /**
+   * Maximum number of records SuccessFactors returns in a single page.
+   */
+  public static final long DEFAULT_PAGE_SIZE = 1000L;
+  static final long PAGES_PER_SPLIT = 10L;
+  static final int MAX_DERIVED_SPLITS = 100;
+
+  private SuccessFactorsPartitionBuilder() {
+  }
+
+  /**
+   * Builds the list of {@code SuccessFactorsInputSplit} for the given record count.
+   *
+   * @param availableRecordCount total number of records available for the given filter
+   * @param numSplits            number of splits to generate, 0 to derive it from the record count
+   * @return list of {@code SuccessFactorsInputSplit} or empty list in case there are no records
+   */
+  public static List<SuccessFactorsInputSplit> buildSplits(long availableRecordCount, int numSplits) {
+    if (availableRecordCount <= 0) {
+      return Collections.emptyList();
+    }
+
+    long splitCount = numSplits > 0 ? numSplits : deriveSplitCount(availableRecordCount);
+    // no empty split is generated
+    splitCount = Math.min(splitCount, availableRecordCount);
+
+    long splitSize = availableRecordCount / splitCount;
+    long remainder = availableRecordCount % splitCount;
+
+    List<SuccessFactorsInputSplit> splits = new ArrayList<>((int) splitCount);
+    long start = 0;
+    for (long i = 0; i < splitCount; i++) {
+      // remaining records are distributed one by one over the first splits
+      long end = start + splitSize + (i < remainder ? 1 : 0);
+      splits.add(new SuccessFactorsInputSplit(start, end, Math.min(DEFAULT_PAGE_SIZE, end - start)));
+      start = end;
+    }
+
+    return splits;
+  }
+
+  /**
+   * Builds the list of key range {@code SuccessFactorsInputSplit} for the given key boundaries. Key values are cut
+   * into ranges of equal width, the record range of every split is an estimate of its size.
+   *
+   * @param availableRecordCount total number of records available for the given filter
+   * @param numSplits            number of splits to generate, 0 to derive it from the record count
+   * @param keyName              key property name
+   * @param keyType              key property type, used to format the key literals
+   * @param minKey               lowest key value, integer value or epoch milliseconds
+   * @param maxKey               highest key value, integer value or epoch milliseconds
+   * @return list of {@code SuccessFactorsInputSplit} or empty list in case there are no records
+   * @throws EdmSimpleTypeException if any key value can not be formatted as per the key type
+   */
+  public static List<SuccessFactorsInputSplit> buildKeyRangeSplits(long availableRecordCount, int numSplits,
+                                                                   String keyName, EdmSimpleType keyType,
+                                                                   long minKey, long maxKey)
+    throws EdmSimpleTypeException {
+
+    if (availableRecordCount <= 0) {
+      return Collections.emptyList();
+    }
+
+    BigInteger keyWidth = BigInteger.valueOf(maxKey).subtract(BigInteger.valueOf(minKey)).add(BigInteger.ONE);
+    long splitCount = numSplits > 0 ? numSplits : deriveSplitCount(availableRecordCount);
+    // never more key ranges than key values or records
+    splitCount = Math.min(splitCount, Math.min(availableRecordCount, keyWidth.min(
+      BigInteger.valueOf(Long.MAX_VALUE)).longValue()));
+    if (splitCount <= 1) {
+      return buildSplits(availableRecordCount, 1);
+    }
+
+    long estimatedSplitSize = (availableRecordCount + splitCount - 1) / splitCount;
+    List<SuccessFactorsInputSplit> splits = new ArrayList<>((int) splitCount);
+    String lowerBound = null;
+    for (long i = 1; i <= splitCount; i++) {
+      String upperBound = null;
+      if (i < splitCount) {
+        long boundary = BigInteger.valueOf(minKey)
+          .add(keyWidth.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(splitCount)))
+          .longValue();
+        upperBound = keyType.valueToString(boundary, EdmLiteralKind.URI, null);
+      }
+
+      splits.add(new SuccessFactorsInputSplit(0, estimatedSplitSize, DEFAULT_PAGE_SIZE,
+                                              buildRangeFilter(keyName, lowerBound, upperBound)));
+      lowerBound = upperBound;
+    }
+
+    return splits;
+  }
+
+  /**
+   * Builds the key range condition, the first range has no lower bound and the last range has no upper bound.
+   *
+   * @param keyName    key property name
+   * @param lowerBound inclusive lower bound literal, null for the first range
+   * @param upperBound exclusive upper bound literal, null for the last range
+   * @return key range condition
+   */
+  private static String buildRangeFilter(String keyName, @Nullable String lowerBound, @Nullable String upperBound) {
+    if (lowerBound == null) {
+      return String.format("%s lt %s", keyName, upperBound);
+    }
+    if (upperBound == null) {
+      return String.format("%s ge %s", keyName, lowerBound);
+    }
+    return String.format("%s ge %s and %s lt %s", keyName, lowerBound, keyName, upperBound);
+  }
+
+  private static long deriveSplitCount(long availableRecordCount) {
+    long recordsPerSplit = DEFAULT_PAGE_SIZE * PAGES_PER_SPLIT;
+    long splitCount = (availableRecordCount + recordsPerSplit - 1) / recordsPerSplit;
+    return Math.min(splitCount, MAX_DERIVED_SPLITS);
+  }
+}
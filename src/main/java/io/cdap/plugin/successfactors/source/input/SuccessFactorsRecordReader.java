@@ -0,0 +1,594 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.RetryException;
+import com.google.common.base.Throwables;
+import com.google.common.io.CountingInputStream;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.common.util.ExceptionParser;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsTransformer;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsRateLimiter;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseBuffer;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransferMetrics;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
+import okhttp3.Response;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsRecordReader} reads the records of one {@code SuccessFactorsInputSplit} page by page and
+ * transforms the JSON entries of the 'results' array into {@code StructuredRecord}. Records are decoded one at a time
+ * straight from the response stream by the {@code SuccessFactorsPageReader}.
+ * Pages are fetched as per the pagination type:
+ * - client side: '$skip' and '$top' ordered by the entity keys, until the split range is read or, for the key range
+ * splits, until a page returns fewer records than requested
+ * - server side: follows the '__next' link of every page, until no more link is returned
+ * <p>
+ * For the client side pagination the next page is fetched and downloaded in full by the
+ * {@code SuccessFactorsPagePrefetcher} while the current page is being read, so the page being read holds no
+ * connection. The server side pagination can not be fetched ahead as the link of the next page is only known at the
+ * end of the current page, its page is read straight from the response stream unless it holds expanded collections.
+ * <p>
+ * The '$top' of the client side pagination pages is adjusted by the {@code SuccessFactorsPageSizeController}. A page
+ * failing with a timeout or a server error is read again from its first unread record with smaller pages, until the
+ * lowest page size is reached. The '__next' links of the server side pagination carry the page size chosen by
+ * SuccessFactors, so it is left as is.
+ * <p>
+ * With more than one page per batch request, the client side pagination pages are planned in groups of consecutive
+ * pages fetched by a single '$batch' request through the {@code SuccessFactorsPageBatch}, every page of the group is
+ * still handed over by the prefetcher one by one.
+ * <p>
+ * With expanded 1 to * navigation properties, the page is read a few records ahead of the record being returned and
+ * the following pages of their collections are fetched concurrently by the {@code SuccessFactorsNestedPageFetcher}.
+ * Records are still returned in order, each one once all its collections are complete. The page being read is then
+ * downloaded in full, so it holds no concurrent request slot of the request budget while the collections wait for
+ * one.
+ */
+public class SuccessFactorsRecordReader extends RecordReader<LongWritable, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsRecordReader.class);
+  // number of pages fetched ahead of the page being read
+  private static final int PREFETCH_DEPTH = 1;
+  // number of records read ahead of the record being returned while their collections are completed
+  private static final int NESTED_PAGE_WINDOW = 32;
+  static final String COUNTER_GROUP = "SuccessFactors";
+  static final String WIRE_BYTES_COUNTER = "wireBytes";
+  static final String DECODED_BYTES_COUNTER = "decodedBytes";
+
+  private final LongWritable key = new LongWritable();
+  private SuccessFactorsService successFactorsService;
+  private SuccessFactorsTransformer transformer;
+  private SuccessFactorsUrlContainer urlContainer;
+  private boolean serverSidePagination;
+  private boolean keyRangeSplit;
+  private String orderBy;
+  private long start;
+  private long end;
+  private long pageSize;
+  private int pagesPerBatch;
+  private long nextSkip;
+  private long recordIndex;
+  // '$skip' and '$top' of the current page
+  private long pageSkip;
+  private long pageTop;
+  // time taken to receive the response of the current page and its response stream counting the read bytes
+  private long pageLatencyNanos;
+  private CountingInputStream pageStream;
+  // next page link for the server side pagination, null once the last page is fetched
+  private URL nextLink;
+  // fetches the pages ahead for the client side pagination, null for the server side pagination
+  private SuccessFactorsPagePrefetcher prefetcher;
+  // prefetched pages, in the fetch order
+  private final Deque<PlannedPage> plannedPages = new ArrayDeque<>();
+  // pages of the current '$batch' request not submitted to the prefetcher yet
+  private final Deque<PlannedPage> batchedPages = new ArrayDeque<>();
+  private SuccessFactorsPageSizeController pageSizeController;
+  private SuccessFactorsPageReader pageReader;
+  // completes the expanded collections, null if the schema has none
+  private SuccessFactorsNestedPageFetcher nestedPageFetcher;
+  // records read from the current page and not returned yet, in the page order
+  private final Deque<CompletableFuture<JsonNode>> pendingRecords = new ArrayDeque<>();
+  private StructuredRecord value;
+  // share of the request budget held while the split is read, null if no budget is configured
+  private SuccessFactorsRateLimiter.Lease rateLimit;
+  private TaskAttemptContext taskAttemptContext;
+  private SuccessFactorsTransferMetrics transferMetrics;
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) throws IOException {
+    Configuration conf = taskAttemptContext.getConfiguration();
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsInputFormatProvider.getPluginConfig(conf);
+    Schema outputSchema = Schema.parseJson(conf.get(SuccessFactorsInputFormatProvider.OUTPUT_SCHEMA));
+
+    SuccessFactorsInputSplit split = (SuccessFactorsInputSplit) inputSplit;
+    if (split.getRequestsPerSecond() > 0 || split.getMaxConcurrency() > 0) {
+      rateLimit = SuccessFactorsRateLimiter.acquireLease(new URL(pluginConfig.getBaseURL()),
+                                                         split.getRequestsPerSecond(), split.getMaxConcurrency());
+    }
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(pluginConfig.getUsername(),
+                                                                          pluginConfig.getPassword(),
+                                                                          pluginConfig.getRetryPolicy(),
+                                                                          rateLimit);
+    this.taskAttemptContext = taskAttemptContext;
+    transferMetrics = transporter.getTransferMetrics();
+    String additionalFilter = SuccessFactorsUtil.andFilters(conf.get(SuccessFactorsInputFormatProvider.DELTA_FILTER),
+                                                            split.getRangeFilter());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter, additionalFilter);
+    transformer = new SuccessFactorsTransformer(outputSchema);
+    urlContainer = new SuccessFactorsUrlContainer(pluginConfig, additionalFilter);
+    if (SuccessFactorsNestedPageFetcher.hasCollections(outputSchema)) {
+      // a collection page may take the retry time budget of its call and one more attempt
+      long awaitTimeoutMillis = pluginConfig.getRetryPolicy().getTimeBudgetMillis()
+        + TimeUnit.SECONDS.toMillis(SuccessFactorsTransporter.CONNECTION_TIMEOUT);
+      nestedPageFetcher = new SuccessFactorsNestedPageFetcher(successFactorsService, urlContainer,
+                                                              awaitTimeoutMillis);
+    }
+    serverSidePagination = pluginConfig.isServerSidePagination();
+    keyRangeSplit = split.getRangeFilter() != null;
+    orderBy = conf.get(SuccessFactorsInputFormatProvider.ENTITY_KEYS);
+
+    start = split.getStart();
+    end = split.getEnd();
+    pageSize = split.getPageSize();
+    pagesPerBatch = pluginConfig.getPagesPerBatch();
+    nextSkip = start;
+    recordIndex = start;
+    if (serverSidePagination) {
+      nextLink = urlContainer.getServerSidePaginationURL(pageSize);
+    } else {
+      prefetcher = new SuccessFactorsPagePrefetcher(PREFETCH_DEPTH);
+      pageSizeController = new SuccessFactorsPageSizeController(pageSize);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (true) {
+      if (pageReader != null) {
+        JsonNode record;
+        try {
+          record = nextRecord();
+        } catch (IOException ioe) {
+          // the records read ahead are read again
+          long resumeSkip = pageSkip + pageReader.getRecordCount() - pendingRecords.size();
+          if (!resumeWithSmallerPages(ioe, resumeSkip)) {
+            throw ioe;
+          }
+          continue;
+        }
+        if (record != null) {
+          key.set(recordIndex++);
+          value = transformer.transform(record);
+          return true;
+        }
+
+        boolean lastPage = pageReader.getRecordCount() < pageTop;
+        closePage();
+        if (lastPage && !serverSidePagination) {
+          // for the record range splits fewer records are available than planned, e.g. records got deleted after the
+          // split planning
+          LOG.debug("No more records found after {} records for the split [{}, {}).", recordIndex - start, start, end);
+          return false;
+        }
+      }
+
+      if (!hasMorePages()) {
+        return false;
+      }
+      pageReader = fetchNextPage();
+    }
+  }
+
+  /**
+   * Decodes the next record of the current page. With expanded collections the page is read ahead, so the collections
+   * of the following records are completed while waiting for the current one.
+   *
+   * @return next record or null once all the records of the page are read
+   * @throws IOException any error while reading the page or fetching the collections of the record
+   */
+  @Nullable
+  private JsonNode nextRecord() throws IOException {
+    if (nestedPageFetcher == null) {
+      return pageReader.nextRecord();
+    }
+
+    while (pendingRecords.size() < NESTED_PAGE_WINDOW) {
+      JsonNode record = pageReader.nextRecord();
+      if (record == null) {
+        break;
+      }
+      pendingRecords.add(nestedPageFetcher.complete(record));
+    }
+    CompletableFuture<JsonNode> record = pendingRecords.peek();
+    if (record == null) {
+      return null;
+    }
+    // a failed record is kept pending, so the split is resumed from it
+    JsonNode completeRecord = nestedPageFetcher.await(record);
+    pendingRecords.remove();
+    return completeRecord;
+  }
+
+  private boolean hasMorePages() {
+    if (serverSidePagination) {
+      return nextLink != null;
+    }
+    return !prefetcher.isEmpty() || !batchedPages.isEmpty() || hasMorePlannedPages();
+  }
+
+  private boolean hasMorePlannedPages() {
+    // the record range of the key range splits is only an estimate, so they are read up to the last page
+    return keyRangeSplit || nextSkip < end;
+  }
+
+  /**
+   * Fetches the next page of the split and returns the reader decoding its records straight from the response stream.
+   * For the client side pagination the page is taken from the prefetcher, which starts to fetch the following page
+   * right away.
+   *
+   * @return {@code SuccessFactorsPageReader} of the page
+   * @throws IOException any error while fetching or reading the page
+   */
+  private SuccessFactorsPageReader fetchNextPage() throws IOException {
+    SuccessFactorsResponseContainer responseContainer;
+    if (serverSidePagination) {
+      pageTop = 0;
+      try {
+        SuccessFactorsResponseContainer page = successFactorsService.readEntityData(nextLink);
+        // the page is downloaded first, so it holds no concurrent request slot while its collections are fetched
+        responseContainer = nestedPageFetcher == null ? page :
+          page.toBuffered(SuccessFactorsResponseBuffer.DEFAULT_SPILL_THRESHOLD);
+      } catch (TransportException te) {
+        throw new IOException(ExceptionParser.buildTransportError(te), te);
+      } catch (SuccessFactorsServiceException ose) {
+        throw new IOException(ExceptionParser.buildSuccessFactorsServiceError(ose), ose);
+      }
+    } else {
+      responseContainer = takeNextPage();
+    }
+
+    try {
+      // closing the page releases the whole response, e.g. the spill file of a buffered '$batch' page
+      pageStream = new CountingInputStream(new FilterInputStream(responseContainer.getResponseStream()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            responseContainer.close();
+          }
+        }
+      });
+      return new SuccessFactorsPageReader(pageStream);
+    } catch (IOException ioe) {
+      responseContainer.close();
+      throw ioe;
+    }
+  }
+
+  /**
+   * Takes the next prefetched page. A page failing with a timeout or a server error is fetched again with a smaller
+   * page size.
+   *
+   * @return {@code SuccessFactorsResponseContainer} of the page
+   * @throws IOException any error while fetching the page, once the page size can not be reduced anymore
+   */
+  private SuccessFactorsResponseContainer takeNextPage() throws IOException {
+    while (true) {
+      prefetchPages();
+      PlannedPage page = plannedPages.remove();
+      SuccessFactorsResponseContainer responseContainer;
+      try {
+        responseContainer = prefetcher.take();
+      } catch (IOException ioe) {
+        if (!resumeWithSmallerPages(ioe, page.skip)) {
+          throw ioe;
+        }
+        continue;
+      }
+
+      pageSkip = page.skip;
+      pageTop = page.top;
+      pageLatencyNanos = page.latencyNanos;
+      prefetchPages();
+      return responseContainer;
+    }
+  }
+
+  /**
+   * Submits the fetch of the next planned pages until the prefetcher is full. For the key range splits a page may be
+   * fetched beyond the last one, it is simply discarded on close.
+   */
+  private void prefetchPages() {
+    while (!prefetcher.isFull() && (!batchedPages.isEmpty() || hasMorePlannedPages())) {
+      if (batchedPages.isEmpty() && pagesPerBatch > 1) {
+        planPageBatch();
+      }
+      PlannedPage page = batchedPages.isEmpty() ? planPage(null) : batchedPages.remove();
+      prefetcher.submit(() -> {
+        long startNanos = System.nanoTime();
+        SuccessFactorsResponseContainer responseContainer;
+        if (page.batch == null) {
+          responseContainer = successFactorsService.readEntityData(page.skip, page.top, orderBy);
+          page.latencyNanos = System.nanoTime() - startNanos;
+        } else {
+          responseContainer = page.batch.nextPage();
+          // the batch latency is shared by its pages, reading the page itself is spent on top of it
+          long readNanos = System.nanoTime() - startNanos;
+          page.latencyNanos = page.batch.getLatencyNanos() / page.batch.size()
+            + Math.max(0, readNanos - page.batch.getLatencyNanos());
+        }
+        return responseContainer;
+      });
+      plannedPages.add(page);
+    }
+  }
+
+  /**
+   * Plans the next page with the current page size.
+   *
+   * @param batch '$batch' request fetching the page, null if the page is fetched on its own
+   * @return planned page
+   */
+  private PlannedPage planPage(@Nullable SuccessFactorsPageBatch batch) {
+    long top = keyRangeSplit ? pageSizeController.getPageSize() :
+      Math.min(pageSizeController.getPageSize(), end - nextSkip);
+    PlannedPage page = new PlannedPage(nextSkip, top, batch);
+    nextSkip += top;
+    return page;
+  }
+
+  /**
+   * Plans the next consecutive pages fetched together by one '$batch' request, a single remaining page is left to be
+   * fetched on its own.
+   */
+  private void planPageBatch() {
+    long batchSkip = nextSkip;
+    List<PlannedPage> pages = new ArrayList<>(pagesPerBatch);
+    while (pages.size() < pagesPerBatch && hasMorePlannedPages()) {
+      pages.add(planPage(null));
+    }
+    if (pages.size() < 2) {
+      nextSkip = batchSkip;
+      return;
+    }
+
+    List<URL> dataURLs = pages.stream()
+      .map(page -> urlContainer.getDataFetchURL(page.skip, page.top, orderBy))
+      .collect(Collectors.toList());
+    SuccessFactorsPageBatch batch = new SuccessFactorsPageBatch(successFactorsService, dataURLs);
+    pages.forEach(page -> batchedPages.add(new PlannedPage(page.skip, page.top, batch)));
+  }
+
+  /**
+   * Reduces the page size after a page failed with a timeout or a server error and plans the pages again from the
+   * given offset. The pages already prefetched are discarded.
+   *
+   * @param failure    failure of the page
+   * @param resumeSkip offset of the first record not read yet
+   * @return true if the split is resumed, false if the failure must be raised
+   */
+  private boolean resumeWithSmallerPages(IOException failure, long resumeSkip) {
+    if (serverSidePagination || !isPageSizeFailure(failure) || !pageSizeController.onPageFailed()) {
+      return false;
+    }
+
+    LOG.warn(ResourceConstants.WARN_PAGE_SIZE_REDUCED.getMsgForKey(resumeSkip, pageSizeController.getPageSize(),
+                                                                    failure.getMessage()));
+    if (pageReader != null) {
+      try {
+        pageReader.close();
+      } catch (IOException ioe) {
+        // no-ops, the broken page is dropped anyway
+      }
+      pageReader = null;
+    }
+    // the collections of the records read ahead are fetched again with their records
+    pendingRecords.forEach(record -> record.cancel(false));
+    pendingRecords.clear();
+    prefetcher.discardAll();
+    closePageBatches();
+    plannedPages.clear();
+    batchedPages.clear();
+    nextSkip = resumeSkip;
+    return true;
+  }
+
+  /**
+   * Closes the '$batch' requests of the planned pages, their pages not read yet are dropped.
+   */
+  private void closePageBatches() {
+    Stream.concat(plannedPages.stream(), batchedPages.stream())
+      .map(page -> page.batch)
+      .filter(Objects::nonNull)
+      .distinct()
+      .forEach(SuccessFactorsPageBatch::close);
+  }
+
+  /**
+   * Checks if the given failure may be caused by a too large page, i.e. a timeout or a server error.
+   *
+   * @param failure failure of the page
+   * @return true if a smaller page may succeed
+   */
+  private static boolean isPageSizeFailure(Throwable failure) {
+    for (Throwable cause : Throwables.getCausalChain(failure)) {
+      if (cause instanceof SocketTimeoutException) {
+        return true;
+      }
+      if (cause instanceof SuccessFactorsServiceException) {
+        Integer errorCode = ((SuccessFactorsServiceException) cause).getErrorCode();
+        return errorCode != null && errorCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+      }
+      if (cause instanceof RetryException) {
+        // all the retries of a server error failed
+        Attempt<?> lastAttempt = ((RetryException) cause).getLastFailedAttempt();
+        return lastAttempt.hasResult() && lastAttempt.getResult() instanceof Response
+          && ((Response) lastAttempt.getResult()).code() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Releases the response stream of the current page and, for the server side pagination, resolves the link of the
+   * next page.
+   *
+   * @throws IOException any error while closing the response stream or an invalid '__next' link
+   */
+  private void closePage() throws IOException {
+    try (SuccessFactorsPageReader page = pageReader) {
+      pageReader = null;
+      if (serverSidePagination) {
+        nextLink = urlContainer.getNextLinkURL(page.getNextLink());
+      } else {
+        adjustPageSize();
+      }
+    } catch (IllegalArgumentException iae) {
+      throw new IOException(iae.getMessage(), iae);
+    }
+  }
+
+  private void adjustPageSize() {
+    long previousPageSize = pageSizeController.getPageSize();
+    pageSizeController.onPageRead(pageTop, pageLatencyNanos, pageStream.getCount());
+    if (pageSizeController.getPageSize() != previousPageSize) {
+      LOG.debug(ResourceConstants.DEBUG_PAGE_SIZE_ADJUSTED.getMsgForKey(
+        previousPageSize, pageSizeController.getPageSize(), TimeUnit.NANOSECONDS.toMillis(pageLatencyNanos),
+        pageStream.getCount()));
+    }
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public StructuredRecord getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() {
+    // for the server side pagination the planned record count is only an estimate
+    return end == start ? 1.0f : Math.min(1.0f, (recordIndex - start) / (float) (end - start));
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (nestedPageFetcher != null) {
+        nestedPageFetcher.close();
+        pendingRecords.forEach(record -> record.cancel(false));
+        pendingRecords.clear();
+      }
+      if (pageReader != null) {
+        pageReader.close();
+        pageReader = null;
+      }
+    } finally {
+      try {
+        if (prefetcher != null) {
+          prefetcher.close();
+          prefetcher = null;
+          closePageBatches();
+        }
+      } finally {
+        if (rateLimit != null) {
+          rateLimit.close();
+          rateLimit = null;
+        }
+        reportTransferMetrics();
+      }
+    }
+  }
+
+  /**
+   * Reports the response bytes read by the split as task counters, compressed as received and decompressed.
+   */
+  private void reportTransferMetrics() {
+    if (transferMetrics == null) {
+      return;
+    }
+    long wireBytes = transferMetrics.getWireBytes();
+    long decodedBytes = transferMetrics.getDecodedBytes();
+    transferMetrics = null;
+    LOG.info(ResourceConstants.INFO_TRANSFER_BYTES.getMsgForKey(wireBytes, decodedBytes));
+    incrementCounter(WIRE_BYTES_COUNTER, wireBytes);
+    incrementCounter(DECODED_BYTES_COUNTER, decodedBytes);
+  }
+
+  private void incrementCounter(String counterName, long value) {
+    Counter counter = taskAttemptContext.getCounter(COUNTER_GROUP, counterName);
+    // some engines do not track the task counters
+    if (counter != null) {
+      counter.increment(value);
+    }
+  }
+
+  /**
+   * '$skip' and '$top' of a prefetched page, the '$batch' request fetching it if any and the time taken to receive its
+   * response.
+   */
+  private static class PlannedPage {
+    private final long skip;
+    private final long top;
+    @Nullable
+    private final SuccessFactorsPageBatch batch;
+    private volatile long latencyNanos;
+
+    private PlannedPage(long skip, long top, @Nullable SuccessFactorsPageBatch batch) {
+      this.skip = skip;
+      this.top = top;
+      this.batch = batch;
+    }
+  }
+}
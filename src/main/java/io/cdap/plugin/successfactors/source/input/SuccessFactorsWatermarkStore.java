@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.input;
+
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsWatermarkStore} keeps the watermark of the last successful incremental extraction in a
+ * file on any Hadoop supported file system e.g. HDFS or GCS.
+ * <p>
+ * The watermark is kept as OData URI literal e.g. datetimeoffset'2022-01-01T00:00:00Z', so it can be used as it is in
+ * the delta filter.
+ */
+public class SuccessFactorsWatermarkStore {
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path watermarkPath;
+  private final Configuration configuration;
+
+  public SuccessFactorsWatermarkStore(String watermarkPath) {
+    this(watermarkPath, new Configuration());
+  }
+
+  public SuccessFactorsWatermarkStore(String watermarkPath, Configuration configuration) {
+    this.watermarkPath = new Path(watermarkPath);
+    this.configuration = configuration;
+  }
+
+  /**
+   * Reads the watermark of the last successful run.
+   *
+   * @return watermark or null in case there was no successful run yet
+   * @throws IOException any error while reading the watermark file
+   */
+  @Nullable
+  public String read() throws IOException {
+    try {
+      FileSystem fileSystem = watermarkPath.getFileSystem(configuration);
+      if (!fileSystem.exists(watermarkPath)) {
+        return null;
+      }
+
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(fileSystem.open(watermarkPath),
+                                                                            StandardCharsets.UTF_8))) {
+        String watermark = reader.lines().collect(Collectors.joining()).trim();
+        return SuccessFactorsUtil.isNullOrEmpty(watermark) ? null : watermark;
+      }
+    } catch (IOException ioe) {
+      throw new IOException(ResourceConstants.ERR_WATERMARK_FILE.getMsgForKey(watermarkPath), ioe);
+    }
+  }
+
+  /**
+   * Saves the watermark of the successful run. It is written to a temporary file first and then renamed, so a failure
+   * while writing never leaves a partial watermark behind.
+   *
+   * @param watermark watermark
+   * @throws IOException any error while writing the watermark file
+   */
+  public void write(String watermark) throws IOException {
+    Path tempPath = watermarkPath.suffix(TEMP_SUFFIX);
+    try {
+      FileSystem fileSystem = watermarkPath.getFileSystem(configuration);
+      try (FSDataOutputStream outputStream = fileSystem.create(tempPath, true)) {
+        outputStream.write(watermark.getBytes(StandardCharsets.UTF_8));
+      }
+      fileSystem.delete(watermarkPath, false);
+      if (!fileSystem.rename(tempPath, watermarkPath)) {
+        throw new IOException(String.format("Failed to rename '%s' to '%s'.", tempPath, watermarkPath));
+      }
+    } catch (IOException ioe) {
+      throw new IOException(ResourceConstants.ERR_WATERMARK_FILE.getMsgForKey(watermarkPath), ioe);
+    }
+  }
+
+  /**
+   * Builds the delta filter reading the records changed after the last watermark up to the current highest value.
+   * The upper bound makes sure the records changed while the extraction is running are read by the next run, as the
+   * highest value becomes the next watermark.
+   *
+   * @param watermarkField watermark field name
+   * @param lastWatermark  watermark of the last successful run, null for the first run
+   * @param maxWatermark   current highest value, null if no record has a watermark value
+   * @return delta filter or null in case all the records must be read
+   */
+  @Nullable
+  public static String buildDeltaFilter(String watermarkField, @Nullable String lastWatermark,
+                                        @Nullable String maxWatermark) {
+    if (lastWatermark == null) {
+      return maxWatermark == null ? null : String.format("%s le %s", watermarkField, maxWatermark);
+    }
+    if (maxWatermark == null) {
+      return String.format("%s gt %s", watermarkField, lastWatermark);
+    }
+    return String.format("%s gt %s and %s le %s", watermarkField, lastWatermark, watermarkField, maxWatermark);
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.successfactors.source.metadata;
 
+import com.google.common.collect.ImmutableMap;
 import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
 import org.apache.olingo.odata2.api.edm.Edm;
 import org.apache.olingo.odata2.api.edm.EdmComplexType;
@@ -26,7 +27,12 @@ import org.apache.olingo.odata2.core.edm.provider.EdmNavigationPropertyImplProv;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
 
 /**
@@ -35,14 +41,26 @@ import javax.annotation.Nullable;
  *    - get Entity instance for the given entity name
  *    - get property list for the given entity name
  *    - get navigation property and complex property for the given entity name
+ * <p>
+ * Lookups are indexed, as the metadata of a whole tenant holds thousands of entity sets and the schema generation
+ * looks up every prefix of every expanded navigation path:
+ *    - entity sets by name are indexed once, on the first lookup
+ *    - resolved navigation paths are kept per entity set, a path is resolved from its already resolved parent path
+ *    - complex types are kept by namespace and name
  */
 public class SuccessFactorsEntityProvider {
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsEntityProvider.class);
+  private static final String NAV_PATH_SEPARATOR = "/";
 
   private final Edm edmMetadata;
+  private final ConcurrentMap<String, ConcurrentMap<String, NavigationStep>> navigationSteps;
+  private final ConcurrentMap<String, Optional<EdmComplexType>> complexTypes;
+  private volatile Map<String, EdmEntitySet> entitySets;
 
   public SuccessFactorsEntityProvider(Edm edmMetadata) {
     this.edmMetadata = edmMetadata;
+    this.navigationSteps = new ConcurrentHashMap<>();
+    this.complexTypes = new ConcurrentHashMap<>();
   }
 
   /**
@@ -55,16 +73,32 @@ public class SuccessFactorsEntityProvider {
   @Nullable
   public EdmEntitySet getEntitySet(String entityName) throws EdmException {
     if (SuccessFactorsUtil.isNotNullOrEmpty(entityName)) {
-      for (EdmEntitySet edmEntitySet : edmMetadata.getEntitySets()) {
-        if (edmEntitySet.getName().equals(entityName)) {
-          return edmEntitySet;
-        }
-      }
+      return getEntitySetIndex().get(entityName);
     }
 
     return null;
   }
 
+  /**
+   * Returns the entity sets by name, built on the first call. In case of duplicate names across entity containers the
+   * first entity set is kept.
+   *
+   * @return entity sets by name
+   * @throws EdmException Expected exception
+   */
+  private Map<String, EdmEntitySet> getEntitySetIndex() throws EdmException {
+    Map<String, EdmEntitySet> index = entitySets;
+    if (index == null) {
+      Map<String, EdmEntitySet> entitySetsByName = new LinkedHashMap<>();
+      for (EdmEntitySet edmEntitySet : edmMetadata.getEntitySets()) {
+        entitySetsByName.putIfAbsent(edmEntitySet.getName(), edmEntitySet);
+      }
+      index = ImmutableMap.copyOf(entitySetsByName);
+      entitySets = index;
+    }
+    return index;
+  }
+
   @Nullable
   public EdmEntityType getEntityType(String entityName) throws EdmException {
     EdmEntitySet entitySet = getEntitySet(entityName);
@@ -117,18 +151,9 @@ public class SuccessFactorsEntityProvider {
     if (SuccessFactorsUtil.isNotNullOrEmpty(entityName) && SuccessFactorsUtil.isNotNullOrEmpty(navPath)) {
       EdmEntitySet entitySet = getEntitySet(entityName);
       if (entitySet != null) {
-        EdmEntityType entityType = entitySet.getEntityType();
-        EdmNavigationPropertyImplProv association = null;
-
-        String[] navNames = navPath.split("/");
-        for (String name : navNames) {
-          if (entityType.getNavigationPropertyNames().contains(name)) {
-            EdmNavigationPropertyImplProv navProperty = (EdmNavigationPropertyImplProv) (entityType.getProperty(name));
-            entityType = navProperty.getRelationship().getEnd(navProperty.getToRole()).getEntityType();
-            association = navProperty;
-          }
-        }
-        return association;
+        ConcurrentMap<String, NavigationStep> entitySteps =
+          navigationSteps.computeIfAbsent(entityName, name -> new ConcurrentHashMap<>());
+        return resolveNavigationPath(entitySteps, entitySet.getEntityType(), navPath).association;
       }
     }
 
@@ -140,6 +165,39 @@ public class SuccessFactorsEntityProvider {
     return null;
   }
 
+  /**
+   * Resolves the given navigation path from its parent path, which is resolved and kept first. Any name which is not a
+   * navigation property of the current entity type is skipped.
+   *
+   * @param entitySteps resolved navigation paths of the entity set
+   * @param rootType    entity type of the entity set
+   * @param navPath     navigation path
+   * @return {@code NavigationStep} of the last navigation property found in the path
+   * @throws EdmException Expected exception
+   */
+  private NavigationStep resolveNavigationPath(ConcurrentMap<String, NavigationStep> entitySteps,
+                                               EdmEntityType rootType, String navPath) throws EdmException {
+
+    NavigationStep step = entitySteps.get(navPath);
+    if (step != null) {
+      return step;
+    }
+
+    int separatorIndex = navPath.lastIndexOf(NAV_PATH_SEPARATOR);
+    NavigationStep parent = separatorIndex < 0 ? new NavigationStep(rootType, null)
+      : resolveNavigationPath(entitySteps, rootType, navPath.substring(0, separatorIndex));
+    String name = navPath.substring(separatorIndex + 1);
+
+    step = parent;
+    if (parent.entityType.getNavigationPropertyNames().contains(name)) {
+      EdmNavigationPropertyImplProv navProperty = (EdmNavigationPropertyImplProv) (parent.entityType.getProperty(name));
+      step = new NavigationStep(navProperty.getRelationship().getEnd(navProperty.getToRole()).getEntityType(),
+                                navProperty);
+    }
+    entitySteps.putIfAbsent(navPath, step);
+    return step;
+  }
+
   /**
    * Find and return the EdmEntityType for the given navigation property.
    *
@@ -173,7 +231,13 @@ public class SuccessFactorsEntityProvider {
   @Nullable
   public EdmComplexType getComplexType(String namespace, String propertyName) throws EdmException {
     if (SuccessFactorsUtil.isNotNullOrEmpty(namespace) && SuccessFactorsUtil.isNotNullOrEmpty(propertyName)) {
-      return edmMetadata.getComplexType(namespace, propertyName);
+      String qualifiedName = namespace + "." + propertyName;
+      Optional<EdmComplexType> complexType = complexTypes.get(qualifiedName);
+      if (complexType == null) {
+        complexType = Optional.ofNullable(edmMetadata.getComplexType(namespace, propertyName));
+        complexTypes.putIfAbsent(qualifiedName, complexType);
+      }
+      return complexType.orElse(null);
     }
 
     String debugMsg = String.format("Namespace: '%s' and Complex property name: '%s', " +
@@ -189,4 +253,18 @@ public class SuccessFactorsEntityProvider {
     EdmNavigationPropertyImplProv navProp = getNavigationProperty(entityName, navPath);
     return extractEntitySetFromNavigationProperty(navProp);
   }
+
+  /**
+   * Entity type reached by a navigation path along with the last navigation property of the path.
+   */
+  private static final class NavigationStep {
+    private final EdmEntityType entityType;
+    @Nullable
+    private final EdmNavigationPropertyImplProv association;
+
+    private NavigationStep(EdmEntityType entityType, @Nullable EdmNavigationPropertyImplProv association) {
+      this.entityType = entityType;
+      this.association = association;
+    }
+  }
 }
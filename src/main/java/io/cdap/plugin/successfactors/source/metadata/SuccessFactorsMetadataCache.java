@@ -0,0 +1,295 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsMetadataCache} keeps the downloaded '$metadata' documents on the local disk, keyed by base
+ * URL, entity name and user, as the metadata visible to a user depends on their permissions. The cache directory
+ * must belong to the current user and is kept readable by that user only.
+ * <p>
+ * Every entry holds the 'ETag' returned along with the metadata, so the cached copy is revalidated with a conditional
+ * call and downloaded again only if it has changed. The total size of the cache is bounded, the least recently used
+ * entries are evicted first.
+ */
+public class SuccessFactorsMetadataCache {
+
+  public static final String CACHE_DIRECTORY_PROPERTY = "successfactors.metadata.cache.dir";
+  static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+  private static final String CACHE_DIRECTORY = "successfactors-metadata-cache";
+  private static final String ENTRY_SUFFIX = ".edmx";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+  private static final SuccessFactorsMetadataCache DEFAULT_CACHE = new SuccessFactorsMetadataCache(
+    getDefaultDirectory(), DEFAULT_MAX_SIZE);
+
+  private final Path cacheDirectory;
+  private final long maxSize;
+  private volatile boolean directoryChecked;
+
+  public SuccessFactorsMetadataCache(Path cacheDirectory, long maxSize) {
+    this.cacheDirectory = cacheDirectory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the cache shared by all the SuccessFactors services of the JVM, in the directory given by the
+   * 'successfactors.metadata.cache.dir' system property or else in the '.cache' directory of the user home.
+   *
+   * @return {@code SuccessFactorsMetadataCache}
+   */
+  public static SuccessFactorsMetadataCache getDefault() {
+    return DEFAULT_CACHE;
+  }
+
+  private static Path getDefaultDirectory() {
+    String directory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+    if (directory != null && !directory.trim().isEmpty()) {
+      return Paths.get(directory.trim());
+    }
+    String userHome = System.getProperty("user.home");
+    if (userHome != null && !userHome.isEmpty() && !"?".equals(userHome)) {
+      return Paths.get(userHome, ".cache", CACHE_DIRECTORY);
+    }
+    // no home e.g. for a service account, the directory of the user is still checked as any other
+    return Paths.get(System.getProperty("java.io.tmpdir"), CACHE_DIRECTORY + "-" + System.getProperty("user.name"));
+  }
+
+  /**
+   * Builds the cache key for the given metadata. The key is hashed, so no user name is visible on the disk.
+   *
+   * @param baseURL    SuccessFactors base URL
+   * @param entityName SuccessFactors entity name
+   * @param username   SuccessFactors user name
+   * @return cache key
+   */
+  public static String buildKey(String baseURL, String entityName, @Nullable String username) {
+    return Hashing.sha256()
+      .newHasher()
+      .putString(baseURL, StandardCharsets.UTF_8)
+      .putByte((byte) 0)
+      .putString(entityName, StandardCharsets.UTF_8)
+      .putByte((byte) 0)
+      .putString(username == null ? "" : username, StandardCharsets.UTF_8)
+      .hash()
+      .toString();
+  }
+
+  /**
+   * Returns the cached metadata for the given key and marks it as recently used.
+   *
+   * @param key cache key
+   * @return {@code CachedMetadata} or null in case the metadata is not cached
+   * @throws IOException any error while reading the cache entry
+   */
+  @Nullable
+  public CachedMetadata get(String key) throws IOException {
+    Path entryPath = cacheDirectory.resolve(key + ENTRY_SUFFIX);
+    try {
+      if (!checkDirectory(false)) {
+        return null;
+      }
+    } catch (IOException ioe) {
+      throw new IOException(ResourceConstants.ERR_METADATA_CACHE.getMsgForKey(cacheDirectory), ioe);
+    }
+    try (DataInputStream inputStream = new DataInputStream(Files.newInputStream(entryPath))) {
+      String eTag = inputStream.readUTF();
+      byte[] metadata = ByteStreams.toByteArray(inputStream);
+      Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+      return new CachedMetadata(eTag, metadata);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException ioe) {
+      throw new IOException(ResourceConstants.ERR_METADATA_CACHE.getMsgForKey(cacheDirectory), ioe);
+    }
+  }
+
+  /**
+   * Caches the metadata for the given key and evicts the least recently used entries beyond the maximum size. The
+   * entry is written to a temporary file first and then moved, so a concurrent reader never sees a partial entry.
+   *
+   * @param key      cache key
+   * @param eTag     'ETag' of the metadata
+   * @param metadata metadata document
+   * @throws IOException any error while writing the cache entry
+   */
+  public void put(String key, String eTag, byte[] metadata) throws IOException {
+    try {
+      checkDirectory(true);
+      Path tempPath = Files.createTempFile(cacheDirectory, key, TEMP_SUFFIX);
+      try {
+        try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(tempPath))) {
+          outputStream.writeUTF(eTag);
+          outputStream.write(metadata);
+        }
+        Files.move(tempPath, cacheDirectory.resolve(key + ENTRY_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempPath);
+      }
+      evict();
+    } catch (IOException ioe) {
+      throw new IOException(ResourceConstants.ERR_METADATA_CACHE.getMsgForKey(cacheDirectory), ioe);
+    }
+  }
+
+  /**
+   * Checks that the cache directory is a directory of the current user, readable by that user only, as the cached
+   * metadata reveals the entities visible to a SuccessFactors user. A missing directory is created with owner-only
+   * permissions and the permissions of an existing directory of the user are restricted, a directory of another user
+   * is refused. The directory is checked once only.
+   *
+   * @param create true to create the missing directory
+   * @return false if the directory is missing and not created
+   * @throws IOException if the directory is not a directory of the current user or any error while checking it
+   */
+  private boolean checkDirectory(boolean create) throws IOException {
+    if (directoryChecked) {
+      return true;
+    }
+    synchronized (this) {
+      if (directoryChecked) {
+        return true;
+      }
+      boolean posix = cacheDirectory.getFileSystem().supportedFileAttributeViews().contains("posix");
+      if (Files.notExists(cacheDirectory, LinkOption.NOFOLLOW_LINKS)) {
+        if (!create) {
+          return false;
+        }
+        Path parent = cacheDirectory.toAbsolutePath().getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        try {
+          if (posix) {
+            Files.createDirectory(cacheDirectory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+          } else {
+            Files.createDirectory(cacheDirectory);
+          }
+        } catch (FileAlreadyExistsException e) {
+          // created concurrently, checked below
+        }
+      }
+
+      String userName = System.getProperty("user.name");
+      if (!Files.isDirectory(cacheDirectory, LinkOption.NOFOLLOW_LINKS)) {
+        throw new IOException(ResourceConstants.ERR_METADATA_CACHE_DIRECTORY.getMsgForKey(cacheDirectory, userName));
+      }
+      if (posix) {
+        UserPrincipal owner = Files.getOwner(cacheDirectory, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal currentUser = cacheDirectory.getFileSystem().getUserPrincipalLookupService()
+          .lookupPrincipalByName(userName);
+        if (!owner.equals(currentUser)) {
+          throw new IOException(ResourceConstants.ERR_METADATA_CACHE_DIRECTORY.getMsgForKey(cacheDirectory, userName));
+        }
+        if (!OWNER_ONLY.equals(Files.getPosixFilePermissions(cacheDirectory, LinkOption.NOFOLLOW_LINKS))) {
+          Files.setPosixFilePermissions(cacheDirectory, OWNER_ONLY);
+        }
+      }
+      directoryChecked = true;
+      return true;
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries until the total size of the cache is within the maximum size.
+   *
+   * @throws IOException any error while listing the cache entries
+   */
+  private void evict() throws IOException {
+    List<CacheEntry> entries = new ArrayList<>();
+    try (DirectoryStream<Path> entryPaths = Files.newDirectoryStream(cacheDirectory, "*" + ENTRY_SUFFIX)) {
+      for (Path entryPath : entryPaths) {
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(entryPath, BasicFileAttributes.class);
+          entries.add(new CacheEntry(entryPath, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+          // evicted concurrently
+        }
+      }
+    }
+
+    entries.sort(Comparator.comparingLong((CacheEntry entry) -> entry.lastUsed).reversed());
+    long totalSize = 0;
+    for (CacheEntry entry : entries) {
+      totalSize += entry.size;
+      if (totalSize > maxSize) {
+        Files.deleteIfExists(entry.path);
+      }
+    }
+  }
+
+  /**
+   * Metadata document along with its 'ETag'.
+   */
+  public static final class CachedMetadata {
+    private final String eTag;
+    private final byte[] metadata;
+
+    CachedMetadata(String eTag, byte[] metadata) {
+      this.eTag = eTag;
+      this.metadata = metadata;
+    }
+
+    public String getETag() {
+      return eTag;
+    }
+
+    public byte[] getMetadata() {
+      return metadata;
+    }
+  }
+
+  private static final class CacheEntry {
+    private final Path path;
+    private final long size;
+    private final long lastUsed;
+
+    private CacheEntry(Path path, long size, long lastUsed) {
+      this.path = path;
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
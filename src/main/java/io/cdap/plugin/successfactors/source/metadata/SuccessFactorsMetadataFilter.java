@@ -0,0 +1,440 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * This {@code SuccessFactorsMetadataFilter} reduces the service metadata document to the part required for one entity
+ * before it is parsed, as the metadata of a whole tenant can run to tens of MB while only a few types are used.
+ * <p>
+ * The document is streamed twice:
+ * - first pass indexes the entity types, complex types, associations and entity sets by their qualified names
+ * - second pass copies the document, leaving out everything outside the closure of the entity set i.e.
+ *    - the entity type of the entity set along with its base types
+ *    - the navigation properties along the '$select' and '$expand' paths, their associations and target entity types
+ *    - the complex types used by all the kept types
+ * Vocabulary annotations and function imports may refer to any type, so they are always left out.
+ */
+public class SuccessFactorsMetadataFilter {
+
+  private static final String NAV_PATH_SEPARATOR = "/";
+  private static final String SCHEMA = "Schema";
+  private static final String ENTITY_TYPE = "EntityType";
+  private static final String COMPLEX_TYPE = "ComplexType";
+  private static final String PROPERTY = "Property";
+  private static final String NAVIGATION_PROPERTY = "NavigationProperty";
+  private static final String ASSOCIATION = "Association";
+  private static final String END = "End";
+  private static final String ENTITY_SET = "EntitySet";
+  private static final String ASSOCIATION_SET = "AssociationSet";
+  private static final String FUNCTION_IMPORT = "FunctionImport";
+  private static final String ANNOTATIONS = "Annotations";
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private SuccessFactorsMetadataFilter() {
+  }
+
+  /**
+   * Reduces the given metadata document to the closure of the given entity set.
+   *
+   * @param metadata        service metadata document
+   * @param entityName      entity set name
+   * @param navigationPaths '$select' and '$expand' paths, e.g. 'to_Text/to_Parent' or 'to_Text/Description'
+   * @return reduced metadata document or null in case the entity set is not found in the metadata
+   * @throws XMLStreamException if the metadata document is not well formed
+   */
+  @Nullable
+  public static byte[] filter(byte[] metadata, String entityName, List<String> navigationPaths)
+    throws XMLStreamException {
+
+    MetadataIndex index = readIndex(metadata);
+    String rootType = index.entitySets.get(entityName);
+    if (rootType == null) {
+      return null;
+    }
+
+    Closure closure = new Closure(index);
+    closure.addEntityType(index.resolve(rootType));
+    for (String navigationPath : navigationPaths) {
+      closure.addNavigationPath(index.resolve(rootType), navigationPath);
+    }
+    return write(metadata, index, closure);
+  }
+
+  /**
+   * First pass, indexes the types and entity sets of the metadata document.
+   */
+  private static MetadataIndex readIndex(byte[] metadata) throws XMLStreamException {
+    MetadataIndex index = new MetadataIndex();
+    XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(metadata));
+    try {
+      String namespace = null;
+      TypeInfo currentType = null;
+      Map<String, String> currentAssociation = null;
+      List<String> currentAssociationSet = null;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getAttributeValue(null, "Name");
+          switch (reader.getLocalName()) {
+            case SCHEMA:
+              namespace = reader.getAttributeValue(null, "Namespace");
+              String alias = reader.getAttributeValue(null, "Alias");
+              if (alias != null) {
+                index.aliases.put(alias, namespace);
+              }
+              break;
+            case ENTITY_TYPE:
+              currentType = new TypeInfo(namespace, reader.getAttributeValue(null, "BaseType"));
+              index.entityTypes.put(namespace + "." + name, currentType);
+              break;
+            case COMPLEX_TYPE:
+              currentType = new TypeInfo(namespace, reader.getAttributeValue(null, "BaseType"));
+              index.complexTypes.put(namespace + "." + name, currentType);
+              break;
+            case PROPERTY:
+              if (currentType != null) {
+                currentType.propertyTypes.add(reader.getAttributeValue(null, "Type"));
+                currentType.propertyNames.add(name);
+              }
+              break;
+            case NAVIGATION_PROPERTY:
+              if (currentType != null) {
+                currentType.navigations.put(name, new String[]{reader.getAttributeValue(null, "Relationship"),
+                  reader.getAttributeValue(null, "ToRole")});
+              }
+              break;
+            case ASSOCIATION:
+              currentAssociation = new HashMap<>();
+              index.associations.put(namespace + "." + name, currentAssociation);
+              break;
+            case END:
+              if (currentAssociation != null) {
+                currentAssociation.put(reader.getAttributeValue(null, "Role"), reader.getAttributeValue(null, "Type"));
+              } else if (currentAssociationSet != null) {
+                currentAssociationSet.add(reader.getAttributeValue(null, ENTITY_SET));
+              }
+              break;
+            case ENTITY_SET:
+              index.entitySets.put(name, reader.getAttributeValue(null, ENTITY_TYPE));
+              break;
+            case ASSOCIATION_SET:
+              currentAssociationSet = new ArrayList<>();
+              // association first, followed by the entity sets of the ends
+              currentAssociationSet.add(reader.getAttributeValue(null, ASSOCIATION));
+              index.associationSets.put(name, currentAssociationSet);
+              break;
+            default:
+              break;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case ENTITY_TYPE:
+            case COMPLEX_TYPE:
+              currentType = null;
+              break;
+            case ASSOCIATION:
+              currentAssociation = null;
+              break;
+            case ASSOCIATION_SET:
+              currentAssociationSet = null;
+              break;
+            default:
+              break;
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return index;
+  }
+
+  /**
+   * Second pass, copies the metadata document leaving out all the elements outside the closure.
+   */
+  private static byte[] write(byte[] metadata, MetadataIndex index, Closure closure) throws XMLStreamException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(metadata.length / 4);
+    XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new ByteArrayInputStream(metadata));
+    XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(outputStream, StandardCharsets.UTF_8.name());
+    try {
+      String namespace = null;
+      String currentEntityType = null;
+      while (reader.hasNext()) {
+        XMLEvent event = reader.nextEvent();
+        if (event.isStartElement()) {
+          StartElement element = event.asStartElement();
+          String name = getAttribute(element, "Name");
+          boolean keep = true;
+          switch (element.getName().getLocalPart()) {
+            case SCHEMA:
+              namespace = getAttribute(element, "Namespace");
+              break;
+            case ENTITY_TYPE:
+              currentEntityType = namespace + "." + name;
+              keep = closure.entityTypes.contains(currentEntityType);
+              break;
+            case COMPLEX_TYPE:
+              keep = closure.complexTypes.contains(namespace + "." + name);
+              break;
+            case NAVIGATION_PROPERTY:
+              keep = currentEntityType == null || closure.navigations.contains(currentEntityType + NAV_PATH_SEPARATOR
+                                                                                 + name);
+              break;
+            case ASSOCIATION:
+              keep = closure.associations.contains(namespace + "." + name);
+              break;
+            case ENTITY_SET:
+              keep = closure.entityTypes.contains(index.resolve(getAttribute(element, ENTITY_TYPE)));
+              break;
+            case ASSOCIATION_SET:
+              keep = closure.isAssociationSetKept(name);
+              break;
+            case FUNCTION_IMPORT:
+            case ANNOTATIONS:
+              keep = false;
+              break;
+            default:
+              break;
+          }
+
+          if (!keep) {
+            skipElement(reader);
+            if (ENTITY_TYPE.equals(element.getName().getLocalPart())) {
+              currentEntityType = null;
+            }
+            continue;
+          }
+        } else if (event.isEndElement() && ENTITY_TYPE.equals(event.asEndElement().getName().getLocalPart())) {
+          currentEntityType = null;
+        }
+        writer.add(event);
+      }
+      writer.flush();
+    } finally {
+      writer.close();
+      reader.close();
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      XMLEvent event = reader.nextEvent();
+      if (event.isStartElement()) {
+        depth++;
+      } else if (event.isEndElement()) {
+        depth--;
+      }
+    }
+  }
+
+  @Nullable
+  private static String getAttribute(StartElement element, String name) {
+    Attribute attribute = element.getAttributeByName(new QName(name));
+    return attribute == null ? null : attribute.getValue();
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    // metadata is read from the remote service, so no DTD or external entity is resolved
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return inputFactory;
+  }
+
+  /**
+   * Types and entity sets of the metadata document by their qualified names.
+   */
+  private static final class MetadataIndex {
+    private final Map<String, String> aliases = new HashMap<>();
+    private final Map<String, TypeInfo> entityTypes = new HashMap<>();
+    private final Map<String, TypeInfo> complexTypes = new HashMap<>();
+    // association -> role -> entity type
+    private final Map<String, Map<String, String>> associations = new HashMap<>();
+    // entity set -> entity type
+    private final Map<String, String> entitySets = new HashMap<>();
+    // association set -> association followed by the entity sets of the ends
+    private final Map<String, List<String>> associationSets = new HashMap<>();
+
+    /**
+     * Resolves the alias of the given qualified name to its namespace, e.g. 'SF.Type' to 'SFOData.Type'.
+     */
+    @Nullable
+    private String resolve(@Nullable String qualifiedName) {
+      if (qualifiedName == null) {
+        return null;
+      }
+      String typeName = qualifiedName;
+      if (typeName.startsWith("Collection(") && typeName.endsWith(")")) {
+        typeName = typeName.substring("Collection(".length(), typeName.length() - 1);
+      }
+      int separatorIndex = typeName.lastIndexOf('.');
+      if (separatorIndex < 0) {
+        return typeName;
+      }
+      String namespace = typeName.substring(0, separatorIndex);
+      return aliases.getOrDefault(namespace, namespace) + typeName.substring(separatorIndex);
+    }
+  }
+
+  /**
+   * Properties and navigation properties of an entity type or complex type.
+   */
+  private static final class TypeInfo {
+    private final String namespace;
+    @Nullable
+    private final String baseType;
+    private final List<String> propertyTypes = new ArrayList<>();
+    private final List<String> propertyNames = new ArrayList<>();
+    // navigation property -> relationship and to role
+    private final Map<String, String[]> navigations = new HashMap<>();
+
+    private TypeInfo(String namespace, @Nullable String baseType) {
+      this.namespace = namespace;
+      this.baseType = baseType;
+    }
+  }
+
+  /**
+   * Qualified names of all the elements to keep.
+   */
+  private static final class Closure {
+    private final MetadataIndex index;
+    private final Set<String> entityTypes = new HashSet<>();
+    private final Set<String> complexTypes = new HashSet<>();
+    private final Set<String> associations = new HashSet<>();
+    // entity type + '/' + navigation property
+    private final Set<String> navigations = new HashSet<>();
+
+    private Closure(MetadataIndex index) {
+      this.index = index;
+    }
+
+    private void addEntityType(@Nullable String entityType) {
+      TypeInfo typeInfo = entityType == null ? null : index.entityTypes.get(entityType);
+      if (typeInfo == null || !entityTypes.add(entityType)) {
+        return;
+      }
+      addComplexTypes(typeInfo);
+      addEntityType(index.resolve(typeInfo.baseType));
+    }
+
+    private void addComplexType(@Nullable String complexType) {
+      TypeInfo typeInfo = complexType == null ? null : index.complexTypes.get(complexType);
+      if (typeInfo == null || !complexTypes.add(complexType)) {
+        return;
+      }
+      addComplexTypes(typeInfo);
+      addComplexType(index.resolve(typeInfo.baseType));
+    }
+
+    private void addComplexTypes(TypeInfo typeInfo) {
+      for (String propertyType : typeInfo.propertyTypes) {
+        addComplexType(index.resolve(propertyType));
+      }
+      // the complex types are also looked up by the property name within the namespace of the type
+      for (String propertyName : typeInfo.propertyNames) {
+        addComplexType(typeInfo.namespace + "." + propertyName);
+      }
+    }
+
+    /**
+     * Adds the navigation properties along the given path, up to the first name which is not a navigation property.
+     */
+    private void addNavigationPath(String rootType, String navigationPath) {
+      String entityType = rootType;
+      for (String name : navigationPath.trim().split(NAV_PATH_SEPARATOR)) {
+        String owner = findNavigationOwner(entityType, name);
+        if (owner == null) {
+          return;
+        }
+        String[] navigation = index.entityTypes.get(owner).navigations.get(name);
+        String association = index.resolve(navigation[0]);
+        Map<String, String> roles = index.associations.get(association);
+        String targetType = roles == null ? null : index.resolve(roles.get(navigation[1]));
+        if (targetType == null || !index.entityTypes.containsKey(targetType)) {
+          return;
+        }
+
+        navigations.add(owner + NAV_PATH_SEPARATOR + name);
+        associations.add(association);
+        for (String roleType : roles.values()) {
+          addEntityType(index.resolve(roleType));
+        }
+        entityType = targetType;
+      }
+    }
+
+    /**
+     * Returns the given entity type or its base type declaring the given navigation property, if any.
+     */
+    @Nullable
+    private String findNavigationOwner(@Nullable String entityType, String navigationName) {
+      Set<String> visited = new HashSet<>();
+      String owner = entityType;
+      while (owner != null && visited.add(owner)) {
+        TypeInfo typeInfo = index.entityTypes.get(owner);
+        if (typeInfo == null) {
+          return null;
+        }
+        if (typeInfo.navigations.containsKey(navigationName)) {
+          return owner;
+        }
+        owner = index.resolve(typeInfo.baseType);
+      }
+      return null;
+    }
+
+    private boolean isAssociationSetKept(String associationSet) {
+      List<String> associationSetInfo = index.associationSets.get(associationSet);
+      if (associationSetInfo == null || !associations.contains(index.resolve(associationSetInfo.get(0)))) {
+        return false;
+      }
+      for (String entitySet : associationSetInfo.subList(1, associationSetInfo.size())) {
+        if (!entityTypes.contains(index.resolve(index.entitySets.get(entitySet)))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsSchemaCache} keeps the generated output schemas in memory, so the repeated validations of
+ * an unchanged plugin config return the schema without generating it again.
+ * <p>
+ * The key is a hash of the service metadata document along with the entity name, '$select' and '$expand' options, so
+ * any change in the metadata leads to a new schema. Concurrent requests for the same key wait for one single
+ * generation. The cache is bounded in size and the schemas expire after a while.
+ */
+public class SuccessFactorsSchemaCache {
+
+  static final long DEFAULT_MAX_SIZE = 200L;
+  static final long DEFAULT_EXPIRY_MINUTES = 30L;
+  private static final SuccessFactorsSchemaCache DEFAULT_CACHE =
+    new SuccessFactorsSchemaCache(DEFAULT_MAX_SIZE, DEFAULT_EXPIRY_MINUTES, TimeUnit.MINUTES);
+
+  private final Cache<String, Schema> schemas;
+
+  public SuccessFactorsSchemaCache(long maxSize, long expiry, TimeUnit expiryUnit) {
+    this.schemas = CacheBuilder.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(expiry, expiryUnit)
+      .build();
+  }
+
+  /**
+   * Returns the cache shared by all the SuccessFactors services of the JVM.
+   *
+   * @return {@code SuccessFactorsSchemaCache}
+   */
+  public static SuccessFactorsSchemaCache getDefault() {
+    return DEFAULT_CACHE;
+  }
+
+  /**
+   * Builds the cache key for the given metadata and schema options.
+   *
+   * @param metadata     service metadata document
+   * @param entityName   SuccessFactors entity name
+   * @param selectOption '$select' option
+   * @param expandOption '$expand' option
+   * @return cache key
+   */
+  public static String buildKey(byte[] metadata, String entityName, @Nullable String selectOption,
+                                @Nullable String expandOption) {
+    return Hashing.sha256()
+      .newHasher()
+      .putBytes(metadata)
+      .putByte((byte) 0)
+      .putString(entityName, StandardCharsets.UTF_8)
+      .putByte((byte) 0)
+      .putString(selectOption == null ? "" : selectOption, StandardCharsets.UTF_8)
+      .putByte((byte) 0)
+      .putString(expandOption == null ? "" : expandOption, StandardCharsets.UTF_8)
+      .hash()
+      .toString();
+  }
+
+  /**
+   * Returns the cached schema for the given key or generates it. A failed generation is not cached.
+   *
+   * @param key       cache key
+   * @param generator generates the schema in case it is not cached
+   * @return {@code Schema}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public Schema get(String key, SchemaGenerator generator) throws TransportException, SuccessFactorsServiceException {
+    try {
+      return schemas.get(key, generator::generate);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TransportException) {
+        throw (TransportException) cause;
+      }
+      if (cause instanceof SuccessFactorsServiceException) {
+        throw (SuccessFactorsServiceException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new SuccessFactorsServiceException(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Generates the output schema.
+   */
+  @FunctionalInterface
+  public interface SchemaGenerator {
+    Schema generate() throws TransportException, SuccessFactorsServiceException;
+  }
+}
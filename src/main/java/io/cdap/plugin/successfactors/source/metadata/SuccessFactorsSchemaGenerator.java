@@ -41,7 +41,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -94,11 +93,16 @@ public class SuccessFactorsSchemaGenerator {
 
   private static final String NAV_PROPERTY_SEPARATOR = "/";
   private static final String PROPERTY_SEPARATOR = ",";
+  // placeholder record name, so the structural hash of the nested fields does not depend on the record name
+  private static final String STRUCTURE_RECORD_NAME = "Structure";
 
   private final SuccessFactorsEntityProvider successFactorsServiceHelper;
+  // nested record schemas by structural hash, identical nested types share one record schema
+  private final Map<String, Schema> nestedRecordSchemas;
 
   public SuccessFactorsSchemaGenerator(SuccessFactorsEntityProvider successFactorsServiceHelper) {
     this.successFactorsServiceHelper = successFactorsServiceHelper;
+    this.nestedRecordSchemas = new HashMap<>();
   }
 
   /**
@@ -693,19 +697,19 @@ public class SuccessFactorsSchemaGenerator {
         .map(this::buildSchemaField)
         .collect(Collectors.toList());
 
-      String typeName = buildNestedTypeUniqueName(successFactorsColumnDetail.getName());
+      Schema recordSchema = buildNestedRecordSchema(successFactorsColumnDetail.getName(), outputSchema);
 
       if (successFactorsColumnDetail.getType().equals(EdmTypeKind.ENTITY.name()) &&
         (successFactorsColumnDetail.getMultiplicityOrdinal() != null &&
           successFactorsColumnDetail.getMultiplicityOrdinal() > 0)) {
         // adding 1 to * multiplicity record to ARRAY type
         return Schema.Field.of(successFactorsColumnDetail.getName(),
-                               Schema.arrayOf(Schema.recordOf(typeName, outputSchema)));
+                               Schema.arrayOf(recordSchema));
       }
 
       // adding 0 to 1 multiplicity record to NULLABLE
       return Schema.Field.of(successFactorsColumnDetail.getName(),
-                             Schema.nullableOf(Schema.recordOf(typeName, outputSchema)));
+                             Schema.nullableOf(recordSchema));
     }
 
     return Schema.Field.of(successFactorsColumnDetail.getName(), buildRequiredSchemaType(successFactorsColumnDetail));
@@ -745,18 +749,22 @@ public class SuccessFactorsSchemaGenerator {
   }
 
   /**
-   * Prepares a unique name for the provide name. This is required in case to avoid the same type name referencing
-   * issue at the runtime. Name format: <actualname>_<random name>
-   * e.g. Supplier_5810e28b_c38d_41fe_8dc1_e24150c515d9
+   * Returns the record schema for the given nested fields. The record name must be unique per structure to avoid the
+   * same type name referencing issue at the runtime, so it is derived from the structural hash of the fields.
+   * Name format: <actualname>_<structural hash>
+   * e.g. Supplier_E794CCDF5CA4C5ABDDBC8C842DED1746
+   * <p>
+   * The name is stable across the builds, and identical nested types share one record schema named after the first
+   * property they appear under. The repeated types are then serialized as a reference to the record name.
    *
    * @param actualName nested property name
-   * @return unique name
+   * @param fields     nested fields
+   * @return record schema
    */
-  private String buildNestedTypeUniqueName(String actualName) {
-
-    // schema name with '-', fails at runtime because '-' is not supported. Only characters and '_' are supported
-    String randomName = UUID.randomUUID().toString().replace("-", "_");
-    return actualName.concat("_").concat(randomName);
+  private Schema buildNestedRecordSchema(String actualName, List<Schema.Field> fields) {
+    String structureHash = Schema.recordOf(STRUCTURE_RECORD_NAME, fields).getSchemaHash().toString();
+    return nestedRecordSchemas.computeIfAbsent(
+      structureHash, hash -> Schema.recordOf(actualName.concat("_").concat(hash), fields));
   }
 
   /**
@@ -16,6 +16,9 @@
 
 package io.cdap.plugin.successfactors.source.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
 import io.cdap.plugin.successfactors.common.exception.TransportException;
@@ -24,39 +27,92 @@ import io.cdap.plugin.successfactors.common.util.ResourceConstants;
 import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
 import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataCache;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataFilter;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaCache;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaGenerator;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsBatchResponse;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
 import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmEntityType;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.edm.EdmLiteralKind;
+import org.apache.olingo.odata2.api.edm.EdmSimpleType;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeException;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+import org.apache.olingo.odata2.api.edm.EdmTyped;
 import org.apache.olingo.odata2.api.ep.EntityProvider;
 import org.apache.olingo.odata2.api.ep.EntityProviderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.ws.rs.core.MediaType;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * This {@code SuccessFactorsService} contains all the SAP SuccessFactors relevant service call implementations
  * - check the correctness of the formed SuccessFactors URL
  * - builds the Output Schema
  * - fetch total number of available record count
- * - builds the base64 encoded SAP SuccessFactors entity metadata string
+ * - fetch the entity key properties
+ * - fetch the records for the given range
+ * - fetch the highest watermark value for the incremental extraction
+ * - fetch the key range for the key range splits
+ * <p>
+ * Service metadata is kept in the {@code SuccessFactorsMetadataCache} and downloaded again only if it has changed.
  */
 public class SuccessFactorsService {
 
   public static final String TEST = "TEST";
   public static final String METADATA = "METADATA";
   public static final String DATA = "DATA";
+  public static final String COUNT = "COUNT";
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsService.class);
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  // key types which can be cut into ranges of long values, i.e. integers and epoch milliseconds
+  private static final Set<EdmSimpleTypeKind> RANGE_KEY_TYPES = EnumSet.of(
+    EdmSimpleTypeKind.Byte, EdmSimpleTypeKind.SByte, EdmSimpleTypeKind.Int16, EdmSimpleTypeKind.Int32,
+    EdmSimpleTypeKind.Int64, EdmSimpleTypeKind.DateTime, EdmSimpleTypeKind.DateTimeOffset);
   private final SuccessFactorsPluginConfig pluginConfig;
   private final SuccessFactorsTransporter successFactorsHttpClient;
   private final SuccessFactorsUrlContainer urlContainer;
+  private final SuccessFactorsMetadataCache metadataCache;
+  private final SuccessFactorsSchemaCache schemaCache;
+  private byte[] serviceMetadata;
+  private SuccessFactorsEntityProvider entityProvider;
 
   public SuccessFactorsService(SuccessFactorsPluginConfig pluginConfig,
                                SuccessFactorsTransporter successFactorsHttpClient) {
+    this(pluginConfig, successFactorsHttpClient, null);
+  }
+
+  public SuccessFactorsService(SuccessFactorsPluginConfig pluginConfig,
+                               SuccessFactorsTransporter successFactorsHttpClient,
+                               @Nullable String additionalFilter) {
     this.pluginConfig = pluginConfig;
     this.successFactorsHttpClient = successFactorsHttpClient;
-    urlContainer = new SuccessFactorsUrlContainer(pluginConfig);
+    urlContainer = new SuccessFactorsUrlContainer(pluginConfig, additionalFilter);
+    metadataCache = SuccessFactorsMetadataCache.getDefault();
+    schemaCache = SuccessFactorsSchemaCache.getDefault();
   }
 
   /**
@@ -82,14 +138,28 @@ public class SuccessFactorsService {
    * - builds schema with non-navigation default properties
    * <p>
    * For more detail please refer {@code SuccessFactorsSchemaGenerator}
+   * <p>
+   * The schema is kept in the {@code SuccessFactorsSchemaCache} and generated again only if the metadata or any of
+   * the schema options have changed.
    *
    * @return {@code Schema}
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
    */
   public Schema buildOutputSchema() throws SuccessFactorsServiceException, TransportException {
+    byte[] metadata = getServiceMetadata();
+    if (metadata == null) {
+      return generateOutputSchema();
+    }
 
-    SuccessFactorsEntityProvider edmData = fetchServiceMetadata(callEntityMetadata());
+    String cacheKey = SuccessFactorsSchemaCache.buildKey(metadata, pluginConfig.getEntityName(),
+                                                         pluginConfig.getSelectOption(),
+                                                         pluginConfig.getExpandOption());
+    return schemaCache.get(cacheKey, this::generateOutputSchema);
+  }
+
+  private Schema generateOutputSchema() throws SuccessFactorsServiceException, TransportException {
+    SuccessFactorsEntityProvider edmData = getEntityProvider();
     SuccessFactorsSchemaGenerator successFactorsSchemaGenerator = new SuccessFactorsSchemaGenerator(edmData);
 
     if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getSelectOption())) {
@@ -104,16 +174,369 @@ public class SuccessFactorsService {
   }
 
   /**
-   * Calls the SAP SuccessFactors Service and returns the {@code Edm} instance.
+   * Calls the SAP SuccessFactors entity '$count' endpoint with the given '$filter' option and returns the total number
+   * of available records.
+   *
+   * @return total available record count
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public long getTotalAvailableRowCount() throws TransportException, SuccessFactorsServiceException {
+    SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient
+      .callSuccessFactorsEntity(urlContainer.getTotalRecordCountURL(), MediaType.TEXT_PLAIN, COUNT);
+
+    ExceptionParser.checkAndThrowException(ResourceConstants.ERR_RECORD_COUNT.getMsgForKey(), responseContainer);
+
+    String rawCount = "";
+    try (BufferedReader reader = new BufferedReader(
+      new InputStreamReader(responseContainer.getResponseStream(), StandardCharsets.UTF_8))) {
+      rawCount = reader.lines().collect(Collectors.joining()).trim();
+      return Long.parseLong(rawCount);
+    } catch (IOException | NumberFormatException e) {
+      throw new SuccessFactorsServiceException(ResourceConstants.ERR_INVALID_RECORD_COUNT.getMsgForKey(rawCount), e);
+    }
+  }
+
+  /**
+   * Returns the key property names of the configured entity. Keys are used to keep the record order stable across the
+   * paged data calls.
+   *
+   * @return list of key property names or empty list in case the entity is not found.
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public List<String> getEntityKeyNames() throws TransportException, SuccessFactorsServiceException {
+    try {
+      EdmEntityType entityType = getEntityProvider().getEntityType(pluginConfig.getEntityName());
+      return entityType == null ? Collections.emptyList() : entityType.getKeyPropertyNames();
+    } catch (EdmException ee) {
+      String errMsg = ResourceConstants.ERR_READING_METADATA.getMsgForKey(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, ee);
+    }
+  }
+
+  /**
+   * Calls the SAP SuccessFactors entity to fetch the highest value of the configured watermark field, for the user
+   * provided '$filter' option.
+   *
+   * @return highest watermark value as OData URI literal e.g. datetimeoffset'2022-01-01T00:00:00Z' or null in case
+   * there is no record with a watermark value.
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  @Nullable
+  public String getMaxWatermarkValue() throws TransportException, SuccessFactorsServiceException {
+    String watermarkField = pluginConfig.getWatermarkField();
+    EdmSimpleType watermarkType = getSimplePropertyType(
+      watermarkField, ResourceConstants.ERR_INVALID_WATERMARK_FIELD.getMsgForKey(watermarkField,
+                                                                                pluginConfig.getEntityName()));
+    String errMsg = ResourceConstants.ERR_WATERMARK_VALUE.getMsgForKey(watermarkField, pluginConfig.getEntityName());
+
+    String value = readBoundaryValue(watermarkField, true, errMsg);
+    if (value == null) {
+      return null;
+    }
+    try {
+      Object watermark = watermarkType.valueOfString(value, EdmLiteralKind.JSON, null, watermarkType.getDefaultType());
+      return watermarkType.valueToString(watermark, EdmLiteralKind.URI, null);
+    } catch (EdmSimpleTypeException e) {
+      throw new SuccessFactorsServiceException(errMsg, e);
+    }
+  }
+
+  /**
+   * Returns the type of the entity key if the entity can be partitioned into key ranges, i.e. the entity has a single
+   * key property of integer or date type.
+   *
+   * @return {@code EdmSimpleTypeKind} of the key or null if key ranges are not supported for the entity
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  @Nullable
+  public EdmSimpleTypeKind getRangeKeyType() throws TransportException, SuccessFactorsServiceException {
+    List<String> keyNames = getEntityKeyNames();
+    if (keyNames.size() != 1) {
+      return null;
+    }
+
+    String keyName = keyNames.get(0);
+    EdmSimpleType keyType = getSimplePropertyType(
+      keyName, ResourceConstants.ERR_KEY_RANGE.getMsgForKey(pluginConfig.getEntityName()));
+    for (EdmSimpleTypeKind typeKind : RANGE_KEY_TYPES) {
+      if (typeKind.getEdmSimpleTypeInstance().equals(keyType)) {
+        return typeKind;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Calls the SAP SuccessFactors entity to fetch the lowest or highest value of the given key for the '$filter'
+   * option, as long value i.e. integer value or epoch milliseconds.
+   *
+   * @param keyName key property name
+   * @param keyType key property type as returned by {@code getRangeKeyType}
+   * @param highest true for the highest value, false for the lowest value
+   * @return boundary value or null in case there is no record
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  @Nullable
+  public Long getKeyBoundary(String keyName, EdmSimpleTypeKind keyType, boolean highest)
+    throws TransportException, SuccessFactorsServiceException {
+
+    String errMsg = ResourceConstants.ERR_KEY_RANGE.getMsgForKey(pluginConfig.getEntityName());
+    String value = readBoundaryValue(keyName, highest, errMsg);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return keyType.getEdmSimpleTypeInstance().valueOfString(value, EdmLiteralKind.JSON, null, Long.class);
+    } catch (EdmSimpleTypeException e) {
+      throw new SuccessFactorsServiceException(errMsg, e);
+    }
+  }
+
+  /**
+   * Calls the SAP SuccessFactors entity to fetch the records for the given range.
+   *
+   * @param skip    number of records to skip
+   * @param top     number of records to fetch
+   * @param orderBy comma separated list of properties to order the records by
+   * @return {@code SuccessFactorsResponseContainer} holding the JSON response
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public SuccessFactorsResponseContainer readEntityData(long skip, long top, @Nullable String orderBy)
+    throws TransportException, SuccessFactorsServiceException {
+
+    return readEntityData(urlContainer.getDataFetchURL(skip, top, orderBy));
+  }
+
+  /**
+   * Calls the SAP SuccessFactors entity to fetch the records for the given data URL, e.g. the server side pagination
+   * '__next' link.
+   *
+   * @param dataURL data URL
+   * @return {@code SuccessFactorsResponseContainer} holding the live JSON response stream, must be closed by the caller
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public SuccessFactorsResponseContainer readEntityData(URL dataURL)
+    throws TransportException, SuccessFactorsServiceException {
+
+    SuccessFactorsResponseContainer responseContainer;
+    try {
+      responseContainer = successFactorsHttpClient.callSuccessFactorsWithRetry(dataURL);
+    } catch (IOException ioe) {
+      throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
+    }
+
+    try {
+      ExceptionParser.checkAndThrowException(ResourceConstants.ERR_RECORD_PULL.getMsgForKey(), responseContainer);
+    } catch (SuccessFactorsServiceException ose) {
+      closeQuietly(responseContainer);
+      throw ose;
+    }
+    return responseContainer;
+  }
+
+  /**
+   * Calls the SAP SuccessFactors entity asynchronously to fetch the records for the given data URL, e.g. the '__next'
+   * link of an expanded navigation property. The call waits for its turn among the asynchronous calls in flight for
+   * the base URL without blocking the caller.
+   *
+   * @param dataURL data URL
+   * @return future completed with the {@code SuccessFactorsResponseContainer} holding the live JSON response stream,
+   * which must be closed by the caller, or exceptionally with a {@code TransportException} or a
+   * {@code SuccessFactorsServiceException}. Cancelling the future cancels the call.
+   */
+  public CompletableFuture<SuccessFactorsResponseContainer> readEntityDataAsync(URL dataURL) {
+    CompletableFuture<SuccessFactorsResponseContainer> call = successFactorsHttpClient.callSuccessFactorsAsync(dataURL);
+    CompletableFuture<SuccessFactorsResponseContainer> result = new CompletableFuture<>();
+    result.whenComplete((responseContainer, failure) -> {
+      if (result.isCancelled()) {
+        call.cancel(false);
+      }
+    });
+    call.whenComplete((responseContainer, failure) -> {
+      if (failure != null) {
+        result.completeExceptionally(failure instanceof IOException ?
+          new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), failure) : failure);
+        return;
+      }
+      try {
+        ExceptionParser.checkAndThrowException(ResourceConstants.ERR_RECORD_PULL.getMsgForKey(), responseContainer);
+      } catch (SuccessFactorsServiceException ose) {
+        closeQuietly(responseContainer);
+        result.completeExceptionally(ose);
+        return;
+      }
+      if (!result.complete(responseContainer)) {
+        // cancelled meanwhile
+        closeQuietly(responseContainer);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Calls the SAP SuccessFactors '$batch' endpoint to fetch the records for all the given data URLs in one call.
+   *
+   * @param dataURLs data URLs of the service
+   * @return {@code SuccessFactorsBatchResponse} handing over the response of every data URL in order, must be closed
+   * by the caller
+   * @throws TransportException any http client exceptions are wrapped under it.
+   */
+  public SuccessFactorsBatchResponse readEntityDataBatch(List<URL> dataURLs) throws TransportException {
+    List<String> requestURIs = dataURLs.stream()
+      .map(urlContainer::getBatchRequestURI)
+      .collect(Collectors.toList());
+    try {
+      return successFactorsHttpClient.callSuccessFactorsBatch(urlContainer.getBatchURL(), requestURIs);
+    } catch (IOException ioe) {
+      throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
+    }
+  }
+
+  /**
+   * Reads the records of the next data URL of the given '$batch' response. A part which failed with a retryable HTTP
+   * code, e.g. a throttled part, is fetched again on its own as per the retry policy.
+   *
+   * @param batchResponse {@code SuccessFactorsBatchResponse}
+   * @param dataURL       data URL of the next part
+   * @return {@code SuccessFactorsResponseContainer} holding the JSON response of the data URL, must be closed by the
+   * caller
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public SuccessFactorsResponseContainer readBatchPart(SuccessFactorsBatchResponse batchResponse, URL dataURL)
+    throws TransportException, SuccessFactorsServiceException {
+
+    SuccessFactorsResponseContainer responseContainer;
+    try {
+      responseContainer = batchResponse.nextPart();
+      // the '$batch' request itself is already retried as a whole
+      if (!batchResponse.hasBatchError()) {
+        responseContainer = successFactorsHttpClient.retryBatchPart(dataURL, responseContainer);
+      }
+    } catch (IOException ioe) {
+      throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
+    }
+
+    try {
+      ExceptionParser.checkAndThrowException(ResourceConstants.ERR_RECORD_PULL.getMsgForKey(), responseContainer);
+    } catch (SuccessFactorsServiceException ose) {
+      closeQuietly(responseContainer);
+      throw ose;
+    }
+    return responseContainer;
+  }
+
+  private void closeQuietly(SuccessFactorsResponseContainer responseContainer) {
+    try {
+      responseContainer.close();
+    } catch (IOException ioe) {
+      // no-ops, the original service failure is more relevant
+    }
+  }
+
+  /**
+   * Calls the SAP SuccessFactors entity to fetch the lowest or highest non null value of the given field.
+   *
+   * @param fieldName field name
+   * @param highest   true for the highest value, false for the lowest value
+   * @param errMsg    error message in case of any failure
+   * @return boundary value in JSON format or null in case there is no record
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  @Nullable
+  private String readBoundaryValue(String fieldName, boolean highest, String errMsg)
+    throws TransportException, SuccessFactorsServiceException {
+
+    SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient
+      .callSuccessFactorsEntity(urlContainer.getBoundaryValueURL(fieldName, highest), MediaType.APPLICATION_JSON, DATA);
+
+    ExceptionParser.checkAndThrowException(errMsg, responseContainer);
+
+    try (InputStream responseStream = responseContainer.getResponseStream()) {
+      JsonNode data = OBJECT_MAPPER.readTree(responseStream).path("d");
+      JsonNode results = data.isArray() ? data : data.path("results");
+      JsonNode value = results.path(0).path(fieldName);
+      return value.isMissingNode() || value.isNull() ? null : value.asText();
+    } catch (IOException ioe) {
+      throw new SuccessFactorsServiceException(errMsg, ioe);
+    }
+  }
+
+  /**
+   * Returns the EDM type of the given field, which must be a simple property of the configured entity.
+   *
+   * @param fieldName field name
+   * @param errMsg    error message in case the field is not a simple property
+   * @return {@code EdmSimpleType}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException if the field is not a simple property of the entity.
+   */
+  private EdmSimpleType getSimplePropertyType(String fieldName, String errMsg)
+    throws TransportException, SuccessFactorsServiceException {
+
+    try {
+      EdmEntityType entityType = getEntityProvider().getEntityType(pluginConfig.getEntityName());
+      EdmTyped property = entityType == null ? null : entityType.getProperty(fieldName);
+      // navigation properties are typed by the target entity
+      if (property == null || !(property.getType() instanceof EdmSimpleType)) {
+        throw new SuccessFactorsServiceException(errMsg);
+      }
+      return (EdmSimpleType) property.getType();
+    } catch (EdmException e) {
+      throw new SuccessFactorsServiceException(errMsg, e);
+    }
+  }
+
+  /**
+   * Returns the {@code SuccessFactorsEntityProvider} for the configured entity. Service metadata is fetched only once
+   * per {@code SuccessFactorsService} instance.
    *
    * @return {@code SuccessFactorsEntityProvider}
+   * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
    */
-  private SuccessFactorsEntityProvider fetchServiceMetadata(InputStream metadataStream)
+  private SuccessFactorsEntityProvider getEntityProvider() throws TransportException, SuccessFactorsServiceException {
+    if (entityProvider == null) {
+      entityProvider = fetchServiceMetadata(getServiceMetadata());
+    }
+    return entityProvider;
+  }
+
+  /**
+   * Returns the service metadata document, fetched only once per {@code SuccessFactorsService} instance.
+   *
+   * @return service metadata document or null in case no response body was returned
+   * @throws TransportException any http client exceptions are wrapped under it.
+   */
+  @Nullable
+  private byte[] getServiceMetadata() throws TransportException {
+    if (serviceMetadata == null) {
+      serviceMetadata = callEntityMetadata();
+    }
+    return serviceMetadata;
+  }
+
+  /**
+   * Parses the given service metadata and returns the {@code Edm} instance. Only the part of the metadata required for
+   * the configured entity, '$select' and '$expand' options is parsed.
+   *
+   * @param metadata service metadata document
+   * @return {@code SuccessFactorsEntityProvider}
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  private SuccessFactorsEntityProvider fetchServiceMetadata(@Nullable byte[] metadata)
     throws SuccessFactorsServiceException {
-    try (InputStream stream = metadataStream) {
-      Edm metadata = EntityProvider.readMetadata(stream, false);
-      return new SuccessFactorsEntityProvider(metadata);
+    try (InputStream stream = metadata == null ? null : new ByteArrayInputStream(reduceMetadata(metadata))) {
+      Edm edm = EntityProvider.readMetadata(stream, false);
+      return new SuccessFactorsEntityProvider(edm);
     } catch (EntityProviderException | IOException e) {
       String errMsg = ResourceConstants.ERR_READING_METADATA.getMsgForKey(pluginConfig.getEntityName());
       throw new SuccessFactorsServiceException(errMsg, e);
@@ -121,14 +544,75 @@ public class SuccessFactorsService {
   }
 
   /**
-   * Calls the SAP SuccessFactors catalog entity to fetch Entity metadata
+   * Reduces the service metadata to the configured entity and the navigation paths of the '$select' and '$expand'
+   * options. For more detail please refer {@code SuccessFactorsMetadataFilter}
    *
-   * @return {@code InputStream}
+   * @param metadata service metadata document
+   * @return reduced metadata document or the given one in case it can not be reduced
+   */
+  private byte[] reduceMetadata(byte[] metadata) {
+    List<String> navigationPaths = new ArrayList<>();
+    for (String option : Arrays.asList(pluginConfig.getSelectOption(), pluginConfig.getExpandOption())) {
+      if (SuccessFactorsUtil.isNotNullOrEmpty(option)) {
+        navigationPaths.addAll(Arrays.asList(option.split(",")));
+      }
+    }
+
+    try {
+      byte[] reducedMetadata = SuccessFactorsMetadataFilter.filter(metadata, pluginConfig.getEntityName(),
+                                                                   navigationPaths);
+      if (reducedMetadata != null) {
+        return reducedMetadata;
+      }
+    } catch (XMLStreamException e) {
+      LOG.debug(ResourceConstants.DEBUG_METADATA_NOT_REDUCED.getMsgForKey(pluginConfig.getEntityName()), e);
+    }
+    return metadata;
+  }
+
+  /**
+   * Calls the SAP SuccessFactors catalog entity to fetch Entity metadata. A cached copy is revalidated with its 'ETag'
+   * and reused as long as SuccessFactors reports it as not modified. Metadata without 'ETag' can not be revalidated,
+   * so it is not cached.
+   *
+   * @return service metadata document or null in case no response body was returned
    * @throws TransportException any http client exceptions are wrapped under it.
    */
-  private InputStream callEntityMetadata() throws TransportException {
+  @Nullable
+  private byte[] callEntityMetadata() throws TransportException {
+    String cacheKey = SuccessFactorsMetadataCache.buildKey(pluginConfig.getBaseURL(), pluginConfig.getEntityName(),
+                                                           pluginConfig.getUsername());
+    SuccessFactorsMetadataCache.CachedMetadata cachedMetadata = null;
+    try {
+      cachedMetadata = metadataCache.get(cacheKey);
+    } catch (IOException ioe) {
+      LOG.warn(ioe.getMessage(), ioe);
+    }
+
     SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient
-      .callSuccessFactorsEntity(urlContainer.getMetadataURL(), MediaType.APPLICATION_XML, METADATA);
-    return responseContainer.getResponseStream();
+      .callSuccessFactorsMetadata(urlContainer.getMetadataURL(),
+                                  cachedMetadata == null ? null : cachedMetadata.getETag());
+    if (cachedMetadata != null && responseContainer.getHttpStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      LOG.debug(ResourceConstants.DEBUG_METADATA_CACHE_HIT.getMsgForKey(pluginConfig.getEntityName()));
+      return cachedMetadata.getMetadata();
+    }
+    if (responseContainer.getResponseStream() == null) {
+      return null;
+    }
+
+    byte[] metadata;
+    try (InputStream metadataStream = responseContainer.getResponseStream()) {
+      metadata = ByteStreams.toByteArray(metadataStream);
+    } catch (IOException ioe) {
+      throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
+    }
+    if (responseContainer.getHttpStatusCode() == HttpURLConnection.HTTP_OK && responseContainer.getETag() != null) {
+      try {
+        metadataCache.put(cacheKey, responseContainer.getETag(), metadata);
+      } catch (IOException ioe) {
+        LOG.warn(ioe.getMessage(), ioe);
+      }
+    }
+    return metadata;
   }
 }
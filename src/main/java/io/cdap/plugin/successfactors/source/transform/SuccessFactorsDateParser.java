@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * This {@code SuccessFactorsDateParser} parses the SuccessFactors date literal '/Date(milliseconds[+|-offset])/'
+ * e.g. '/Date(1609459200000+0060)/', where the offset is given in minutes. The literal is read in place character by
+ * character, without any regular expression or substring, and the {@code ZoneOffset} of every offset value is
+ * created once and cached.
+ * <p>
+ * The {@code LocalDateTime} is formatted the same way as {@code DateTimeFormatter.ISO_DATE_TIME} does, written
+ * straight into a character array for the years 0 to 9999.
+ */
+final class SuccessFactorsDateParser {
+  private static final String PREFIX = "/Date(";
+  private static final String SUFFIX = ")/";
+  private static final int OFFSET_LENGTH = 5;
+  // longest milliseconds value parsed without overflow check
+  private static final int MAX_SAFE_DIGITS = 18;
+  private static final int MAX_OFFSET_MINUTES = 18 * 60;
+  private static final ZoneOffset[] OFFSETS = new ZoneOffset[2 * MAX_OFFSET_MINUTES + 1];
+  private static final long MILLIS_PER_SECOND = 1000L;
+  private static final int NANOS_PER_MILLI = 1_000_000;
+  private static final int MAX_FAST_YEAR = 9999;
+  private static final int ISO_DATE_TIME_LENGTH = 29;
+
+  private SuccessFactorsDateParser() {
+  }
+
+  /**
+   * Parses the given date literal into epoch milliseconds. Milliseconds are always in UTC so the offset is ignored.
+   *
+   * @param value SuccessFactors date literal
+   * @return epoch milliseconds
+   * @throws IllegalArgumentException if the value is not a valid date literal
+   */
+  static long parseEpochMillis(String value) {
+    return parseMillis(value, millisEnd(value));
+  }
+
+  /**
+   * Parses the given date literal into the {@code LocalDateTime}. Offset, if present, is applied to get the local date
+   * time.
+   *
+   * @param value SuccessFactors date literal
+   * @return {@code LocalDateTime}
+   * @throws IllegalArgumentException if the value is not a valid date literal
+   * @throws java.time.DateTimeException if the offset or the date is out of range
+   */
+  static LocalDateTime parseDateTime(String value) {
+    int millisEnd = millisEnd(value);
+    long millis = parseMillis(value, millisEnd);
+    ZoneOffset offset = millisEnd == value.length() - SUFFIX.length() ? ZoneOffset.UTC
+      : getOffset(parseOffsetMinutes(value, millisEnd));
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, MILLIS_PER_SECOND),
+                                       (int) Math.floorMod(millis, MILLIS_PER_SECOND) * NANOS_PER_MILLI, offset);
+  }
+
+  /**
+   * Formats the given {@code LocalDateTime} as {@code DateTimeFormatter.ISO_DATE_TIME} does, e.g.
+   * '2021-01-01T01:00:00' or '2021-01-01T01:00:00.25'.
+   *
+   * @param dateTime {@code LocalDateTime}
+   * @return ISO-8601 date time
+   */
+  static String formatDateTime(LocalDateTime dateTime) {
+    int year = dateTime.getYear();
+    if (year < 0 || year > MAX_FAST_YEAR) {
+      return dateTime.format(DateTimeFormatter.ISO_DATE_TIME);
+    }
+
+    char[] chars = new char[ISO_DATE_TIME_LENGTH];
+    writeDigits(chars, 0, year, 4);
+    chars[4] = '-';
+    writeDigits(chars, 5, dateTime.getMonthValue(), 2);
+    chars[7] = '-';
+    writeDigits(chars, 8, dateTime.getDayOfMonth(), 2);
+    chars[10] = 'T';
+    writeDigits(chars, 11, dateTime.getHour(), 2);
+    chars[13] = ':';
+    writeDigits(chars, 14, dateTime.getMinute(), 2);
+    chars[16] = ':';
+    writeDigits(chars, 17, dateTime.getSecond(), 2);
+    int length = 19;
+    int nano = dateTime.getNano();
+    if (nano != 0) {
+      // fraction without the trailing zeros
+      chars[length++] = '.';
+      writeDigits(chars, length, nano, 9);
+      length += 9;
+      while (chars[length - 1] == '0') {
+        length--;
+      }
+    }
+    return new String(chars, 0, length);
+  }
+
+  /**
+   * Checks the layout of the given date literal and returns the end of its milliseconds.
+   *
+   * @param value SuccessFactors date literal
+   * @return index following the last digit of the milliseconds
+   * @throws IllegalArgumentException if the value is not a valid date literal
+   */
+  private static int millisEnd(String value) {
+    int length = value.length();
+    if (length < PREFIX.length() + 1 + SUFFIX.length() || !value.startsWith(PREFIX) || !value.endsWith(SUFFIX)) {
+      throw invalidDate(value);
+    }
+
+    int index = PREFIX.length();
+    if (value.charAt(index) == '-') {
+      index++;
+    }
+    int digitsStart = index;
+    int suffixStart = length - SUFFIX.length();
+    while (index < suffixStart && isDigit(value.charAt(index))) {
+      index++;
+    }
+    if (index == digitsStart) {
+      throw invalidDate(value);
+    }
+    if (index == suffixStart) {
+      return index;
+    }
+
+    // offset: sign and exactly four digits
+    char sign = value.charAt(index);
+    if (suffixStart - index != OFFSET_LENGTH || (sign != '+' && sign != '-')) {
+      throw invalidDate(value);
+    }
+    for (int i = index + 1; i < suffixStart; i++) {
+      if (!isDigit(value.charAt(i))) {
+        throw invalidDate(value);
+      }
+    }
+    return index;
+  }
+
+  private static long parseMillis(String value, int millisEnd) {
+    int index = PREFIX.length();
+    boolean negative = value.charAt(index) == '-';
+    if (negative) {
+      index++;
+    }
+    if (millisEnd - index > MAX_SAFE_DIGITS) {
+      // may overflow, left to the JDK to report it
+      return Long.parseLong(value.substring(PREFIX.length(), millisEnd));
+    }
+
+    long millis = 0;
+    for (; index < millisEnd; index++) {
+      millis = millis * 10 + (value.charAt(index) - '0');
+    }
+    return negative ? -millis : millis;
+  }
+
+  private static int parseOffsetMinutes(String value, int offsetStart) {
+    int minutes = 0;
+    for (int i = offsetStart + 1; i < offsetStart + OFFSET_LENGTH; i++) {
+      minutes = minutes * 10 + (value.charAt(i) - '0');
+    }
+    return value.charAt(offsetStart) == '-' ? -minutes : minutes;
+  }
+
+  /**
+   * Returns the cached {@code ZoneOffset} of the given offset minutes. Concurrent callers may create the same offset
+   * twice, which is harmless as the offsets are equal.
+   *
+   * @param minutes offset in minutes
+   * @return {@code ZoneOffset}
+   * @throws java.time.DateTimeException if the offset is not within +/-18 hours
+   */
+  private static ZoneOffset getOffset(int minutes) {
+    if (minutes < -MAX_OFFSET_MINUTES || minutes > MAX_OFFSET_MINUTES) {
+      return ZoneOffset.ofTotalSeconds(minutes * 60);
+    }
+    int slot = minutes + MAX_OFFSET_MINUTES;
+    ZoneOffset offset = OFFSETS[slot];
+    if (offset == null) {
+      offset = ZoneOffset.ofTotalSeconds(minutes * 60);
+      OFFSETS[slot] = offset;
+    }
+    return offset;
+  }
+
+  private static void writeDigits(char[] chars, int start, int value, int width) {
+    for (int i = start + width - 1; i >= start; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static IllegalArgumentException invalidDate(String value) {
+    return new IllegalArgumentException(String.format("'%s' is not a valid SuccessFactors date value.", value));
+  }
+}
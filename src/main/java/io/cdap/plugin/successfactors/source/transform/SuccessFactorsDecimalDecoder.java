@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * This {@code SuccessFactorsDecimalDecoder} decodes the Edm.Decimal values, sent by SuccessFactors as string e.g.
+ * '1234.50', into the unscaled value bytes expected by the {@code StructuredRecord} for the schema precision and
+ * scale, as done by {@code StructuredRecord.Builder#setDecimal}.
+ * <p>
+ * For a precision up to 18 the plain decimal digits are accumulated straight into an unscaled long at the schema
+ * scale, rounded half up, and the long is written as minimal two's complement bytes without any {@code BigDecimal}.
+ * Any other value e.g. with an exponent, a higher precision or a value exceeding the precision goes through
+ * {@code BigDecimal}, so both give the same result and the same error for every value.
+ */
+final class SuccessFactorsDecimalDecoder {
+  static final int MAX_LONG_PRECISION = 18;
+  private static final long[] POWERS_OF_TEN = new long[MAX_LONG_PRECISION + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1L;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private SuccessFactorsDecimalDecoder() {
+  }
+
+  /**
+   * Decodes the given decimal value at the given scale.
+   *
+   * @param value     decimal value
+   * @param precision schema precision
+   * @param scale     schema scale
+   * @return big-endian two's complement bytes of the unscaled value
+   * @throws NumberFormatException    if the value is not a valid decimal
+   * @throws IllegalArgumentException if the value exceeds the schema precision
+   */
+  static byte[] decode(String value, int precision, int scale) {
+    if (precision <= MAX_LONG_PRECISION && scale >= 0 && scale <= precision) {
+      int length = value.length();
+      int index = 0;
+      boolean negative = false;
+      if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+        negative = value.charAt(0) == '-';
+        index++;
+      }
+
+      long unscaled = 0;
+      // digits of the unscaled value, leading zeros excluded
+      int digits = 0;
+      int fractionDigits = -1;
+      boolean roundUp = false;
+      boolean valid = index < length;
+      boolean anyDigit = false;
+      for (; valid && index < length; index++) {
+        char c = value.charAt(index);
+        if (c == '.' && fractionDigits < 0) {
+          fractionDigits = 0;
+        } else if (c >= '0' && c <= '9') {
+          anyDigit = true;
+          if (fractionDigits >= scale) {
+            // only the first dropped digit decides the half up rounding, the following ones are just checked
+            roundUp |= fractionDigits == scale && c >= '5';
+            fractionDigits++;
+            continue;
+          }
+          if (fractionDigits >= 0) {
+            fractionDigits++;
+          }
+          if (unscaled != 0 || c != '0') {
+            digits++;
+          }
+          // exceeds the precision, also stops before the long could overflow
+          valid = digits <= precision;
+          unscaled = unscaled * 10 + (c - '0');
+        } else {
+          valid = false;
+        }
+      }
+
+      int missingDigits = scale - Math.max(0, Math.min(fractionDigits, scale));
+      if (valid && anyDigit && digits + missingDigits <= precision) {
+        unscaled = unscaled * POWERS_OF_TEN[missingDigits] + (roundUp ? 1 : 0);
+        // rounding up may add a digit, e.g. 9.99 at scale 1
+        if (unscaled < POWERS_OF_TEN[precision]) {
+          return toByteArray(negative ? -unscaled : unscaled);
+        }
+      }
+    }
+    return decodeBigDecimal(value, precision, scale);
+  }
+
+  private static byte[] decodeBigDecimal(String value, int precision, int scale) {
+    BigDecimal decimal = new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP);
+    if (decimal.precision() > precision) {
+      throw new IllegalArgumentException(
+        String.format("Value '%s' has precision '%s' which is higher than schema precision '%s'.",
+                      decimal, decimal.precision(), precision));
+    }
+    return decimal.unscaledValue().toByteArray();
+  }
+
+  /**
+   * Writes the given value as {@code BigInteger#toByteArray} does, i.e. the minimal big-endian two's complement bytes
+   * holding at least one sign bit.
+   *
+   * @param value unscaled value
+   * @return bytes of the value
+   */
+  static byte[] toByteArray(long value) {
+    int bitLength = Long.SIZE - Long.numberOfLeadingZeros(value < 0 ? ~value : value);
+    byte[] bytes = new byte[bitLength / Byte.SIZE + 1];
+    for (int i = bytes.length - 1; i >= 0; i--) {
+      bytes[i] = (byte) value;
+      value >>= Byte.SIZE;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import java.time.Duration;
+
+/**
+ * This {@code SuccessFactorsDurationParser} parses the Edm.Time values, sent by SuccessFactors as ISO-8601 duration
+ * e.g. 'PT10H30M15S', into microseconds in a single pass over the characters.
+ * <p>
+ * The time of day layout 'PT[hoursH][minutesM][seconds[.fraction]S]' is parsed in place. Any other layout accepted by
+ * {@code Duration.parse}, e.g. with days, signs or a comma, is left to it, so both give the same result for every
+ * value. The digit count of every component is bounded on the fast path, so the result can not overflow.
+ */
+final class SuccessFactorsDurationParser {
+  private static final int PREFIX_LENGTH = 2;
+  private static final int MAX_HOURS_DIGITS = 6;
+  private static final int MAX_MINUTES_DIGITS = 7;
+  private static final int MAX_SECONDS_DIGITS = 9;
+  private static final int MAX_FRACTION_DIGITS = 9;
+  private static final int MICROS_DIGITS = 6;
+  private static final long SECONDS_PER_HOUR = 3600L;
+  private static final long SECONDS_PER_MINUTE = 60L;
+  private static final long MICROS_PER_SECOND = 1_000_000L;
+  private static final long NANOS_PER_MICRO = 1000L;
+  private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10_000L, 100_000L, 1_000_000L};
+
+  private SuccessFactorsDurationParser() {
+  }
+
+  /**
+   * Parses the given ISO-8601 duration into microseconds, truncating any nanoseconds.
+   *
+   * @param value ISO-8601 duration
+   * @return microseconds
+   * @throws java.time.format.DateTimeParseException if the value is not a valid duration
+   * @throws ArithmeticException                     if the duration does not fit in nanoseconds
+   */
+  static long parseMicros(String value) {
+    int length = value.length();
+    if (length <= PREFIX_LENGTH + 1 || value.charAt(0) != 'P' || value.charAt(1) != 'T') {
+      return parseWithJdk(value);
+    }
+
+    long seconds = 0;
+    long micros = 0;
+    // 0: nothing parsed yet, 1: hours, 2: minutes, 3: seconds
+    int lastUnit = 0;
+    int index = PREFIX_LENGTH;
+    while (index < length) {
+      int start = index;
+      long number = 0;
+      while (index < length && isDigit(value.charAt(index))) {
+        number = number * 10 + (value.charAt(index++) - '0');
+      }
+      int digits = index - start;
+      if (digits == 0 || index == length) {
+        return parseWithJdk(value);
+      }
+
+      char unit = value.charAt(index++);
+      if (unit == 'H' && lastUnit < 1 && digits <= MAX_HOURS_DIGITS) {
+        seconds += number * SECONDS_PER_HOUR;
+        lastUnit = 1;
+      } else if (unit == 'M' && lastUnit < 2 && digits <= MAX_MINUTES_DIGITS) {
+        seconds += number * SECONDS_PER_MINUTE;
+        lastUnit = 2;
+      } else if (unit == 'S' && lastUnit < 3 && digits <= MAX_SECONDS_DIGITS) {
+        seconds += number;
+        lastUnit = 3;
+      } else if (unit == '.' && lastUnit < 3 && digits <= MAX_SECONDS_DIGITS) {
+        int fractionStart = index;
+        long fraction = 0;
+        while (index < length && isDigit(value.charAt(index))) {
+          fraction = fraction * 10 + (value.charAt(index++) - '0');
+        }
+        int fractionDigits = index - fractionStart;
+        if (fractionDigits > MAX_FRACTION_DIGITS || index == length || value.charAt(index++) != 'S') {
+          return parseWithJdk(value);
+        }
+        seconds += number;
+        micros = fractionDigits <= MICROS_DIGITS ? fraction * POWERS_OF_TEN[MICROS_DIGITS - fractionDigits]
+          : fraction / POWERS_OF_TEN[fractionDigits - MICROS_DIGITS];
+        lastUnit = 3;
+      } else {
+        return parseWithJdk(value);
+      }
+    }
+    return seconds * MICROS_PER_SECOND + micros;
+  }
+
+  private static long parseWithJdk(String value) {
+    return Duration.parse(value).toNanos() / NANOS_PER_MICRO;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
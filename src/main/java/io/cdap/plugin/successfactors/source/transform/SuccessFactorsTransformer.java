@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This {@code SuccessFactorsTransformer} transforms the SAP SuccessFactors OData v2 JSON entry into the
+ * {@code StructuredRecord} as per the given output {@code Schema}.
+ * <p>
+ * The output schema is compiled once into a decoder plan: every record schema becomes a flat array of field names
+ * and typed {@code ValueDecoder}, with the schema type, logical type, scale and precision resolved up front. Decoders
+ * produce the physical value expected by the {@code StructuredRecord}, so no schema type is looked up per record.
+ * <p>
+ * SuccessFactors JSON format specific handling:
+ * - Edm.DateTime and Edm.DateTimeOffset are sent as '/Date(milliseconds[+|-offset minutes])/', parsed in place by
+ * the {@code SuccessFactorsDateParser}
+ * - Edm.Time is sent as ISO-8601 duration e.g. 'PT10H30M15S', parsed in a single pass by the
+ * {@code SuccessFactorsDurationParser}
+ * - Edm.Int64, Edm.Decimal and Edm.Double are sent as string, Edm.Decimal is decoded by the
+ * {@code SuccessFactorsDecimalDecoder}
+ * - expanded 1 to * navigation properties are sent as an object holding the 'results' array
+ * - not expanded navigation properties are sent as an object holding the '__deferred' link
+ */
+public class SuccessFactorsTransformer {
+
+  private static final String RESULTS = "results";
+  private static final String DEFERRED = "__deferred";
+  private static final long MICROS_PER_MILLI = 1000L;
+
+  private final RecordDecoder recordDecoder;
+
+  public SuccessFactorsTransformer(Schema schema) {
+    this.recordDecoder = new RecordDecoder(schema);
+  }
+
+  /**
+   * Transforms the given SuccessFactors JSON entry into the {@code StructuredRecord}.
+   *
+   * @param entry SuccessFactors JSON entry from the 'results' array
+   * @return {@code StructuredRecord}
+   * @throws UnexpectedFormatException if any field value does not match with the respective schema type
+   */
+  public StructuredRecord transform(JsonNode entry) {
+    return recordDecoder.decode(entry);
+  }
+
+  /**
+   * Compiles the decoder for the given field schema.
+   *
+   * @param fieldSchema field schema
+   * @return {@code ValueDecoder} producing the physical value of the field
+   */
+  private static ValueDecoder compileValueDecoder(Schema fieldSchema) {
+    Schema nonNullSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+    Schema.LogicalType logicalType = nonNullSchema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DECIMAL:
+          int precision = nonNullSchema.getPrecision();
+          int scale = nonNullSchema.getScale();
+          return value -> SuccessFactorsDecimalDecoder.decode(value.asText(), precision, scale);
+        case DATETIME:
+          return value -> SuccessFactorsDateParser.formatDateTime(
+            SuccessFactorsDateParser.parseDateTime(value.asText()));
+        case TIMESTAMP_MICROS:
+          return value -> Math.multiplyExact(SuccessFactorsDateParser.parseEpochMillis(value.asText()),
+                                             MICROS_PER_MILLI);
+        case TIME_MICROS:
+          return value -> SuccessFactorsDurationParser.parseMicros(value.asText());
+        default:
+          return JsonNode::asText;
+      }
+    }
+
+    switch (nonNullSchema.getType()) {
+      case BOOLEAN:
+        return value -> value.isBoolean() ? value.booleanValue() : Boolean.parseBoolean(value.asText());
+      case INT:
+        return value -> Integer.parseInt(value.asText());
+      case LONG:
+        return value -> Long.parseLong(value.asText());
+      case FLOAT:
+        return value -> Float.parseFloat(value.asText());
+      case DOUBLE:
+        return value -> Double.parseDouble(value.asText());
+      case BYTES:
+        // Edm.Byte is sent as number and Edm.Binary as base64 encoded string
+        return value -> value.isNumber() ? new byte[]{(byte) value.intValue()}
+          : Base64.getDecoder().decode(value.asText());
+      case RECORD:
+        RecordDecoder nestedDecoder = new RecordDecoder(nonNullSchema);
+        // not expanded navigation property
+        return value -> value.has(DEFERRED) ? null : nestedDecoder.decode(value);
+      case ARRAY:
+        Schema componentSchema = nonNullSchema.getComponentSchema();
+        return new RecordListDecoder(new RecordDecoder(componentSchema.isNullable() ? componentSchema.getNonNullable()
+                                                         : componentSchema));
+      default:
+        return JsonNode::asText;
+    }
+  }
+
+  /**
+   * Decodes a non null JSON value into the physical value of the field.
+   */
+  @FunctionalInterface
+  private interface ValueDecoder {
+    Object decode(JsonNode value);
+  }
+
+  /**
+   * Compiled decoder of one record schema. Every schema field is looked up by its name in the JSON entry and any
+   * JSON property which is not part of the schema (e.g. '__metadata') is ignored.
+   * <p>
+   * The {@code StructuredRecord.Builder} only accepts values by field name and keeps them in a map keyed by name, so
+   * one lookup per set value can not be avoided. The plan holds the schema field name instances, whose hash is cached,
+   * and a null value of a nullable field is not set at all, as the builder leaves the missing fields null.
+   */
+  private static final class RecordDecoder {
+    private final Schema recordSchema;
+    private final String[] fieldNames;
+    private final boolean[] nullableFields;
+    private final ValueDecoder[] valueDecoders;
+
+    private RecordDecoder(Schema recordSchema) {
+      List<Schema.Field> fields = recordSchema.getFields();
+      this.recordSchema = recordSchema;
+      this.fieldNames = new String[fields.size()];
+      this.nullableFields = new boolean[fields.size()];
+      this.valueDecoders = new ValueDecoder[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[i] = fields.get(i).getName();
+        nullableFields[i] = fields.get(i).getSchema().isNullable();
+        valueDecoders[i] = compileValueDecoder(fields.get(i).getSchema());
+      }
+    }
+
+    private StructuredRecord decode(JsonNode entry) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(recordSchema);
+      for (int i = 0; i < fieldNames.length; i++) {
+        JsonNode value = entry.get(fieldNames[i]);
+        boolean nullValue = value == null || value.isNull();
+        if (nullValue && nullableFields[i]) {
+          continue;
+        }
+        try {
+          builder.set(fieldNames[i], nullValue ? null : valueDecoders[i].decode(value));
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+          throw new UnexpectedFormatException(
+            ResourceConstants.ERR_RECORD_PROCESSING.getMsgForKey(fieldNames[i], e.getMessage()), e);
+        }
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Compiled decoder of the expanded 1 to * navigation property, the JSON value is either an array or an object
+   * holding the 'results' array.
+   */
+  private static final class RecordListDecoder implements ValueDecoder {
+    private final RecordDecoder recordDecoder;
+
+    private RecordListDecoder(RecordDecoder recordDecoder) {
+      this.recordDecoder = recordDecoder;
+    }
+
+    @Override
+    public List<StructuredRecord> decode(JsonNode value) {
+      JsonNode items = value.isArray() ? value : value.get(RESULTS);
+      if (items == null || !items.isArray()) {
+        return Collections.emptyList();
+      }
+
+      List<StructuredRecord> records = new ArrayList<>(items.size());
+      for (JsonNode item : items) {
+        records.add(recordDecoder.decode(item));
+      }
+      return records;
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This {@code SuccessFactorsAsyncCall} makes one call asynchronously through the dispatcher of the http client, with
+ * subsequent retries as per the {@code SuccessFactorsRetryPolicy}. No thread is held while the call waits for its
+ * turn in the dispatcher or for its next attempt, the retries are scheduled on a shared timer thread. In case of a
+ * request budget, the http client takes the concurrent request slot and the token of an attempt once the dispatcher
+ * starts it, and fails it with a {@code RequestBudgetException} while none is available. Such an attempt is not
+ * counted and is scheduled again on the timer thread, so the dispatcher threads never wait for the request budget and
+ * a call queued in the dispatcher holds none of it.
+ * <p>
+ * Cancelling the returned future cancels the attempt in progress or the scheduled one, a response arriving after the
+ * future is complete is closed right away.
+ */
+class SuccessFactorsAsyncCall implements Callback {
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsAsyncCall.class);
+  private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("successfactors-retry-scheduler-%d").build());
+
+  private final URL endpoint;
+  private final OkHttpClient client;
+  private final Request request;
+  private final SuccessFactorsRetryPolicy retryPolicy;
+  private final CompletableFuture<Response> result = new CompletableFuture<>();
+  private long startNanos;
+  private int attemptNumber;
+  private long previousWaitMillis;
+  private volatile Call call;
+  private volatile Future<?> scheduledAttempt;
+
+  /**
+   * @param endpoint    called URL, used for logging purpose
+   * @param client      {@code OkHttpClient} dispatching the call
+   * @param request     {@code Request}
+   * @param retryPolicy {@code SuccessFactorsRetryPolicy} of the call
+   */
+  SuccessFactorsAsyncCall(URL endpoint, OkHttpClient client, Request request, SuccessFactorsRetryPolicy retryPolicy) {
+    this.endpoint = endpoint;
+    this.client = client;
+    this.request = request;
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Sends the first attempt of the call.
+   *
+   * @return future completed with the response of the last attempt, or exceptionally with an {@code IOException} if
+   * the call failed or all retries failed. The caller must close the response.
+   */
+  CompletableFuture<Response> start() {
+    result.whenComplete((response, failure) -> {
+      if (result.isCancelled()) {
+        cancel();
+      }
+    });
+    startNanos = System.nanoTime();
+    attempt();
+    return result;
+  }
+
+  private void attempt() {
+    if (result.isDone()) {
+      return;
+    }
+    attemptNumber++;
+    Call attemptCall = client.newCall(request);
+    call = attemptCall;
+    attemptCall.enqueue(this);
+    // cancelled in between, the callback fails the attempt right away. A call completed meanwhile is not cancelled, as
+    // its connection may already serve another call.
+    if (result.isCancelled()) {
+      attemptCall.cancel();
+    }
+  }
+
+  @Override
+  public void onFailure(Call failedCall, IOException e) {
+    if (!(e instanceof RequestBudgetException) || result.isDone()) {
+      result.completeExceptionally(e);
+      return;
+    }
+    // the attempt was not sent
+    attemptNumber--;
+    scheduleAttempt(((RequestBudgetException) e).getRetryIntervalMillis());
+  }
+
+  @Override
+  public void onResponse(Call respondedCall, Response response) {
+    if (result.isDone()) {
+      response.close();
+      return;
+    }
+    if (!retryPolicy.isRetryable(response)) {
+      if (!result.complete(response)) {
+        response.close();
+      }
+      return;
+    }
+
+    // release the connection of the failed attempt, the status and headers are still readable
+    response.close();
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    long waitMillis = retryPolicy.retryWaitMillis(attemptNumber, elapsedMillis, previousWaitMillis, response);
+    if (waitMillis < 0) {
+      LOG.error("Data Recovery failed for URL {}.", endpoint);
+      result.completeExceptionally(new IOException(ResourceConstants.ERR_MAX_RETRY.getMsgForKey(attemptNumber)));
+      return;
+    }
+    previousWaitMillis = waitMillis;
+    scheduleAttempt(waitMillis);
+  }
+
+  private void scheduleAttempt(long waitMillis) {
+    scheduledAttempt = RETRY_SCHEDULER.schedule(this::attempt, waitMillis, TimeUnit.MILLISECONDS);
+    // cancelled in between, the cancel may have missed the scheduled attempt
+    if (result.isDone()) {
+      scheduledAttempt.cancel(false);
+    }
+  }
+
+  private void cancel() {
+    Future<?> pendingAttempt = scheduledAttempt;
+    if (pendingAttempt != null) {
+      pendingAttempt.cancel(false);
+    }
+    Call currentCall = call;
+    if (currentCall != null) {
+      currentCall.cancel();
+    }
+  }
+
+  /**
+   * Failure of an attempt started while the request budget was exhausted, the attempt is tried again after the given
+   * wait.
+   */
+  static final class RequestBudgetException extends IOException {
+    private final long retryIntervalMillis;
+
+    RequestBudgetException(long retryIntervalMillis) {
+      super("No request budget available.");
+      this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    long getRetryIntervalMillis() {
+      return retryIntervalMillis;
+    }
+  }
+}
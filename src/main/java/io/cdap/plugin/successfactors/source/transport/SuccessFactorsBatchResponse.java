@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsBatchResponse} reads the parts of a '$batch' multipart response one by one while they
+ * arrive, in the order of the batched requests. Every part is an embedded HTTP response, which is handed over as a
+ * {@code SuccessFactorsResponseContainer}. Only the part being handed over is buffered, the following parts stay in
+ * the response stream until they are asked for. A part larger than the spill threshold is buffered in a temporary
+ * file, see {@code SuccessFactorsResponseBuffer}.
+ * <p>
+ * In case the '$batch' request itself failed, every part is the error response of the '$batch' request.
+ */
+public class SuccessFactorsBatchResponse implements Closeable {
+  private static final String HTTP_STATUS_PREFIX = "HTTP/";
+  private static final String CONTENT_TYPE = "Content-Type";
+  private static final String MULTIPART = "multipart";
+  private static final String BOUNDARY = "boundary";
+  // bytes requested from the response stream at a time while looking for the next delimiter
+  private static final long SCAN_SIZE = 8192;
+
+  private final Response response;
+  private final int partCount;
+  private final long spillThreshold;
+  @Nullable
+  private final SuccessFactorsResponseContainer batchError;
+  @Nullable
+  private final ByteString delimiter;
+  private int partIndex;
+  private boolean lastPartRead;
+
+  /**
+   * @param response   '$batch' response
+   * @param partCount  number of batched requests
+   * @param batchError response container of the failed '$batch' request, null if it succeeded
+   * @throws IOException if the successful response is not a multipart response
+   */
+  SuccessFactorsBatchResponse(Response response, int partCount, @Nullable SuccessFactorsResponseContainer batchError)
+    throws IOException {
+
+    this(response, partCount, batchError, SuccessFactorsResponseBuffer.DEFAULT_SPILL_THRESHOLD);
+  }
+
+  /**
+   * @param response       '$batch' response
+   * @param partCount      number of batched requests
+   * @param batchError     response container of the failed '$batch' request, null if it succeeded
+   * @param spillThreshold highest part size kept on heap
+   * @throws IOException if the successful response is not a multipart response
+   */
+  SuccessFactorsBatchResponse(Response response, int partCount, @Nullable SuccessFactorsResponseContainer batchError,
+                              long spillThreshold) throws IOException {
+
+    this.response = response;
+    this.partCount = partCount;
+    this.spillThreshold = spillThreshold;
+    this.batchError = batchError;
+    if (batchError != null) {
+      this.delimiter = null;
+      return;
+    }
+
+    ResponseBody body = response.body();
+    MediaType contentType = body == null ? null : body.contentType();
+    String boundary = contentType == null ? null : contentType.parameter(BOUNDARY);
+    if (boundary == null || !MULTIPART.equalsIgnoreCase(contentType.type())) {
+      throw new IOException(String.format("Invalid '$batch' response content type '%s'.", contentType));
+    }
+    this.delimiter = ByteString.encodeUtf8("--" + boundary);
+
+    // the preamble before the first delimiter is ignored
+    BufferedSource source = body.source();
+    long index = source.indexOf(delimiter);
+    if (index == -1) {
+      throw new IOException("No part found in the '$batch' response.");
+    }
+    source.skip(index + delimiter.size());
+    lastPartRead = isCloseDelimiter(source);
+  }
+
+  /**
+   * Returns the number of batched requests.
+   *
+   * @return number of parts
+   */
+  public int getPartCount() {
+    return partCount;
+  }
+
+  /**
+   * Checks if the '$batch' request failed as a whole, every part is then the response of the '$batch' request.
+   *
+   * @return true if the '$batch' request failed
+   */
+  public boolean hasBatchError() {
+    return batchError != null;
+  }
+
+  /**
+   * Reads the next part of the response.
+   *
+   * @return {@code SuccessFactorsResponseContainer} of the next part, holding the buffered body of the part, must be
+   * closed by the caller
+   * @throws IOException if all the parts are already read or any error while reading the response stream
+   */
+  public synchronized SuccessFactorsResponseContainer nextPart() throws IOException {
+    if (partIndex >= partCount) {
+      throw new IOException(String.format("All the %d parts of the '$batch' response are read.", partCount));
+    }
+    partIndex++;
+    if (batchError != null) {
+      return batchError;
+    }
+    if (lastPartRead) {
+      throw new IOException(String.format("'$batch' response holds fewer parts than the %d requests.", partCount));
+    }
+
+    BufferedSource source = response.body().source();
+    // part headers e.g. 'Content-Type: application/http', up to the blank line
+    Map<String, String> partHeaders = readHeaders(source);
+    String partContentType = partHeaders.get(CONTENT_TYPE);
+    if (partContentType != null && partContentType.regionMatches(true, 0, MULTIPART, 0, MULTIPART.length())) {
+      throw new IOException("Change sets are not supported in the '$batch' response.");
+    }
+
+    String statusLine = source.readUtf8LineStrict();
+    if (!statusLine.startsWith(HTTP_STATUS_PREFIX)) {
+      throw new IOException(String.format("Invalid '$batch' part status line '%s'.", statusLine));
+    }
+    String[] status = statusLine.split(" ", 3);
+    int statusCode = Integer.parseInt(status[1]);
+    String statusMessage = status.length > 2 ? status[2] : "";
+    Map<String, String> headers = readHeaders(source);
+
+    SuccessFactorsResponseBuffer partBody = readPartBody(source);
+    String dataServiceVersion = headers.get(SuccessFactorsTransporter.SERVICE_VERSION);
+    return SuccessFactorsResponseContainer.builder()
+      .httpStatusCode(statusCode)
+      .httpStatusMsg(statusMessage)
+      .dataServiceVersion(dataServiceVersion != null ? dataServiceVersion :
+                            response.header(SuccessFactorsTransporter.SERVICE_VERSION))
+      .responseBuffer(statusCode == HttpURLConnection.HTTP_NO_CONTENT ? null : partBody)
+      .eTag(headers.get(SuccessFactorsTransporter.ETAG))
+      .build();
+  }
+
+  @Override
+  public synchronized void close() {
+    response.close();
+  }
+
+  /**
+   * Reads the header lines up to the blank line.
+   *
+   * @param source response stream
+   * @return header values by case insensitive header name
+   * @throws IOException any error while reading the response stream
+   */
+  private static Map<String, String> readHeaders(BufferedSource source) throws IOException {
+    Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    String line;
+    while (!(line = source.readUtf8LineStrict()).isEmpty()) {
+      int separator = line.indexOf(':');
+      if (separator > 0) {
+        headers.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+      }
+    }
+    return headers;
+  }
+
+  /**
+   * Reads the rest of the delimiter line and checks if it is the close delimiter, i.e. '--boundary--'.
+   *
+   * @param source response stream positioned right after the delimiter
+   * @return true if there is no more part
+   * @throws IOException any error while reading the response stream
+   */
+  private static boolean isCloseDelimiter(BufferedSource source) throws IOException {
+    if (source.exhausted()) {
+      return true;
+    }
+    String rest = source.readUtf8Line();
+    return rest != null && rest.startsWith("--");
+  }
+
+  /**
+   * Reads the body of the current part up to the next delimiter. The body is moved to the response buffer while it
+   * arrives, only the tail which may hold the start of the delimiter is kept in the stream buffer.
+   *
+   * @param source response stream positioned at the start of the part body
+   * @return {@code SuccessFactorsResponseBuffer} of the part body
+   * @throws IOException if the part is not terminated or any error while reading the response stream
+   */
+  private SuccessFactorsResponseBuffer readPartBody(BufferedSource source) throws IOException {
+    Buffer buffer = source.getBuffer();
+    // the line break preceding the delimiter belongs to the delimiter
+    long tailSize = delimiter.size() + 2;
+    try (SuccessFactorsResponseBuffer.Writer writer = new SuccessFactorsResponseBuffer.Writer(spillThreshold)) {
+      while (true) {
+        long index = buffer.indexOf(delimiter);
+        if (index != -1) {
+          long length = index;
+          if (length > 0 && buffer.getByte(length - 1) == '\n') {
+            length--;
+            if (length > 0 && buffer.getByte(length - 1) == '\r') {
+              length--;
+            }
+          }
+          writer.write(buffer, length);
+          buffer.skip(index - length + delimiter.size());
+          lastPartRead = isCloseDelimiter(source);
+          return writer.finish();
+        }
+
+        if (buffer.size() > tailSize) {
+          writer.write(buffer, buffer.size() - tailSize);
+        }
+        if (!source.request(buffer.size() + SCAN_SIZE) && buffer.indexOf(delimiter) == -1) {
+          throw new IOException("Unterminated part in the '$batch' response.");
+        }
+      }
+    }
+  }
+}
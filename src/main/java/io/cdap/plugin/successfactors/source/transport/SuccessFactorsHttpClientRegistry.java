@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This {@code SuccessFactorsHttpClientRegistry} holds the JVM wide {@code OkHttpClient} instances used to call the
+ * SAP SuccessFactors services.
+ * <p>
+ * One client is kept per base URL (scheme, host and port) and timeout settings. All the clients are derived from the
+ * same root client, so they share one connection pool: keep-alive connections and TLS sessions are reused across the
+ * pages, the splits running in the same JVM and the design time calls.
+ * <p>
+ * The asynchronous calls are queued by a dispatcher per base URL and in-flight limit, which sends no more than that
+ * many requests at the same time and keeps the other calls waiting without holding any thread.
+ */
+public final class SuccessFactorsHttpClientRegistry {
+  private static final int MAX_IDLE_CONNECTIONS = 16;
+  private static final long KEEP_ALIVE_DURATION = 5;
+  private static final OkHttpClient ROOT_CLIENT = new OkHttpClient.Builder()
+    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION, TimeUnit.MINUTES))
+    .build();
+  private static final long DISPATCHER_KEEP_ALIVE_SECONDS = 60;
+  private static final ConcurrentMap<String, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, OkHttpClient> ASYNC_CLIENTS = new ConcurrentHashMap<>();
+
+  private SuccessFactorsHttpClientRegistry() {
+  }
+
+  /**
+   * Returns the shared {@code OkHttpClient} for the base URL of the given endpoint and the given timeouts.
+   *
+   * @param endpoint       SuccessFactors URL
+   * @param connectTimeout connection timeout in seconds
+   * @param readTimeout    read timeout in seconds
+   * @param writeTimeout   write timeout in seconds
+   * @return {@code OkHttpClient}
+   */
+  public static OkHttpClient getClient(URL endpoint, long connectTimeout, long readTimeout, long writeTimeout) {
+    String key = getClientKey(endpoint, connectTimeout, readTimeout, writeTimeout);
+
+    return CLIENTS.computeIfAbsent(key, k -> ROOT_CLIENT.newBuilder()
+      .connectTimeout(connectTimeout, TimeUnit.SECONDS)
+      .readTimeout(readTimeout, TimeUnit.SECONDS)
+      .writeTimeout(writeTimeout, TimeUnit.SECONDS)
+      .build());
+  }
+
+  /**
+   * Returns the shared {@code OkHttpClient} for the asynchronous calls to the base URL of the given endpoint, sending
+   * no more than the given number of requests at the same time.
+   *
+   * @param endpoint            SuccessFactors URL
+   * @param connectTimeout      connection timeout in seconds
+   * @param readTimeout         read timeout in seconds
+   * @param writeTimeout        write timeout in seconds
+   * @param maxInFlightRequests maximum number of requests sent at the same time
+   * @return {@code OkHttpClient}
+   */
+  public static OkHttpClient getAsyncClient(URL endpoint, long connectTimeout, long readTimeout, long writeTimeout,
+                                            int maxInFlightRequests) {
+    String key = getClientKey(endpoint, connectTimeout, readTimeout, writeTimeout) + "|" + maxInFlightRequests;
+
+    return ASYNC_CLIENTS.computeIfAbsent(key, k -> {
+      // daemon threads, so a pending call never holds the JVM
+      Dispatcher dispatcher = new Dispatcher(new ThreadPoolExecutor(
+        0, Integer.MAX_VALUE, DISPATCHER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("successfactors-dispatcher-%d").build()));
+      dispatcher.setMaxRequests(maxInFlightRequests);
+      dispatcher.setMaxRequestsPerHost(maxInFlightRequests);
+      return getClient(endpoint, connectTimeout, readTimeout, writeTimeout).newBuilder()
+        .dispatcher(dispatcher)
+        .build();
+    });
+  }
+
+  private static String getClientKey(URL endpoint, long connectTimeout, long readTimeout, long writeTimeout) {
+    int port = endpoint.getPort() == -1 ? endpoint.getDefaultPort() : endpoint.getPort();
+    return String.format("%s://%s:%d|%d|%d|%d", endpoint.getProtocol(), endpoint.getHost(), port,
+                         connectTimeout, readTimeout, writeTimeout);
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsRateLimiter} holds the JVM wide request budget of one base URL (scheme, host and port).
+ * <p>
+ * The configured requests per second and max concurrent requests are split across the splits at planning time, every
+ * split running in the JVM takes a {@code Lease} of its share. The budget of the JVM is the highest sum of the shares
+ * held at the same time and is only released once no split is running anymore, so the share of a finished split goes
+ * to the splits still running in the same JVM instead of being left unused. The concurrent request slots of the JVM
+ * are the sum of the concurrency shares rounded down, at least one so that a split always makes progress.
+ * <p>
+ * The active leases share the budget of the JVM: the requests of all the leases wait for the tokens of the one shared
+ * {@code RateLimiter}, and every lease holds at most its fair share of the concurrent request slots, the slots of the
+ * JVM divided by the number of active leases and rounded up, recomputed whenever a lease is taken or closed, so a
+ * split can not starve the others.
+ * <p>
+ * A slot is held until the response is closed. The blocking {@code acquire} serves the calls made by the caller thread,
+ * the asynchronous calls use {@code tryAcquire} instead, which takes the slot and the token without waiting or gives
+ * up right away, so they count against the same budget without blocking the dispatcher threads.
+ */
+public final class SuccessFactorsRateLimiter {
+  // wait in milliseconds before trying again to take a concurrent request slot
+  private static final long SLOT_RETRY_INTERVAL = 10;
+  private static final ConcurrentMap<String, SuccessFactorsRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+  private final RateLimiter rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+  private final Set<Lease> activeLeases = new HashSet<>();
+  private double activeRequestsPerSecond;
+  private double activeConcurrency;
+  private double requestsPerSecond;
+  private double maxConcurrency;
+  private int concurrencyLeases;
+  private int inFlightRequests;
+
+  private SuccessFactorsRateLimiter() {
+  }
+
+  /**
+   * Takes the lease of the given share of the request budget of the given base URL.
+   *
+   * @param baseURL           SuccessFactors base URL
+   * @param requestsPerSecond requests per second share of the split, 0 for no rate limit
+   * @param maxConcurrency    concurrent requests share of the split, 0 for no concurrency limit
+   * @return {@code Lease} to be closed once the split is read
+   */
+  public static Lease acquireLease(URL baseURL, double requestsPerSecond, double maxConcurrency) {
+    return getLimiter(baseURL).register(Math.max(0, requestsPerSecond), Math.max(0, maxConcurrency));
+  }
+
+  static SuccessFactorsRateLimiter getLimiter(URL baseURL) {
+    int port = baseURL.getPort() == -1 ? baseURL.getDefaultPort() : baseURL.getPort();
+    String key = String.format("%s://%s:%d", baseURL.getProtocol(), baseURL.getHost(), port);
+    return LIMITERS.computeIfAbsent(key, k -> new SuccessFactorsRateLimiter());
+  }
+
+  synchronized double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  /**
+   * @return number of concurrent request slots of the JVM, 0 for no concurrency limit
+   */
+  synchronized int getMaxConcurrentRequests() {
+    if (maxConcurrency <= 0) {
+      return 0;
+    }
+    // tolerates the rounding errors of the shares, e.g. 3 shares of 1 / 3
+    return Math.max(1, (int) Math.floor(maxConcurrency + 1e-9));
+  }
+
+  /**
+   * @return number of concurrent request slots one lease may hold, 0 for no concurrency limit
+   */
+  synchronized int getLeaseConcurrentRequests() {
+    int slots = getMaxConcurrentRequests();
+    if (slots == 0 || concurrencyLeases == 0) {
+      return slots;
+    }
+    return (slots + concurrencyLeases - 1) / concurrencyLeases;
+  }
+
+  private synchronized Lease register(double leaseRequestsPerSecond, double leaseConcurrency) {
+    Lease lease = new Lease(leaseRequestsPerSecond, leaseConcurrency);
+    activeLeases.add(lease);
+    activeRequestsPerSecond += leaseRequestsPerSecond;
+    activeConcurrency += leaseConcurrency;
+    if (leaseConcurrency > 0) {
+      concurrencyLeases++;
+    }
+    if (activeRequestsPerSecond > requestsPerSecond) {
+      requestsPerSecond = activeRequestsPerSecond;
+      rateLimiter.setRate(requestsPerSecond);
+    }
+    maxConcurrency = Math.max(maxConcurrency, activeConcurrency);
+    // the share of every lease changed
+    notifyAll();
+    return lease;
+  }
+
+  private synchronized void unregister(Lease lease) {
+    activeLeases.remove(lease);
+    activeRequestsPerSecond -= lease.requestsPerSecond;
+    activeConcurrency -= lease.maxConcurrency;
+    if (lease.maxConcurrency > 0) {
+      concurrencyLeases--;
+    }
+    if (activeLeases.isEmpty()) {
+      // no split is running anymore, the next ones start over with their own shares
+      activeRequestsPerSecond = 0;
+      activeConcurrency = 0;
+      requestsPerSecond = 0;
+      maxConcurrency = 0;
+    }
+    notifyAll();
+  }
+
+  private synchronized void acquireSlot(Lease lease) throws InterruptedIOException {
+    try {
+      while (inFlightRequests >= getMaxConcurrentRequests()
+        || lease.inFlightRequests >= getLeaseConcurrentRequests()) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a concurrent request slot.");
+    }
+    inFlightRequests++;
+    lease.inFlightRequests++;
+  }
+
+  private synchronized boolean tryAcquireSlot(Lease lease) {
+    if (inFlightRequests >= getMaxConcurrentRequests() || lease.inFlightRequests >= getLeaseConcurrentRequests()) {
+      return false;
+    }
+    inFlightRequests++;
+    lease.inFlightRequests++;
+    return true;
+  }
+
+  private synchronized void releaseSlot(Lease lease) {
+    inFlightRequests--;
+    lease.inFlightRequests--;
+    notifyAll();
+  }
+
+  /**
+   * Share of the request budget held by one split.
+   */
+  public final class Lease implements Closeable {
+    private final double requestsPerSecond;
+    private final double maxConcurrency;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // guarded by the limiter
+    private int inFlightRequests;
+
+    private Lease(double requestsPerSecond, double maxConcurrency) {
+      this.requestsPerSecond = requestsPerSecond;
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Waits until the next request is allowed as per the budget of the JVM and the share of the lease.
+     *
+     * @return {@code Permit} to be closed once the response is closed
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public Permit acquire() throws InterruptedIOException {
+      if (requestsPerSecond > 0) {
+        rateLimiter.acquire();
+      }
+      if (maxConcurrency > 0) {
+        acquireSlot(this);
+        return new Permit(this);
+      }
+      return new Permit(null);
+    }
+
+    /**
+     * Takes a concurrent request slot and a token of the request rate without waiting. The slot is given back if no
+     * token is available.
+     *
+     * @return {@code Permit} to be closed once the response is closed, null if the request must be tried again later
+     */
+    @Nullable
+    public Permit tryAcquire() {
+      if (maxConcurrency > 0 && !tryAcquireSlot(this)) {
+        return null;
+      }
+      Permit permit = new Permit(maxConcurrency > 0 ? this : null);
+      if (requestsPerSecond > 0 && !rateLimiter.tryAcquire()) {
+        permit.close();
+        return null;
+      }
+      return permit;
+    }
+
+    /**
+     * @return wait in milliseconds before trying again once {@code tryAcquire} failed, the time between two tokens
+     * of the request rate or a short wait for a concurrent request slot
+     */
+    public long getRetryIntervalMillis() {
+      double rate = getRequestsPerSecond();
+      return rate <= 0 ? SLOT_RETRY_INTERVAL : Math.max(1, (long) Math.ceil(1000 / rate));
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        unregister(this);
+      }
+    }
+  }
+
+  /**
+   * Concurrent request slot held by one request.
+   */
+  public final class Permit implements Closeable {
+    private final Lease lease;
+    private final AtomicBoolean released;
+
+    private Permit(Lease lease) {
+      this.lease = lease;
+      this.released = new AtomicBoolean(lease == null);
+    }
+
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        releaseSlot(lease);
+      }
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsResponseBuffer} holds a buffered response body. A body up to the spill threshold is kept
+ * on heap, a larger one is spilled to a temporary file while it is received and read back through memory-mapped
+ * buffers, so an oversized response, e.g. a page with a deep '$expand', does not need the executor memory.
+ * <p>
+ * The body can be read any number of times, every stream reads straight from the heap bytes or the mapped file
+ * without any intermediate copy. The temporary file is deleted on close.
+ */
+public class SuccessFactorsResponseBuffer implements Closeable {
+  public static final long DEFAULT_SPILL_THRESHOLD = 16L * 1024 * 1024;
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsResponseBuffer.class);
+  private static final String SPILL_FILE_PREFIX = "successfactors-response-";
+  private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  @Nullable
+  private final byte[] bytes;
+  @Nullable
+  private final Path spillFile;
+  private final List<ByteBuffer> segments;
+  private final long size;
+
+  private SuccessFactorsResponseBuffer(byte[] bytes) {
+    this.bytes = bytes;
+    this.spillFile = null;
+    this.segments = Collections.emptyList();
+    this.size = bytes.length;
+  }
+
+  private SuccessFactorsResponseBuffer(Path spillFile, List<ByteBuffer> segments, long size) {
+    this.bytes = null;
+    this.spillFile = spillFile;
+    this.segments = segments;
+    this.size = size;
+  }
+
+  /**
+   * Reads the given source up to its end.
+   *
+   * @param source         response body
+   * @param spillThreshold highest size kept on heap
+   * @return {@code SuccessFactorsResponseBuffer}
+   * @throws IOException any error while reading the source or writing the spill file
+   */
+  public static SuccessFactorsResponseBuffer readFully(BufferedSource source, long spillThreshold)
+    throws IOException {
+
+    try (Writer writer = new Writer(spillThreshold)) {
+      Buffer buffer = source.getBuffer();
+      while (source.request(1)) {
+        writer.write(buffer, buffer.size());
+      }
+      return writer.finish();
+    }
+  }
+
+  /**
+   * Returns the size of the body.
+   *
+   * @return size in bytes
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns true if the body is spilled to a temporary file.
+   *
+   * @return true if the body is not on heap
+   */
+  public boolean isSpilled() {
+    return spillFile != null;
+  }
+
+  @Nullable
+  Path getSpillFile() {
+    return spillFile;
+  }
+
+  /**
+   * Returns a new stream reading the body from its start.
+   *
+   * @return {@code InputStream}
+   */
+  public InputStream getInputStream() {
+    if (bytes != null) {
+      return new ByteArrayInputStream(bytes);
+    }
+    return new MappedInputStream(segments);
+  }
+
+  @Override
+  public void close() {
+    if (spillFile != null) {
+      deleteSpillFile(spillFile);
+    }
+  }
+
+  private static void deleteSpillFile(Path spillFile) {
+    try {
+      Files.deleteIfExists(spillFile);
+    } catch (IOException e) {
+      // e.g. the file is still mapped on some platforms
+      LOG.debug("Failed to delete the response spill file {}.", spillFile, e);
+      spillFile.toFile().deleteOnExit();
+    }
+  }
+
+  /**
+   * Writes a body while it is received, on heap up to the spill threshold and to a temporary file beyond it. Closing
+   * an unfinished writer discards the written body.
+   */
+  static class Writer implements Closeable {
+    private final long spillThreshold;
+    private final Buffer heap = new Buffer();
+    private Path spillFile;
+    private OutputStream spillStream;
+    private long size;
+    private boolean finished;
+
+    Writer(long spillThreshold) {
+      this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Moves the given number of bytes from the given buffer.
+     *
+     * @param source    buffer holding the received bytes
+     * @param byteCount number of bytes to move
+     * @throws IOException any error while writing the spill file
+     */
+    void write(Buffer source, long byteCount) throws IOException {
+      size += byteCount;
+      if (spillStream != null) {
+        source.writeTo(spillStream, byteCount);
+        return;
+      }
+
+      heap.write(source, byteCount);
+      if (heap.size() > spillThreshold) {
+        spillFile = Files.createTempFile(SPILL_FILE_PREFIX, ".tmp");
+        spillStream = Files.newOutputStream(spillFile);
+        heap.writeTo(spillStream, heap.size());
+      }
+    }
+
+    /**
+     * Completes the body.
+     *
+     * @return {@code SuccessFactorsResponseBuffer} of the written body
+     * @throws IOException any error while writing or mapping the spill file
+     */
+    SuccessFactorsResponseBuffer finish() throws IOException {
+      if (spillStream == null) {
+        finished = true;
+        return new SuccessFactorsResponseBuffer(heap.readByteArray());
+      }
+
+      spillStream.close();
+      List<ByteBuffer> segments = new ArrayList<>();
+      // the mappings stay valid once the channel is closed
+      try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+        for (long position = 0; position < size; position += MAX_SEGMENT_SIZE) {
+          segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_SEGMENT_SIZE,
+                                                                                      size - position)));
+        }
+      }
+      finished = true;
+      return new SuccessFactorsResponseBuffer(spillFile, segments, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+      heap.clear();
+      if (finished || spillStream == null) {
+        return;
+      }
+      try {
+        spillStream.close();
+      } finally {
+        deleteSpillFile(spillFile);
+      }
+    }
+  }
+
+  /**
+   * Stream reading the mapped segments of a spilled body in order.
+   */
+  private static class MappedInputStream extends InputStream {
+    private final List<ByteBuffer> segments;
+    private int segmentIndex;
+    private ByteBuffer segment;
+
+    private MappedInputStream(List<ByteBuffer> segments) {
+      this.segments = segments;
+    }
+
+    @Override
+    public int read() {
+      ByteBuffer current = currentSegment();
+      return current == null ? -1 : current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      ByteBuffer current = currentSegment();
+      if (current == null) {
+        return -1;
+      }
+      int read = Math.min(len, current.remaining());
+      current.get(b, off, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      ByteBuffer current = currentSegment();
+      return current == null ? 0 : current.remaining();
+    }
+
+    @Nullable
+    private ByteBuffer currentSegment() {
+      while (segment == null || !segment.hasRemaining()) {
+        if (segmentIndex >= segments.size()) {
+          return null;
+        }
+        // every stream reads its own view of the shared mapping
+        segment = segments.get(segmentIndex++).duplicate();
+      }
+      return segment;
+    }
+  }
+}
@@ -16,7 +16,11 @@
 
 package io.cdap.plugin.successfactors.source.transport;
 
+import okio.Okio;
+
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
 import javax.annotation.Nullable;
 
@@ -27,9 +31,15 @@ import javax.annotation.Nullable;
  * - HTTP STATUS CODE,
  * - HTTP STATUS MESSAGE &
  * - SAP SuccessFactors service version number
+ * <p>
+ * The response body is either held as bytes, as a {@code SuccessFactorsResponseBuffer} possibly spilled to disk or,
+ * for the streamed data calls, as the live HTTP body stream. A live stream can be read only once and must be closed
+ * to release the underlying connection, a response buffer must be closed to delete its spill file.
+ * <p>
+ * The 'ETag' header is kept for the metadata calls, it is used to revalidate the cached metadata.
  */
 
-public class SuccessFactorsResponseContainer {
+public class SuccessFactorsResponseContainer implements Closeable {
 
   private final int httpStatusCode;
   private final String httpStatusMsg;
@@ -37,14 +47,38 @@ public class SuccessFactorsResponseContainer {
   @Nullable
   private final String dataServiceVersion;
   private final byte[] responseStream;
+  @Nullable
+  private final InputStream liveResponseStream;
+  @Nullable
+  private final SuccessFactorsResponseBuffer responseBuffer;
+  @Nullable
+  private final String eTag;
 
   public SuccessFactorsResponseContainer(int httpStatusCode, String httpStatusMsg, @Nullable String dataServiceVersion,
                                          byte[] responseStream) {
 
+    this(httpStatusCode, httpStatusMsg, dataServiceVersion, responseStream, null, null);
+  }
+
+  public SuccessFactorsResponseContainer(int httpStatusCode, String httpStatusMsg, @Nullable String dataServiceVersion,
+                                         byte[] responseStream, @Nullable InputStream liveResponseStream,
+                                         @Nullable String eTag) {
+
+    this(httpStatusCode, httpStatusMsg, dataServiceVersion, responseStream, liveResponseStream, null, eTag);
+  }
+
+  public SuccessFactorsResponseContainer(int httpStatusCode, String httpStatusMsg, @Nullable String dataServiceVersion,
+                                         byte[] responseStream, @Nullable InputStream liveResponseStream,
+                                         @Nullable SuccessFactorsResponseBuffer responseBuffer,
+                                         @Nullable String eTag) {
+
     this.httpStatusCode = httpStatusCode;
     this.httpStatusMsg = httpStatusMsg;
     this.dataServiceVersion = dataServiceVersion;
     this.responseStream = responseStream;
+    this.liveResponseStream = liveResponseStream;
+    this.responseBuffer = responseBuffer;
+    this.eTag = eTag;
   }
 
   public int getHttpStatusCode() {
@@ -62,7 +96,64 @@ public class SuccessFactorsResponseContainer {
 
   @Nullable
   public InputStream getResponseStream() {
-    return new ByteArrayInputStream(responseStream);
+    if (liveResponseStream != null) {
+      return liveResponseStream;
+    }
+    if (responseBuffer != null) {
+      return responseBuffer.getInputStream();
+    }
+    return responseStream == null ? null : new ByteArrayInputStream(responseStream);
+  }
+
+  @Nullable
+  public String getETag() {
+    return this.eTag;
+  }
+
+  /**
+   * Returns true if the response body is the live HTTP body stream.
+   *
+   * @return true if the response body is streamed
+   */
+  public boolean isStreamed() {
+    return liveResponseStream != null;
+  }
+
+  /**
+   * Reads the live body stream up to its end into a {@code SuccessFactorsResponseBuffer} and closes it, which
+   * releases the connection and the concurrent request slot of the call. A body not streamed is returned as is.
+   *
+   * @param spillThreshold highest body size kept on heap
+   * @return {@code SuccessFactorsResponseContainer} holding the buffered body
+   * @throws IOException any error while reading the body stream
+   */
+  public SuccessFactorsResponseContainer toBuffered(long spillThreshold) throws IOException {
+    if (liveResponseStream == null) {
+      return this;
+    }
+
+    SuccessFactorsResponseBuffer buffer;
+    try (InputStream stream = liveResponseStream) {
+      buffer = SuccessFactorsResponseBuffer.readFully(Okio.buffer(Okio.source(stream)), spillThreshold);
+    }
+    return builder()
+      .httpStatusCode(httpStatusCode)
+      .httpStatusMsg(httpStatusMsg)
+      .dataServiceVersion(dataServiceVersion)
+      .responseStream(responseStream)
+      .responseBuffer(buffer)
+      .eTag(eTag)
+      .build();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (liveResponseStream != null) {
+      liveResponseStream.close();
+    }
+    if (responseBuffer != null) {
+      responseBuffer.close();
+    }
   }
 
   public static Builder builder() {
@@ -78,6 +169,12 @@ public class SuccessFactorsResponseContainer {
     @Nullable
     private String dataServiceVersion;
     private byte[] responseStream;
+    @Nullable
+    private InputStream liveResponseStream;
+    @Nullable
+    private SuccessFactorsResponseBuffer responseBuffer;
+    @Nullable
+    private String eTag;
 
     public Builder httpStatusCode(int httpStatusCode) {
       this.httpStatusCode = httpStatusCode;
@@ -99,9 +196,25 @@ public class SuccessFactorsResponseContainer {
       return this;
     }
 
+    public Builder liveResponseStream(@Nullable InputStream liveResponseStream) {
+      this.liveResponseStream = liveResponseStream;
+      return this;
+    }
+
+    public Builder responseBuffer(@Nullable SuccessFactorsResponseBuffer responseBuffer) {
+      this.responseBuffer = responseBuffer;
+      return this;
+    }
+
+    public Builder eTag(@Nullable String eTag) {
+      this.eTag = eTag;
+      return this;
+    }
+
     public SuccessFactorsResponseContainer build() {
       return new SuccessFactorsResponseContainer(this.httpStatusCode, this.httpStatusMsg, this.dataServiceVersion,
-                                                 this.responseStream);
+                                                 this.responseStream, this.liveResponseStream, this.responseBuffer,
+                                                 this.eTag);
     }
   }
 }
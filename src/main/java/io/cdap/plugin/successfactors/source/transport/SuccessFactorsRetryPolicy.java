@@ -0,0 +1,295 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategy;
+import com.github.rholder.retry.WaitStrategy;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsRetryPolicy} decides which responses are retried and how long to wait before the next
+ * attempt of a record fetch call.
+ * - retried HTTP codes: 429 (throttled), 502, 503 and 504 by default
+ * - wait time: the 'Retry-After' header of the response if any, otherwise decorrelated jitter i.e.
+ * 'min(max wait, random(base wait, previous wait * 3))', so the parallel splits throttled together spread their next
+ * attempts instead of retrying in lockstep
+ * - stop: after the max number of attempts or once the next wait would exceed the time budget of the call
+ */
+public class SuccessFactorsRetryPolicy {
+  public static final String RETRY_AFTER = "Retry-After";
+  public static final int HTTP_TOO_MANY_REQUESTS = 429;
+  public static final Set<Integer> DEFAULT_RETRYABLE_CODES = ImmutableSet.of(HTTP_TOO_MANY_REQUESTS, 502, 503, 504);
+  public static final int DEFAULT_MAX_ATTEMPTS = 8;
+  public static final long DEFAULT_BASE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  public static final long DEFAULT_MAX_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+  public static final long DEFAULT_TIME_BUDGET_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsRetryPolicy.class);
+  private static final SuccessFactorsRetryPolicy DEFAULT = builder().build();
+
+  private final Set<Integer> retryableCodes;
+  private final int maxAttempts;
+  private final long baseWaitMillis;
+  private final long maxWaitMillis;
+  private final long timeBudgetMillis;
+
+  private SuccessFactorsRetryPolicy(Set<Integer> retryableCodes, int maxAttempts, long baseWaitMillis,
+                                    long maxWaitMillis, long timeBudgetMillis) {
+    this.retryableCodes = ImmutableSet.copyOf(retryableCodes);
+    this.maxAttempts = maxAttempts;
+    this.baseWaitMillis = baseWaitMillis;
+    this.maxWaitMillis = maxWaitMillis;
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  /**
+   * Returns the policy with the default retryable codes, attempts, wait times and time budget.
+   *
+   * @return {@code SuccessFactorsRetryPolicy}
+   */
+  public static SuccessFactorsRetryPolicy getDefault() {
+    return DEFAULT;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getTimeBudgetMillis() {
+    return timeBudgetMillis;
+  }
+
+  /**
+   * Checks if the given response is worth another attempt.
+   *
+   * @param response {@code Response}
+   * @return true if the HTTP code of the response is one of the retryable codes
+   */
+  public boolean isRetryable(@Nullable Response response) {
+    return response != null && isRetryable(response.code());
+  }
+
+  /**
+   * Checks if a response with the given HTTP code is worth another attempt, e.g. a part of a '$batch' response.
+   *
+   * @param httpStatusCode HTTP code of the response
+   * @return true if the HTTP code is one of the retryable codes
+   */
+  public boolean isRetryable(int httpStatusCode) {
+    return retryableCodes.contains(httpStatusCode);
+  }
+
+  /**
+   * Builds the {@code Retryer} of one call. The retryer keeps the previous wait time for the decorrelated jitter, so a
+   * new one must be built for every call.
+   *
+   * @return {@code Retryer} retrying the retryable responses as per this policy
+   */
+  public Retryer<Response> newRetryer() {
+    RetrySchedule schedule = new RetrySchedule();
+    return RetryerBuilder.<Response>newBuilder()
+      .retryIfResult(this::isRetryable)
+      .withStopStrategy(schedule)
+      .withWaitStrategy(schedule)
+      .build();
+  }
+
+  /**
+   * Computes the wait time before the next attempt.
+   *
+   * @param previousWaitMillis wait time before the previous attempt, 0 for the first retry
+   * @param retryAfterMillis   wait time asked by the 'Retry-After' header, negative if none
+   * @param random             source of the jitter
+   * @return wait time in milliseconds
+   */
+  long nextWaitMillis(long previousWaitMillis, long retryAfterMillis, Random random) {
+    if (retryAfterMillis >= 0) {
+      // waiting exactly as long as asked would still make all the throttled callers come back at the same time
+      return retryAfterMillis + randomBetween(random, 0, baseWaitMillis);
+    }
+    long upperBound = Math.max(baseWaitMillis, Math.max(previousWaitMillis, baseWaitMillis) * 3);
+    return Math.min(maxWaitMillis, randomBetween(random, baseWaitMillis, upperBound));
+  }
+
+  /**
+   * Computes the wait time before the next attempt of a call after the given failed attempt, within the attempt count
+   * and the time budget of the call.
+   *
+   * @param attemptNumber      number of the failed attempt, starting at 1
+   * @param elapsedMillis      time since the first attempt of the call
+   * @param previousWaitMillis wait time before the failed attempt, 0 for the first attempt
+   * @param response           response of the failed attempt, null if the attempt failed without response
+   * @return wait time in milliseconds, -1 if no more attempt must be made
+   */
+  long retryWaitMillis(long attemptNumber, long elapsedMillis, long previousWaitMillis, @Nullable Response response) {
+    long retryAfterMillis = -1;
+    String status = null;
+    if (response != null) {
+      retryAfterMillis = parseRetryAfterMillis(response.header(RETRY_AFTER), System.currentTimeMillis());
+      status = response.code() + " " + response.message();
+    }
+    return retryWaitMillis(attemptNumber, elapsedMillis, previousWaitMillis, status, retryAfterMillis);
+  }
+
+  /**
+   * Computes the wait time before the next attempt of a call after the given failed attempt, within the attempt count
+   * and the time budget of the call.
+   *
+   * @param attemptNumber      number of the failed attempt, starting at 1
+   * @param elapsedMillis      time since the first attempt of the call
+   * @param previousWaitMillis wait time before the failed attempt, 0 for the first attempt
+   * @param status             HTTP status of the failed attempt, for logging purpose, null if none
+   * @param retryAfterMillis   wait time asked by the 'Retry-After' header, negative if none
+   * @return wait time in milliseconds, -1 if no more attempt must be made
+   */
+  long retryWaitMillis(long attemptNumber, long elapsedMillis, long previousWaitMillis, @Nullable String status,
+                       long retryAfterMillis) {
+    if (attemptNumber >= maxAttempts) {
+      return -1;
+    }
+
+    long waitMillis = nextWaitMillis(previousWaitMillis, retryAfterMillis, ThreadLocalRandom.current());
+    if (elapsedMillis + waitMillis > timeBudgetMillis) {
+      return -1;
+    }
+
+    LOG.debug(ResourceConstants.DEBUG_RETRY_ON_FAILURE.getMsgForKey(status, attemptNumber, waitMillis / 1000.0));
+    return waitMillis;
+  }
+
+  /**
+   * Parses the 'Retry-After' header, given either as delay seconds or as HTTP date.
+   *
+   * @param value     'Retry-After' header value
+   * @param nowMillis current time in epoch milliseconds, for the HTTP date
+   * @return wait time in milliseconds, -1 if the header is missing or invalid
+   */
+  static long parseRetryAfterMillis(@Nullable String value, long nowMillis) {
+    if (value == null || value.trim().isEmpty()) {
+      return -1;
+    }
+    String retryAfter = value.trim();
+    try {
+      long seconds = Long.parseLong(retryAfter);
+      return seconds < 0 ? -1 : TimeUnit.SECONDS.toMillis(seconds);
+    } catch (NumberFormatException e) {
+      // not delay seconds, try the HTTP date
+    }
+    try {
+      Instant date = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+      return Math.max(0, date.toEpochMilli() - nowMillis);
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+
+  private static long randomBetween(Random random, long lowerBound, long upperBound) {
+    if (upperBound <= lowerBound) {
+      return lowerBound;
+    }
+    return lowerBound + (long) (random.nextDouble() * (upperBound - lowerBound));
+  }
+
+  /**
+   * Stop and wait strategy of one call. The stop strategy is always asked before the wait strategy for the same
+   * attempt, so the wait time computed to check the time budget is the one returned as wait time.
+   */
+  private class RetrySchedule implements StopStrategy, WaitStrategy {
+    private long previousWaitMillis;
+    private long nextWaitMillis;
+
+    @Override
+    public boolean shouldStop(Attempt failedAttempt) {
+      Response response = failedAttempt.hasResult() ? (Response) failedAttempt.getResult() : null;
+      nextWaitMillis = retryWaitMillis(failedAttempt.getAttemptNumber(), failedAttempt.getDelaySinceFirstAttempt(),
+                                       previousWaitMillis, response);
+      return nextWaitMillis < 0;
+    }
+
+    @Override
+    public long computeSleepTime(Attempt failedAttempt) {
+      previousWaitMillis = nextWaitMillis;
+      return nextWaitMillis;
+    }
+  }
+
+  /**
+   * Helper class to simplify {@code SuccessFactorsRetryPolicy} class creation.
+   */
+  public static class Builder {
+    private Set<Integer> retryableCodes = DEFAULT_RETRYABLE_CODES;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long baseWaitMillis = DEFAULT_BASE_WAIT_MILLIS;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private long timeBudgetMillis = DEFAULT_TIME_BUDGET_MILLIS;
+
+    public Builder retryableCodes(Set<Integer> retryableCodes) {
+      this.retryableCodes = retryableCodes;
+      return this;
+    }
+
+    public Builder maxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    public Builder baseWaitMillis(long baseWaitMillis) {
+      this.baseWaitMillis = baseWaitMillis;
+      return this;
+    }
+
+    public Builder maxWaitMillis(long maxWaitMillis) {
+      this.maxWaitMillis = maxWaitMillis;
+      return this;
+    }
+
+    public Builder timeBudgetMillis(long timeBudgetMillis) {
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    public SuccessFactorsRetryPolicy build() {
+      if (maxAttempts <= 0 || baseWaitMillis < 0 || maxWaitMillis < baseWaitMillis || timeBudgetMillis < 0) {
+        throw new IllegalArgumentException(String.format(
+          "Invalid retry policy: %d attempts, %d-%d ms wait time and %d ms time budget.", maxAttempts,
+          baseWaitMillis, maxWaitMillis, timeBudgetMillis));
+      }
+      return new SuccessFactorsRetryPolicy(retryableCodes, maxAttempts, baseWaitMillis, maxWaitMillis,
+                                           timeBudgetMillis);
+    }
+  }
+}
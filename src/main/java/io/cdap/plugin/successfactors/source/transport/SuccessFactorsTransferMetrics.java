@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This {@code SuccessFactorsTransferMetrics} counts the response body bytes read by one
+ * {@code SuccessFactorsTransporter}:
+ * - wire bytes: bytes received from SuccessFactors, compressed if the response is compressed
+ * - decoded bytes: bytes handed over to the parsers after decompression
+ */
+public class SuccessFactorsTransferMetrics {
+  private final AtomicLong wireBytes = new AtomicLong();
+  private final AtomicLong decodedBytes = new AtomicLong();
+
+  public long getWireBytes() {
+    return wireBytes.get();
+  }
+
+  public long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  void addWireBytes(long bytes) {
+    wireBytes.addAndGet(bytes);
+  }
+
+  void addDecodedBytes(long bytes) {
+    decodedBytes.addAndGet(bytes);
+  }
+}
@@ -17,48 +17,128 @@
 package io.cdap.plugin.successfactors.source.transport;
 
 import com.github.rholder.retry.RetryException;
-import com.github.rholder.retry.Retryer;
-import com.github.rholder.retry.RetryerBuilder;
-import com.github.rholder.retry.StopStrategies;
-import com.github.rholder.retry.WaitStrategies;
-import io.cdap.cdap.api.retry.RetryableException;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 import io.cdap.plugin.successfactors.common.exception.TransportException;
 import io.cdap.plugin.successfactors.common.util.ResourceConstants;
 import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+import org.apache.olingo.odata2.api.client.batch.BatchPart;
+import org.apache.olingo.odata2.api.client.batch.BatchQueryPart;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
 import javax.ws.rs.core.MediaType;
 
 /**
  * This {@code SuccessFactorsTransporter} class is used to
  * make a rest web service call to the SAP SuccessFactors exposed services.
+ * <p>
+ * Every call asks for a gzip or deflate compressed response. A compressed body is decompressed as a stream while the
+ * parser reads it, the compressed and decompressed bytes are counted in the {@code SuccessFactorsTransferMetrics}.
+ * <p>
+ * The record fetch is also available as an asynchronous call, queued by the http client dispatcher so that no more
+ * than the given number of requests per base URL are in flight, without any thread blocked per pending call. An
+ * asynchronous call takes its concurrent request slot and its token of the request budget once the dispatcher starts
+ * it, without waiting: while the budget is exhausted the attempt is scheduled again on the timer thread of the
+ * retries, so the synchronous and asynchronous calls share the same budget.
+ * <p>
+ * A transporter is safe for concurrent use: it holds no state of any call, every call keeps its request, response
+ * and retry schedule to itself and hands the response over to its own caller only. The shared parts, i.e. the http
+ * clients, the request budget and the transfer metrics, are thread-safe, so one transporter can serve all the pages
+ * of a split fetched in parallel.
  */
 public class SuccessFactorsTransporter {
   public static final String SERVICE_VERSION = "dataserviceversion";
+  public static final String ETAG = "ETag";
+  public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 5;
+  // connect, read and write timeout in seconds
+  public static final long CONNECTION_TIMEOUT = 300;
+  private static final String IF_NONE_MATCH = "If-None-Match";
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+  private static final String CONTENT_LENGTH = "Content-Length";
+  private static final String GZIP = "gzip";
+  private static final String DEFLATE = "deflate";
+  private static final String BATCH_BOUNDARY_PREFIX = "batch_";
+  private static final String MULTIPART_MIXED = "multipart/mixed";
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsTransporter.class);
-  private static final long CONNECTION_TIMEOUT = 300;
-  private static final long WAIT_TIME = 5;
-  private static final long MAX_NUMBER_OF_RETRY_ATTEMPTS = 5;
   private final String username;
   private final String password;
-  private Response response;
+  private final SuccessFactorsRetryPolicy retryPolicy;
+  @Nullable
+  private final SuccessFactorsRateLimiter.Lease rateLimit;
+  private final int maxInFlightRequests;
+  private final SuccessFactorsTransferMetrics transferMetrics = new SuccessFactorsTransferMetrics();
+  // shared asynchronous client of the registry to the same client decoding the response bodies of this transporter
+  private final Map<OkHttpClient, OkHttpClient> asyncClients = new ConcurrentHashMap<>();
 
   public SuccessFactorsTransporter(String username, String password) {
+    this(username, password, SuccessFactorsRetryPolicy.getDefault(), null);
+  }
+
+  public SuccessFactorsTransporter(String username, String password, SuccessFactorsRetryPolicy retryPolicy,
+                                   @Nullable SuccessFactorsRateLimiter.Lease rateLimit) {
+    this(username, password, retryPolicy, rateLimit, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+  }
+
+  /**
+   * @param username            SuccessFactors username
+   * @param password            SuccessFactors password
+   * @param retryPolicy         {@code SuccessFactorsRetryPolicy} of the record fetch calls
+   * @param rateLimit           lease of the request budget of the base URL, null if no budget is configured
+   * @param maxInFlightRequests maximum number of asynchronous requests in flight per base URL, they also take the
+   *                            concurrent request slots of the request budget, if any
+   */
+  public SuccessFactorsTransporter(String username, String password, SuccessFactorsRetryPolicy retryPolicy,
+                                   @Nullable SuccessFactorsRateLimiter.Lease rateLimit, int maxInFlightRequests) {
+    if (maxInFlightRequests < 1) {
+      throw new IllegalArgumentException("Max in-flight requests must be at least 1.");
+    }
     this.username = username;
     this.password = password;
+    this.retryPolicy = retryPolicy;
+    this.rateLimit = rateLimit;
+    this.maxInFlightRequests = maxInFlightRequests;
+  }
 
+  /**
+   * Returns the response body bytes read so far through this transporter.
+   *
+   * @return {@code SuccessFactorsTransferMetrics}
+   */
+  public SuccessFactorsTransferMetrics getTransferMetrics() {
+    return transferMetrics;
   }
 
   /**
@@ -88,11 +168,36 @@ public class SuccessFactorsTransporter {
     }
   }
 
+  /**
+   * Calls the Successfactors entity metadata endpoint. In case the 'ETag' of a previously fetched metadata is given,
+   * the call is conditional and SuccessFactors returns 'HTTP 304 Not Modified' without any body if the metadata has
+   * not changed since.
+   *
+   * @param endpoint metadata URL
+   * @param eTag     'ETag' of the previously fetched metadata or null to fetch it unconditionally
+   * @return {@code SuccessFactorsResponseContainer} holding the 'ETag' of the returned metadata if any
+   * @throws TransportException any http client exceptions are wrapped under it
+   */
+  public SuccessFactorsResponseContainer callSuccessFactorsMetadata(URL endpoint, @Nullable String eTag)
+    throws TransportException {
+
+    try {
+      LOG.debug(ResourceConstants.DEBUG_CALL_SERVICE_START.getMsgForKey(SuccessFactorsService.METADATA));
+      Response res = transport(endpoint, MediaType.APPLICATION_XML, eTag);
+      LOG.debug(ResourceConstants.DEBUG_CALL_SERVICE_END.getMsgForKey(SuccessFactorsService.METADATA));
+
+      return prepareResponseContainer(res);
+    } catch (IOException ioe) {
+      throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
+    }
+  }
+
   /**
    * Calls the Successfactors entity to fetch the records with subsequent retries in case of failure.
-   * Retry modes are:
-   * - any HTTP code equal or above 500
-   * - max retry is 3 times
+   * Retried responses, wait times and the time budget of the call are as per the {@code SuccessFactorsRetryPolicy}.
+   * <p>
+   * A successful response is not buffered, the returned container holds the live body stream so the records can be
+   * decoded while they arrive. The caller must close the returned container.
    *
    * @param endpoint record fetch URL
    * @return {@code SuccessFactorsResponseContainer}
@@ -106,7 +211,104 @@ public class SuccessFactorsTransporter {
     LOG.debug(ResourceConstants.DEBUG_CALL_SERVICE_END.getMsgForKey(SuccessFactorsService.DATA));
 
     try {
-      return prepareResponseContainer(res);
+      return prepareStreamingResponseContainer(res);
+    } catch (IOException ioe) {
+      res.close();
+      throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
+    }
+  }
+
+  /**
+   * Calls the Successfactors entity to fetch the records asynchronously, with subsequent retries in case of failure as
+   * per the {@code SuccessFactorsRetryPolicy}. The call waits in the dispatcher queue while the in-flight limit of the
+   * base URL is reached, and the retries and the attempts waiting for the request budget are scheduled, so
+   * neither the caller thread nor a dispatcher thread is blocked.
+   * <p>
+   * The returned container holds the live body stream as for {@code callSuccessFactorsWithRetry}, the caller must
+   * close it. Cancelling the returned future cancels the call.
+   *
+   * @param endpoint record fetch URL
+   * @return future completed with the {@code SuccessFactorsResponseContainer}, or exceptionally with an
+   * {@code IOException} if all retries fail or a {@code TransportException} for any other http client exception
+   */
+  public CompletableFuture<SuccessFactorsResponseContainer> callSuccessFactorsAsync(URL endpoint) {
+    OkHttpClient sharedClient = SuccessFactorsHttpClientRegistry
+      .getAsyncClient(endpoint, CONNECTION_TIMEOUT, CONNECTION_TIMEOUT, CONNECTION_TIMEOUT, maxInFlightRequests);
+    // same dispatcher and connection pool as the shared client
+    OkHttpClient asyncClient = asyncClients.computeIfAbsent(sharedClient, client -> client.newBuilder()
+      .addInterceptor(chain -> tryLimitAndDecode(() -> chain.proceed(chain.request())))
+      .build());
+    CompletableFuture<Response> responseFuture = new SuccessFactorsAsyncCall(
+      endpoint, asyncClient, buildRequest(endpoint, MediaType.APPLICATION_JSON, null), retryPolicy)
+      .start();
+
+    CompletableFuture<SuccessFactorsResponseContainer> result = new CompletableFuture<>();
+    result.whenComplete((responseContainer, failure) -> {
+      if (result.isCancelled()) {
+        responseFuture.cancel(false);
+      }
+    });
+    responseFuture.whenComplete((res, failure) -> {
+      if (failure != null) {
+        result.completeExceptionally(failure);
+        return;
+      }
+      try {
+        SuccessFactorsResponseContainer responseContainer = prepareStreamingResponseContainer(res);
+        if (!result.complete(responseContainer)) {
+          // cancelled meanwhile
+          res.close();
+        }
+      } catch (IOException ioe) {
+        res.close();
+        result.completeExceptionally(new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(),
+                                                            ioe));
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Calls the Successfactors '$batch' endpoint with the given GET requests packed into one multipart request, with
+   * subsequent retries of the '$batch' request in case of failure. The requests are relative to the service root,
+   * so their query options are sent in the request body and not in the URL.
+   * <p>
+   * The returned response hands over the response of every batched request in order, while the multipart response
+   * arrives. The caller must close the returned response.
+   *
+   * @param batchEndpoint '$batch' URL
+   * @param requestURIs   request URIs relative to the service root, e.g. 'Entity?$skip=0&$top=100'
+   * @return {@code SuccessFactorsBatchResponse}
+   * @throws TransportException any http client exceptions are wrapped under it
+   * @throws IOException        if all retries fail
+   */
+  public SuccessFactorsBatchResponse callSuccessFactorsBatch(URL batchEndpoint, List<String> requestURIs)
+    throws TransportException, IOException {
+
+    String boundary = BATCH_BOUNDARY_PREFIX + UUID.randomUUID();
+    List<BatchPart> parts = requestURIs.stream()
+      .map(uri -> BatchQueryPart.method("GET")
+        .uri(uri)
+        .headers(ImmutableMap.of("Accept", MediaType.APPLICATION_JSON))
+        .build())
+      .collect(Collectors.toList());
+    byte[] body;
+    try (InputStream batchRequest = EntityProvider.writeBatchRequest(parts, boundary)) {
+      body = ByteStreams.toByteArray(batchRequest);
+    }
+    Request req = newRequestBuilder(batchEndpoint, MULTIPART_MIXED)
+      .post(RequestBody.create(body, okhttp3.MediaType.get(MULTIPART_MIXED + ";boundary=" + boundary)))
+      .build();
+
+    LOG.debug(ResourceConstants.DEBUG_CALL_SERVICE_START.getMsgForKey(SuccessFactorsService.DATA));
+    Response res = callWithRetry(batchEndpoint, () -> execute(batchEndpoint, req));
+    LOG.debug(ResourceConstants.DEBUG_CALL_SERVICE_END.getMsgForKey(SuccessFactorsService.DATA));
+
+    try {
+      if (res.code() == HttpURLConnection.HTTP_ACCEPTED || res.code() == HttpURLConnection.HTTP_OK) {
+        return new SuccessFactorsBatchResponse(res, parts.size(), null);
+      }
+      return new SuccessFactorsBatchResponse(res, parts.size(), prepareResponseContainer(res));
     } catch (IOException ioe) {
       res.close();
       throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
@@ -114,36 +316,81 @@ public class SuccessFactorsTransporter {
   }
 
   /**
-   * Calls the given URL with retry logic.
+   * Calls again the given URL of a '$batch' part which failed with a retryable HTTP code, e.g. a throttled part. The
+   * URL is called on its own after the wait time of the first retry as per the {@code SuccessFactorsRetryPolicy}, with
+   * subsequent retries as for {@code callSuccessFactorsWithRetry}. Any other part is returned as is.
+   * <p>
+   * The failed part is closed when the URL is called again. The caller must close the returned container.
+   *
+   * @param endpoint   record fetch URL of the part
+   * @param failedPart {@code SuccessFactorsResponseContainer} of the part
+   * @return {@code SuccessFactorsResponseContainer} of the call, or the given part if it is not retried
+   * @throws TransportException any http client exceptions are wrapped under it
+   * @throws IOException        if all retries fail or the wait is interrupted
+   */
+  public SuccessFactorsResponseContainer retryBatchPart(URL endpoint, SuccessFactorsResponseContainer failedPart)
+    throws TransportException, IOException {
+
+    if (!retryPolicy.isRetryable(failedPart.getHttpStatusCode())) {
+      return failedPart;
+    }
+    // the headers of the part, e.g. 'Retry-After', are not kept
+    long waitMillis = retryPolicy.retryWaitMillis(
+      1, 0, 0, failedPart.getHttpStatusCode() + " " + failedPart.getHttpStatusMsg(), -1);
+    if (waitMillis < 0) {
+      return failedPart;
+    }
+
+    failedPart.close();
+    try {
+      Thread.sleep(waitMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to call the '$batch' part again.");
+    }
+    return callSuccessFactorsWithRetry(endpoint);
+  }
+
+  /**
+   * Calls the given URL with retry logic. The responses of the failed attempts are closed before the next attempt.
    *
    * @param endpoint  record fetch URL
    * @param mediaType mediaType for Accept header property
    * @return {@code Response}
-   * @throws IOException if all retries fail
+   * @throws IOException if all retries fail or the time budget is exhausted
    */
   public Response retrySapTransportCall(URL endpoint, String mediaType) throws IOException {
-    Callable<Boolean> fetchRecords = () -> {
-      response = transport(endpoint, mediaType);
-      if (response != null  && response.code() >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
-        throw new RetryableException();
-      }
-      return true;
-    };
-
-    Retryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
-      .retryIfExceptionOfType(RetryableException.class)
-      .withWaitStrategy(WaitStrategies.exponentialWait(WAIT_TIME, TimeUnit.SECONDS))
-      .withStopStrategy(StopStrategies.stopAfterAttempt((int) MAX_NUMBER_OF_RETRY_ATTEMPTS))
-      .build();
+    return callWithRetry(endpoint, () -> transport(endpoint, mediaType));
+  }
 
+  /**
+   * Makes the given call with retry logic as per the {@code SuccessFactorsRetryPolicy}.
+   *
+   * @param endpoint called URL, used for logging purpose
+   * @param call     HTTP/S call
+   * @return {@code Response}
+   * @throws IOException if all retries fail or the time budget is exhausted
+   */
+  private Response callWithRetry(URL endpoint, Callable<Response> call) throws IOException {
     try {
-      retryer.call(fetchRecords);
-    } catch (RetryException | ExecutionException e) {
+      return retryPolicy.newRetryer().call(() -> {
+        Response res = call.call();
+        if (retryPolicy.isRetryable(res)) {
+          // release the connection of the failed attempt, the status and headers are still readable
+          res.close();
+        }
+        return res;
+      });
+    } catch (RetryException re) {
+      LOG.error("Data Recovery failed for URL {}.", endpoint);
+      throw new IOException(ResourceConstants.ERR_MAX_RETRY.getMsgForKey(re.getNumberOfFailedAttempts()), re);
+    } catch (ExecutionException ee) {
       LOG.error("Data Recovery failed for URL {}.", endpoint);
-      throw new IOException();
+      if (ee.getCause() instanceof IOException) {
+        throw (IOException) ee.getCause();
+      }
+      throw new IOException(ee.getCause());
     }
-
-    return response;
   }
 
   /**
@@ -152,14 +399,165 @@ public class SuccessFactorsTransporter {
    * @param endpoint  SuccessFactors URL
    * @param mediaType mediaType for Accept header property
    * @return {@code Response}
-   * @throws IOException        any http client exceptions
-   * @throws TransportException any error while preparing the {@code OkHttpClient}
+   * @throws IOException any http client exceptions
+   */
+  private Response transport(URL endpoint, String mediaType) throws IOException {
+    return transport(endpoint, mediaType, null);
+  }
+
+  /**
+   * Make an HTTP/S call to the given URL, conditional on the given 'ETag'. In case of a rate limit, the call waits for
+   * the request budget and holds its concurrent request slot until the returned response is closed.
+   *
+   * @param endpoint  SuccessFactors URL
+   * @param mediaType mediaType for Accept header property
+   * @param eTag      'ETag' for the 'If-None-Match' header, null for an unconditional call
+   * @return {@code Response}
+   * @throws IOException any http client exceptions
+   */
+  private Response transport(URL endpoint, String mediaType, @Nullable String eTag) throws IOException {
+    return execute(endpoint, buildRequest(endpoint, mediaType, eTag));
+  }
+
+  /**
+   * Executes the given request.
+   *
+   * @param endpoint SuccessFactors URL
+   * @param req      {@code Request}
+   * @return {@code Response}
+   * @throws IOException any http client exceptions
+   */
+  private Response execute(URL endpoint, Request req) throws IOException {
+    OkHttpClient enhancedOkHttpClient = getConfiguredClient(endpoint);
+    return limitAndDecode(() -> enhancedOkHttpClient.newCall(req).execute());
+  }
+
+  /**
+   * Makes the given HTTP/S call within the request budget, if any, and decodes the body of the response. In case of a
+   * rate limit, the call waits for the request budget and holds its concurrent request slot until the returned
+   * response is closed.
+   *
+   * @param call HTTP/S call
+   * @return {@code Response} with the decompressed body
+   * @throws IOException any http client exceptions
+   */
+  private Response limitAndDecode(HttpCall call) throws IOException {
+    if (rateLimit == null) {
+      return decodeBody(call.execute());
+    }
+
+    SuccessFactorsRateLimiter.Permit permit = rateLimit.acquire();
+    try {
+      return releaseOnClose(decodeBody(call.execute()), permit);
+    } catch (IOException | RuntimeException e) {
+      permit.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Makes the given HTTP/S call of the dispatcher within the request budget, if any, and decodes the body of the
+   * response. The call does not wait for the request budget, it fails right away if no concurrent request slot or no
+   * token is available, and otherwise holds its concurrent request slot until the returned response is closed.
+   *
+   * @param call HTTP/S call
+   * @return {@code Response} with the decompressed body
+   * @throws SuccessFactorsAsyncCall.RequestBudgetException if the request budget is exhausted
+   * @throws IOException                                    any http client exceptions
+   */
+  private Response tryLimitAndDecode(HttpCall call) throws IOException {
+    if (rateLimit == null) {
+      return decodeBody(call.execute());
+    }
+
+    SuccessFactorsRateLimiter.Permit permit = rateLimit.tryAcquire();
+    if (permit == null) {
+      throw new SuccessFactorsAsyncCall.RequestBudgetException(rateLimit.getRetryIntervalMillis());
+    }
+    try {
+      return releaseOnClose(decodeBody(call.execute()), permit);
+    } catch (IOException | RuntimeException e) {
+      permit.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Wraps the body of the given response, so it is decompressed while being read and the bytes read are counted.
+   * Since the 'Accept-Encoding' header is set explicitly, the http client leaves the body compressed as received.
+   *
+   * @param res {@code Response}
+   * @return {@code Response} with the decompressed body
+   */
+  private Response decodeBody(Response res) {
+    ResponseBody body = res.body();
+    if (body == null || res.code() == HttpURLConnection.HTTP_NOT_MODIFIED
+      || res.code() == HttpURLConnection.HTTP_NO_CONTENT) {
+      return res;
+    }
+
+    String encoding = res.header(CONTENT_ENCODING);
+    Source source = countingSource(body.source(), transferMetrics::addWireBytes);
+    boolean decompressed = true;
+    if (GZIP.equalsIgnoreCase(encoding)) {
+      source = new GzipSource(source);
+    } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+      source = new InflaterSource(source, new Inflater());
+    } else {
+      decompressed = false;
+    }
+    source = countingSource(source, transferMetrics::addDecodedBytes);
+
+    Response.Builder builder = res.newBuilder();
+    if (decompressed) {
+      // the decompressed size is not known upfront
+      builder.removeHeader(CONTENT_ENCODING).removeHeader(CONTENT_LENGTH);
+    }
+    return builder
+      .body(ResponseBody.create(Okio.buffer(source), body.contentType(), decompressed ? -1 : body.contentLength()))
+      .build();
+  }
+
+  private static Source countingSource(Source source, LongConsumer counter) {
+    return new ForwardingSource(source) {
+      @Override
+      public long read(Buffer sink, long byteCount) throws IOException {
+        long read = super.read(sink, byteCount);
+        if (read > 0) {
+          counter.accept(read);
+        }
+        return read;
+      }
+    };
+  }
+
+  /**
+   * Wraps the body of the given response, so the given permit is released once the body is closed.
+   *
+   * @param res    {@code Response}
+   * @param permit {@code SuccessFactorsRateLimiter.Permit} of the call
+   * @return {@code Response} releasing the permit on close
    */
-  private Response transport(URL endpoint, String mediaType) throws IOException, TransportException {
-    OkHttpClient enhancedOkHttpClient = getConfiguredClient().build();
-    Request req = buildRequest(endpoint, mediaType);
+  private Response releaseOnClose(Response res, SuccessFactorsRateLimiter.Permit permit) {
+    ResponseBody body = res.body();
+    if (body == null) {
+      permit.close();
+      return res;
+    }
 
-    return enhancedOkHttpClient.newCall(req).execute();
+    BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          permit.close();
+        }
+      }
+    });
+    return res.newBuilder()
+      .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+      .build();
   }
 
   /**
@@ -175,6 +573,28 @@ public class SuccessFactorsTransporter {
       .httpStatusMsg(res.message())
       .dataServiceVersion(res.header(SERVICE_VERSION))
       .responseStream(res.body() != null ? res.body().bytes() : null)
+      .eTag(res.header(ETAG))
+      .build();
+  }
+
+  /**
+   * Prepares the {@code SuccessFactorsResponseContainer} holding the live body stream of the given successful
+   * {@code Response}. Error responses are small and read back for the error message, so they are still buffered.
+   *
+   * @param res {@code Response}
+   * @return {@code SuccessFactorsResponseContainer}
+   * @throws IOException any IO exception while setting up the response body bytes
+   */
+  private SuccessFactorsResponseContainer prepareStreamingResponseContainer(Response res) throws IOException {
+    if (res.code() != HttpURLConnection.HTTP_OK || res.body() == null) {
+      return prepareResponseContainer(res);
+    }
+
+    return SuccessFactorsResponseContainer.builder()
+      .httpStatusCode(res.code())
+      .httpStatusMsg(res.message())
+      .dataServiceVersion(res.header(SERVICE_VERSION))
+      .liveResponseStream(res.body().byteStream())
       .build();
   }
 
@@ -182,37 +602,53 @@ public class SuccessFactorsTransporter {
    * Prepares request for metadata and data calls.
    *
    * @param mediaType supported types 'application/json' & 'application/xml'
+   * @param eTag      'ETag' for the 'If-None-Match' header, null for an unconditional call
    * @return Request
    */
-  private Request buildRequest(URL endpoint, String mediaType) {
+  private Request buildRequest(URL endpoint, String mediaType, @Nullable String eTag) {
+    Request.Builder builder = newRequestBuilder(endpoint, mediaType);
+    if (eTag != null) {
+      builder.addHeader(IF_NONE_MATCH, eTag);
+    }
+    return builder
+      .get()
+      .build();
+  }
+
+  /**
+   * Prepares the request builder with the headers common to all the calls.
+   *
+   * @param endpoint  SuccessFactors URL
+   * @param mediaType mediaType for Accept header property
+   * @return {@code Request.Builder}
+   */
+  private Request.Builder newRequestBuilder(URL endpoint, String mediaType) {
     return new Request.Builder()
       .addHeader("Authorization", getAuthenticationKey())
       .addHeader("Accept", mediaType)
-      .get()
-      .url(endpoint)
-      .build();
+      .addHeader(ACCEPT_ENCODING, GZIP + ", " + DEFLATE)
+      .url(endpoint);
   }
 
   /**
-   * Builds the {@code OkHttpClient.Builder} with following optimized configuration parameters as per the SAP Gateway
+   * Returns the shared {@code OkHttpClient} with following optimized configuration parameters as per the SAP Gateway
    * recommendations.
    * <p>
    * Connection Timeout in seconds: 300
    * Read Timeout in seconds: 300
    * Write Timeout in seconds: 300
+   * <p>
+   * For more detail please refer {@code SuccessFactorsHttpClientRegistry}
    *
-   * @return {@code OkHttpClient.Builder}
+   * @param endpoint SuccessFactors URL
+   * @return {@code OkHttpClient}
    */
-  private OkHttpClient.Builder getConfiguredClient() throws TransportException {
+  private OkHttpClient getConfiguredClient(URL endpoint) {
 
     // Setting up base timeout of 300 secs as per timeout configuration in SAP to
     // maximize the connection wait time
-    OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder()
-      .readTimeout(CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-      .writeTimeout(CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-      .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.SECONDS);
-
-    return httpClientBuilder;
+    return SuccessFactorsHttpClientRegistry.getClient(endpoint, CONNECTION_TIMEOUT, CONNECTION_TIMEOUT,
+                                                      CONNECTION_TIMEOUT);
   }
 
   /**
@@ -228,4 +664,11 @@ public class SuccessFactorsTransporter {
                         .getBytes(StandardCharsets.UTF_8)
       );
   }
+
+  /**
+   * HTTP/S call made either by the caller thread or by the dispatcher of the asynchronous calls.
+   */
+  private interface HttpCall {
+    Response execute() throws IOException;
+  }
 }
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
+import javax.annotation.Nullable;
 
 /**
  * This {@code SuccessFactorsUrlContainer} contains the implementation of different SuccessFactors url:
@@ -31,16 +32,36 @@ import java.net.URL;
  * * Metadata url
  * * Available record count url
  * * Data url
+ * * Server side pagination url
+ * * Boundary (lowest or highest) value url
+ * * '$batch' url and the batched request URIs
+ * <p>
+ * The given additional filter, i.e. the delta filter of the incremental extraction and/or the key range of a split,
+ * is AND-combined with the user provided '$filter' option.
  */
 public class SuccessFactorsUrlContainer {
 
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsUrlContainer.class);
   private static final String TOP_OPTION = "$top";
+  private static final String SKIP_OPTION = "$skip";
+  private static final String ORDER_BY_OPTION = "$orderby";
   private static final String METADATA = "$metadata";
+  private static final String COUNT = "$count";
+  private static final String BATCH = "$batch";
+  private static final String CUSTOM_PAGE_SIZE = "customPageSize";
+  private static final String FILTER_OPTION = "$filter";
+  private static final String SELECT_OPTION = "$select";
   private final SuccessFactorsPluginConfig pluginConfig;
+  @Nullable
+  private final String additionalFilter;
 
   public SuccessFactorsUrlContainer(SuccessFactorsPluginConfig pluginConfig) {
+    this(pluginConfig, null);
+  }
+
+  public SuccessFactorsUrlContainer(SuccessFactorsPluginConfig pluginConfig, @Nullable String additionalFilter) {
     this.pluginConfig = pluginConfig;
+    this.additionalFilter = additionalFilter;
   }
 
   /**
@@ -81,6 +102,168 @@ public class SuccessFactorsUrlContainer {
     return metadataURL;
   }
 
+  /**
+   * Constructs total available record count URL. Only the '$filter' query option is relevant for the count, so
+   * '$select' and '$expand' are not added.
+   *
+   * @return total available record count URL.
+   */
+  public URL getTotalRecordCountURL() {
+    HttpUrl.Builder builder = HttpUrl.parse(pluginConfig.getBaseURL())
+      .newBuilder()
+      .addPathSegment(pluginConfig.getEntityName())
+      .addPathSegment(COUNT);
+
+    String filter = getFilter();
+    if (SuccessFactorsUtil.isNotNullOrEmpty(filter)) {
+      builder.addQueryParameter(FILTER_OPTION, filter);
+    }
+
+    URL countURL = builder.build().url();
+    LOG.debug(ResourceConstants.DEBUG_COUNT_ENDPOINT.getMsgForKey(countURL));
+
+    return countURL;
+  }
+
+  /**
+   * Constructs data URL for the given record range.
+   *
+   * @param skip    number of records to skip
+   * @param top     number of records to fetch
+   * @param orderBy comma separated list of properties used to keep the record order stable across the calls
+   * @return data URL.
+   */
+  public URL getDataFetchURL(long skip, long top, @Nullable String orderBy) {
+    HttpUrl.Builder builder = HttpUrl.parse(pluginConfig.getBaseURL())
+      .newBuilder()
+      .addPathSegment(pluginConfig.getEntityName());
+
+    buildQueryOptions(builder);
+    if (SuccessFactorsUtil.isNotNullOrEmpty(orderBy)) {
+      builder.addQueryParameter(ORDER_BY_OPTION, orderBy);
+    }
+
+    URL dataURL = builder
+      .addQueryParameter(SKIP_OPTION, String.valueOf(skip))
+      .addQueryParameter(TOP_OPTION, String.valueOf(top))
+      .build()
+      .url();
+
+    LOG.debug(ResourceConstants.DEBUG_DATA_ENDPOINT.getMsgForKey(dataURL));
+
+    return dataURL;
+  }
+
+  /**
+   * Constructs the first page URL for the server side pagination. SuccessFactors returns the link to the next page in
+   * the '__next' property of the response, with the page size as per the 'customPageSize' parameter.
+   *
+   * @param pageSize number of records per page
+   * @return first page data URL.
+   */
+  public URL getServerSidePaginationURL(long pageSize) {
+    HttpUrl.Builder builder = HttpUrl.parse(pluginConfig.getBaseURL())
+      .newBuilder()
+      .addPathSegment(pluginConfig.getEntityName());
+
+    URL dataURL = buildQueryOptions(builder)
+      .addQueryParameter(CUSTOM_PAGE_SIZE, String.valueOf(pageSize))
+      .build()
+      .url();
+
+    LOG.debug(ResourceConstants.DEBUG_DATA_ENDPOINT.getMsgForKey(dataURL));
+
+    return dataURL;
+  }
+
+  /**
+   * Constructs the URL fetching the lowest or highest non null value of the given field for the '$filter' option,
+   * i.e. the only record with the boundary value and only the given field.
+   *
+   * @param fieldName field name
+   * @param highest   true for the highest value, false for the lowest value
+   * @return boundary value URL.
+   */
+  public URL getBoundaryValueURL(String fieldName, boolean highest) {
+    String filter = SuccessFactorsUtil.andFilters(getFilter(), String.format("%s ne null", fieldName));
+
+    URL boundaryValueURL = HttpUrl.parse(pluginConfig.getBaseURL())
+      .newBuilder()
+      .addPathSegment(pluginConfig.getEntityName())
+      .addQueryParameter(FILTER_OPTION, filter)
+      .addQueryParameter(SELECT_OPTION, fieldName)
+      .addQueryParameter(ORDER_BY_OPTION, fieldName + (highest ? " desc" : " asc"))
+      .addQueryParameter(TOP_OPTION, "1")
+      .build()
+      .url();
+
+    LOG.debug(ResourceConstants.DEBUG_DATA_ENDPOINT.getMsgForKey(boundaryValueURL));
+
+    return boundaryValueURL;
+  }
+
+  /**
+   * Constructs the '$batch' URL of the service.
+   *
+   * @return '$batch' URL.
+   */
+  public URL getBatchURL() {
+    return HttpUrl.parse(pluginConfig.getBaseURL())
+      .newBuilder()
+      .addPathSegment(BATCH)
+      .build()
+      .url();
+  }
+
+  /**
+   * Converts the given URL of the service into a request URI of the '$batch' request, i.e. relative to the service
+   * root e.g. 'Entity?$skip=0&$top=100'.
+   *
+   * @param url any URL of the service
+   * @return URI relative to the service root, keeping the encoded query
+   * @throws IllegalArgumentException if the URL does not belong to the service
+   */
+  public String getBatchRequestURI(URL url) {
+    HttpUrl baseURL = HttpUrl.parse(pluginConfig.getBaseURL());
+    HttpUrl requestURL = HttpUrl.get(url);
+    String basePath = baseURL.encodedPath().endsWith("/") ? baseURL.encodedPath() : baseURL.encodedPath() + "/";
+    if (!requestURL.host().equals(baseURL.host()) || requestURL.port() != baseURL.port()
+      || !requestURL.encodedPath().startsWith(basePath)) {
+      throw new IllegalArgumentException(String.format("URL '%s' does not belong to the service '%s'.", url,
+                                                       baseURL));
+    }
+
+    String relativePath = requestURL.encodedPath().substring(basePath.length());
+    String query = requestURL.encodedQuery();
+    return query == null ? relativePath : relativePath + "?" + query;
+  }
+
+  /**
+   * Resolves the '__next' link returned by SuccessFactors against the base URL. The link must point to the same
+   * scheme, host and port as the base URL, so the credentials are never sent to any other host nor in clear text.
+   *
+   * @param nextLink '__next' link, absolute or relative to the base URL
+   * @return next page URL or null in case there is no next page.
+   * @throws IllegalArgumentException if the link does not belong to the base URL host
+   */
+  @Nullable
+  public URL getNextLinkURL(@Nullable String nextLink) {
+    if (SuccessFactorsUtil.isNullOrEmpty(nextLink)) {
+      return null;
+    }
+
+    HttpUrl baseURL = HttpUrl.parse(pluginConfig.getBaseURL());
+    HttpUrl nextURL = baseURL.resolve(nextLink);
+    if (nextURL == null || !nextURL.scheme().equals(baseURL.scheme()) || !nextURL.host().equals(baseURL.host())
+      || nextURL.port() != baseURL.port()) {
+      throw new IllegalArgumentException(ResourceConstants.ERR_INVALID_NEXT_LINK.getMsgForKey(nextLink));
+    }
+
+    LOG.debug(ResourceConstants.DEBUG_DATA_ENDPOINT.getMsgForKey(nextURL));
+
+    return nextURL.url();
+  }
+
   /**
    * Adds Query option parameters in {@code HttpUrl.Builder} as per the given sequence.
    * Sequence:
@@ -93,11 +276,12 @@ public class SuccessFactorsUrlContainer {
    * in {@code SuccessFactorsPluginConfig} and return it.
    */
   private HttpUrl.Builder buildQueryOptions(HttpUrl.Builder urlBuilder) {
-    if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getFilterOption())) {
-      urlBuilder.addQueryParameter("$filter", pluginConfig.getFilterOption());
+    String filter = getFilter();
+    if (SuccessFactorsUtil.isNotNullOrEmpty(filter)) {
+      urlBuilder.addQueryParameter(FILTER_OPTION, filter);
     }
     if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getSelectOption())) {
-      urlBuilder.addQueryParameter("$select", pluginConfig.getSelectOption());
+      urlBuilder.addQueryParameter(SELECT_OPTION, pluginConfig.getSelectOption());
     }
     if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getExpandOption())) {
       urlBuilder.addQueryParameter("$expand", pluginConfig.getExpandOption());
@@ -105,4 +289,14 @@ public class SuccessFactorsUrlContainer {
 
     return urlBuilder;
   }
+
+  /**
+   * Returns the '$filter' option, i.e. the user provided filter AND-combined with the additional filter if any.
+   *
+   * @return '$filter' option or null if there is no filter
+   */
+  @Nullable
+  private String getFilter() {
+    return SuccessFactorsUtil.andFilters(pluginConfig.getFilterOption(), additionalFilter);
+  }
 }
@@ -149,6 +149,101 @@ public class SuccessFactorsPluginConfigTest {
     }
   }
 
+  @Test
+  public void testValidateNegativeNumSplits() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.numSplits(-1).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Number of splits is negative");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Number of Splits to Generate"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNegativeRequestBudget() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.maxRequestsPerSecond(-1.0)
+      .maxConcurrentRequests(-1)
+      .build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Request budget is negative");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(2, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Max Requests per Second"),
+                          failures.get(0).getMessage());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Max Concurrent Requests"),
+                          failures.get(1).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateInvalidRetryParameters() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.maxRetryAttempts(0)
+      .retryBaseWaitSeconds(10)
+      .retryMaxWaitSeconds(5)
+      .retryTimeBudgetSeconds(-1)
+      .build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Retry parameters are invalid");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(3, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Max Retry Attempts"),
+                          failures.get(0).getMessage());
+      Assert.assertEquals(ResourceConstants.ERR_RETRY_MAX_WAIT.getMsgForKey(), failures.get(1).getMessage());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Retry Time Budget"),
+                          failures.get(2).getMessage());
+    }
+  }
+
+  @Test
+  public void testRetryPolicy() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.build();
+    Assert.assertEquals(8, pluginConfig.getRetryPolicy().getMaxAttempts());
+    Assert.assertEquals(300_000L, pluginConfig.getRetryPolicy().getTimeBudgetMillis());
+
+    pluginConfig = pluginConfigBuilder.maxRetryAttempts(3).retryTimeBudgetSeconds(20).build();
+    Assert.assertEquals(3, pluginConfig.getRetryPolicy().getMaxAttempts());
+    Assert.assertEquals(20_000L, pluginConfig.getRetryPolicy().getTimeBudgetMillis());
+  }
+
+  @Test
+  public void testValidateInvalidPaginationType() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("cursor").build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Pagination type is invalid");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_INVALID_PAGINATION_TYPE.getMsgForKey("cursor"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateIncrementalWithoutWatermarkPath() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder
+      .extractionMode(SuccessFactorsPluginConfig.INCREMENTAL_EXTRACTION)
+      .build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Watermark path is missing");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_MISSING_PARAM_PREFIX.getMsgForKey("Watermark Path"),
+                          failures.get(0).getMessage());
+    }
+    Assert.assertEquals(SuccessFactorsPluginConfig.DEFAULT_WATERMARK_FIELD, pluginConfig.getWatermarkField());
+  }
+
   @Test
   public void testRefactoredPluginPropertyValues() {
     SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SuccessFactorsInputFormatTest {
+
+  @Test
+  public void testConcurrentSplitsFromSparkExecutors() {
+    Configuration conf = new Configuration(false);
+    conf.set(SuccessFactorsInputFormat.SPARK_EXECUTOR_INSTANCES, "2");
+    conf.set(SuccessFactorsInputFormat.SPARK_EXECUTOR_CORES, "3");
+    Assert.assertEquals(6, SuccessFactorsInputFormat.getConcurrentSplits(conf, 20));
+    // no more than the planned splits
+    Assert.assertEquals(4, SuccessFactorsInputFormat.getConcurrentSplits(conf, 4));
+
+    conf.set(SuccessFactorsInputFormat.SPARK_DYNAMIC_ALLOCATION, "true");
+    conf.set(SuccessFactorsInputFormat.SPARK_MAX_EXECUTORS, "4");
+    Assert.assertEquals(12, SuccessFactorsInputFormat.getConcurrentSplits(conf, 20));
+  }
+
+  @Test
+  public void testConcurrentSplitsFromMapReduceLimit() {
+    Configuration conf = new Configuration(false);
+    conf.set(SuccessFactorsInputFormat.MAPREDUCE_RUNNING_MAP_LIMIT, "5");
+    Assert.assertEquals(5, SuccessFactorsInputFormat.getConcurrentSplits(conf, 20));
+  }
+
+  @Test
+  public void testAllSplitsConcurrentWhenUnbounded() {
+    Configuration conf = new Configuration(false);
+    Assert.assertEquals(20, SuccessFactorsInputFormat.getConcurrentSplits(conf, 20));
+
+    // dynamic allocation without max executors
+    conf.set(SuccessFactorsInputFormat.SPARK_DYNAMIC_ALLOCATION, "true");
+    Assert.assertEquals(20, SuccessFactorsInputFormat.getConcurrentSplits(conf, 20));
+    Assert.assertEquals(1, SuccessFactorsInputFormat.getConcurrentSplits(conf, 0));
+  }
+}
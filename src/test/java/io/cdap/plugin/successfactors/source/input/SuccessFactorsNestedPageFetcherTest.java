@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SuccessFactorsNestedPageFetcherTest {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private HttpServer server;
+  private String serviceURL;
+  private SuccessFactorsNestedPageFetcher fetcher;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final AtomicInteger blockedRequests = new AtomicInteger();
+  private final CountDownLatch blockedRequest = new CountDownLatch(1);
+  private final CountDownLatch unblock = new CountDownLatch(1);
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/odata/v2/Emails", exchange -> respondPage(exchange, "Emails"));
+    server.createContext("/odata/v2/Phones", exchange -> respondPage(exchange, "Phones"));
+    server.createContext("/odata/v2/Reports", exchange -> respondPage(exchange, "Reports"));
+    server.createContext("/odata/v2/Slow", this::respondSlow);
+    server.createContext("/odata/v2/Blocked", this::respondBlocked);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    serviceURL = "http://localhost:" + server.getAddress().getPort() + "/odata/v2";
+
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder()
+      .referenceName("unit-test")
+      .baseURL(serviceURL)
+      .entityName("User")
+      .username("user")
+      .password("password")
+      .build();
+    SuccessFactorsService service = new SuccessFactorsService(pluginConfig,
+                                                              new SuccessFactorsTransporter("user", "password"));
+    fetcher = new SuccessFactorsNestedPageFetcher(service, new SuccessFactorsUrlContainer(pluginConfig),
+                                                  TimeUnit.SECONDS.toMillis(10));
+  }
+
+  @After
+  public void tearDown() {
+    unblock.countDown();
+    fetcher.close();
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  @Test
+  public void testCollectionsCompletedAtAnyDepth() throws Exception {
+    JsonNode record = OBJECT_MAPPER.readTree(
+      "{\"id\":1," +
+        "\"emails\":{\"results\":[{\"n\":1}],\"__next\":\"" + serviceURL + "/Emails?page=2\"}," +
+        "\"manager\":{\"id\":5,\"reports\":{\"results\":[{\"n\":1}]," +
+        "\"__next\":\"" + serviceURL + "/Reports?page=2\"}}}");
+
+    JsonNode completeRecord = fetcher.await(fetcher.complete(record));
+
+    Assert.assertSame(record, completeRecord);
+    JsonNode emails = completeRecord.path("emails");
+    Assert.assertFalse(emails.has("__next"));
+    Assert.assertEquals(3, emails.path("results").size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(i + 1, emails.path("results").path(i).path("n").asInt());
+    }
+    // the last page of the emails holds a collection of its own
+    JsonNode phones = emails.path("results").path(2).path("phones");
+    Assert.assertFalse(phones.has("__next"));
+    Assert.assertEquals(2, phones.path("results").size());
+    Assert.assertEquals(2, phones.path("results").path(1).path("n").asInt());
+
+    JsonNode reports = completeRecord.path("manager").path("reports");
+    Assert.assertFalse(reports.has("__next"));
+    Assert.assertEquals(2, reports.path("results").size());
+  }
+
+  @Test
+  public void testRecordWithoutNextLinkIsCompleteRightAway() throws Exception {
+    JsonNode record = OBJECT_MAPPER.readTree("{\"id\":1,\"emails\":{\"results\":[{\"n\":1}]}}");
+
+    CompletableFuture<JsonNode> completeRecord = fetcher.complete(record);
+
+    Assert.assertTrue(completeRecord.isDone());
+    Assert.assertSame(record, completeRecord.get());
+  }
+
+  @Test
+  public void testCollectionsOfManyRecordsFetchedConcurrently() throws Exception {
+    List<CompletableFuture<JsonNode>> records = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      records.add(fetcher.complete(OBJECT_MAPPER.readTree(
+        "{\"id\":" + i + ",\"emails\":{\"results\":[],\"__next\":\"" + serviceURL + "/Slow?id=" + i + "\"}}")));
+    }
+
+    for (int i = 0; i < records.size(); i++) {
+      JsonNode record = records.get(i).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(i, record.path("id").asInt());
+      Assert.assertEquals(i, record.path("emails").path("results").path(0).path("n").asInt());
+    }
+    Assert.assertTrue("Collections must be fetched concurrently", maxInFlight.get() > 1);
+    Assert.assertTrue("Requests in flight must stay bounded",
+                      maxInFlight.get() <= SuccessFactorsTransporter.DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+  }
+
+  @Test
+  public void testFailedPageFailsTheRecord() throws Exception {
+    JsonNode record = OBJECT_MAPPER.readTree(
+      "{\"id\":1,\"emails\":{\"results\":[],\"__next\":\"" + serviceURL + "/Missing?page=2\"}}");
+
+    try {
+      fetcher.await(fetcher.complete(record));
+      Assert.fail("Expected IOException");
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCancelledRecordStopsFetchingItsCollections() throws Exception {
+    JsonNode record = OBJECT_MAPPER.readTree(
+      "{\"id\":1,\"emails\":{\"results\":[],\"__next\":\"" + serviceURL + "/Blocked?page=2\"}}");
+    CompletableFuture<JsonNode> completeRecord = fetcher.complete(record);
+    Assert.assertTrue(blockedRequest.await(10, TimeUnit.SECONDS));
+
+    completeRecord.cancel(false);
+    unblock.countDown();
+
+    // the page in flight links to a following page, which must not be requested anymore
+    Thread.sleep(500);
+    Assert.assertEquals(1, blockedRequests.get());
+  }
+
+  @Test
+  public void testHasCollections() {
+    Schema item = Schema.recordOf("item", Schema.Field.of("n", Schema.of(Schema.Type.INT)));
+    Schema manager = Schema.recordOf("manager", Schema.Field.of("reports",
+                                                                Schema.nullableOf(Schema.arrayOf(item))));
+    Assert.assertTrue(SuccessFactorsNestedPageFetcher.hasCollections(
+      Schema.recordOf("user", Schema.Field.of("manager", Schema.nullableOf(manager)))));
+    Assert.assertFalse(SuccessFactorsNestedPageFetcher.hasCollections(
+      Schema.recordOf("user", Schema.Field.of("manager", Schema.nullableOf(item)))));
+  }
+
+  private void respondPage(HttpExchange exchange, String collection) throws IOException {
+    String query = exchange.getRequestURI().getQuery();
+    String page;
+    if ("Emails".equals(collection) && "page=2".equals(query)) {
+      page = "{\"d\":{\"results\":[{\"n\":2}],\"__next\":\"" + serviceURL + "/Emails?page=3\"}}";
+    } else if ("Emails".equals(collection)) {
+      page = "{\"d\":{\"results\":[{\"n\":3,\"phones\":{\"results\":[{\"n\":1}],\"__next\":\"" + serviceURL
+        + "/Phones?page=2\"}}]}}";
+    } else {
+      page = "{\"d\":{\"results\":[{\"n\":2}]}}";
+    }
+    respond(exchange, page);
+  }
+
+  private void respondSlow(HttpExchange exchange) throws IOException {
+    int current = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(current, Math::max);
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    inFlight.decrementAndGet();
+    String id = exchange.getRequestURI().getQuery().substring("id=".length());
+    respond(exchange, "{\"d\":{\"results\":[{\"n\":" + id + "}]}}");
+  }
+
+  private void respondBlocked(HttpExchange exchange) throws IOException {
+    blockedRequests.incrementAndGet();
+    blockedRequest.countDown();
+    try {
+      unblock.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    respond(exchange, "{\"d\":{\"results\":[{\"n\":1}],\"__next\":\"" + serviceURL + "/Blocked?page=3\"}}");
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.getResponseHeaders().add("DataServiceVersion", "2.0");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
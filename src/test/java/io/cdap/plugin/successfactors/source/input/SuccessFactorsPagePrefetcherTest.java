@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.input;
+
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SuccessFactorsPagePrefetcherTest {
+
+  @Test
+  public void testPagesAreTakenInSubmitOrder() throws IOException {
+    try (SuccessFactorsPagePrefetcher prefetcher = new SuccessFactorsPagePrefetcher(2)) {
+      prefetcher.submit(() -> buildPage("first", new CountDownLatch(0)));
+      prefetcher.submit(() -> buildPage("second", new CountDownLatch(0)));
+      Assert.assertTrue(prefetcher.isFull());
+
+      Assert.assertEquals("first", readPage(prefetcher.take()));
+      Assert.assertFalse(prefetcher.isFull());
+      Assert.assertEquals("second", readPage(prefetcher.take()));
+      Assert.assertTrue(prefetcher.isEmpty());
+    }
+  }
+
+  @Test
+  public void testPageIsDownloadedBeforeBeingTaken() throws Exception {
+    CountDownLatch released = new CountDownLatch(1);
+    // spilled beyond 4 bytes
+    try (SuccessFactorsPagePrefetcher prefetcher = new SuccessFactorsPagePrefetcher(1, 4)) {
+      prefetcher.submit(() -> buildPage("first page", released));
+
+      Assert.assertTrue("Live stream must be released once downloaded", released.await(10, TimeUnit.SECONDS));
+      SuccessFactorsResponseContainer page = prefetcher.take();
+      Assert.assertFalse(page.isStreamed());
+      Assert.assertEquals("first page", readPage(page));
+    }
+  }
+
+  @Test
+  public void testFetchErrorIsReportedOnTake() {
+    try (SuccessFactorsPagePrefetcher prefetcher = new SuccessFactorsPagePrefetcher(1)) {
+      prefetcher.submit(() -> {
+        throw new TransportException("Connection reset", new IOException("Connection reset"));
+      });
+      prefetcher.take();
+      Assert.fail("Fetch error must be reported");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof TransportException);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSubmitBeyondDepth() {
+    try (SuccessFactorsPagePrefetcher prefetcher = new SuccessFactorsPagePrefetcher(1)) {
+      prefetcher.submit(() -> buildPage("first", new CountDownLatch(0)));
+      prefetcher.submit(() -> buildPage("second", new CountDownLatch(0)));
+    }
+  }
+
+  @Test
+  public void testCloseReleasesPageBeingFetched() throws InterruptedException {
+    CountDownLatch fetching = new CountDownLatch(1);
+    CountDownLatch respond = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    SuccessFactorsPagePrefetcher prefetcher = new SuccessFactorsPagePrefetcher(1);
+    prefetcher.submit(() -> {
+      fetching.countDown();
+      respond.await();
+      return buildPage("first", released);
+    });
+
+    Assert.assertTrue(fetching.await(10, TimeUnit.SECONDS));
+    prefetcher.close();
+    respond.countDown();
+
+    Assert.assertTrue("Page not taken must be released", released.await(10, TimeUnit.SECONDS));
+  }
+
+  private SuccessFactorsResponseContainer buildPage(String body, CountDownLatch released) {
+    ByteArrayInputStream stream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public void close() {
+        released.countDown();
+      }
+    };
+    return SuccessFactorsResponseContainer.builder()
+      .httpStatusCode(200)
+      .httpStatusMsg("OK")
+      .liveResponseStream(stream)
+      .build();
+  }
+
+  private String readPage(SuccessFactorsResponseContainer page) throws IOException {
+    try (SuccessFactorsResponseContainer responseContainer = page) {
+      byte[] bytes = new byte[64];
+      int length = responseContainer.getResponseStream().read(bytes);
+      return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+  }
+}
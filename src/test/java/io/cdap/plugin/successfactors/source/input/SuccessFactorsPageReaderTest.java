@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class SuccessFactorsPageReaderTest {
+
+  @Test
+  public void testReadRecordsAndNextLink() throws IOException {
+    String page = "{\"d\": {\"__count\": \"3\", \"results\": [" +
+      "{\"__metadata\": {\"uri\": \"u1\"}, \"id\": 1, \"nested\": {\"results\": [{\"id\": 11}]}}," +
+      "{\"id\": 2}]," +
+      "\"__next\": \"https://localhost:5000/Entity?$skiptoken=abc\"}}";
+
+    try (SuccessFactorsPageReader pageReader = createPageReader(page)) {
+      JsonNode first = pageReader.nextRecord();
+      Assert.assertEquals(1, first.path("id").asInt());
+      Assert.assertEquals(11, first.path("nested").path("results").get(0).path("id").asInt());
+      Assert.assertNull("Next link is available only after the last record", pageReader.getNextLink());
+      Assert.assertEquals(2, pageReader.nextRecord().path("id").asInt());
+      Assert.assertNull(pageReader.nextRecord());
+      Assert.assertNull(pageReader.nextRecord());
+      Assert.assertEquals(2, pageReader.getRecordCount());
+      Assert.assertEquals("https://localhost:5000/Entity?$skiptoken=abc", pageReader.getNextLink());
+    }
+  }
+
+  @Test
+  public void testReadDataArray() throws IOException {
+    try (SuccessFactorsPageReader pageReader = createPageReader("{\"d\": [{\"id\": 1}]}")) {
+      Assert.assertEquals(1, pageReader.nextRecord().path("id").asInt());
+      Assert.assertNull(pageReader.nextRecord());
+      Assert.assertNull(pageReader.getNextLink());
+    }
+  }
+
+  @Test
+  public void testReadEmptyPage() throws IOException {
+    try (SuccessFactorsPageReader pageReader = createPageReader("{\"d\": {\"results\": []}}")) {
+      Assert.assertNull(pageReader.nextRecord());
+      Assert.assertEquals(0, pageReader.getRecordCount());
+    }
+  }
+
+  private SuccessFactorsPageReader createPageReader(String page) throws IOException {
+    return new SuccessFactorsPageReader(new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SuccessFactorsPageSizeControllerTest {
+
+  private static final long FAST = TimeUnit.SECONDS.toNanos(1);
+  private static final long SMALL = 1024L;
+
+  @Test
+  public void testShrinkToTargets() {
+    SuccessFactorsPageSizeController controller = new SuccessFactorsPageSizeController(1000);
+    Assert.assertEquals(1000, controller.getPageSize());
+
+    // twice the target latency
+    controller.onPageRead(1000, SuccessFactorsPageSizeController.TARGET_LATENCY_NANOS * 2, SMALL);
+    Assert.assertEquals(500, controller.getPageSize());
+
+    // four times the target size, heavy '$expand'
+    controller.onPageRead(500, FAST, SuccessFactorsPageSizeController.TARGET_RESPONSE_BYTES * 4);
+    Assert.assertEquals(125, controller.getPageSize());
+
+    // never below the lowest page size
+    controller.onPageRead(125, SuccessFactorsPageSizeController.TARGET_LATENCY_NANOS * 100, SMALL);
+    Assert.assertEquals(SuccessFactorsPageSizeController.MIN_PAGE_SIZE, controller.getPageSize());
+  }
+
+  @Test
+  public void testGrowUpToPlannedPageSize() {
+    SuccessFactorsPageSizeController controller = new SuccessFactorsPageSizeController(1000);
+    controller.onPageFailed();
+    controller.onPageFailed();
+    Assert.assertEquals(250, controller.getPageSize());
+
+    controller.onPageRead(250, FAST, SMALL);
+    Assert.assertEquals(500, controller.getPageSize());
+    // a smaller page, e.g. the last one of the split, is ignored
+    controller.onPageRead(20, FAST, SMALL);
+    Assert.assertEquals(500, controller.getPageSize());
+    // within the targets but not far enough below them
+    controller.onPageRead(500, SuccessFactorsPageSizeController.TARGET_LATENCY_NANOS * 3 / 4, SMALL);
+    Assert.assertEquals(500, controller.getPageSize());
+
+    controller.onPageRead(500, FAST, SMALL);
+    controller.onPageRead(1000, FAST, SMALL);
+    Assert.assertEquals(1000, controller.getPageSize());
+  }
+
+  @Test
+  public void testFailuresDownToLowestPageSize() {
+    SuccessFactorsPageSizeController controller = new SuccessFactorsPageSizeController(200);
+    Assert.assertTrue(controller.onPageFailed());
+    Assert.assertEquals(100, controller.getPageSize());
+    Assert.assertTrue(controller.onPageFailed());
+    Assert.assertEquals(50, controller.getPageSize());
+    Assert.assertFalse(controller.onPageFailed());
+    Assert.assertEquals(50, controller.getPageSize());
+
+    // a split smaller than the lowest page size
+    Assert.assertFalse(new SuccessFactorsPageSizeController(10).onPageFailed());
+  }
+}
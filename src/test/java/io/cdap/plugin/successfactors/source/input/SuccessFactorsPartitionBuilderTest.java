@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.successfactors.source.input;
+
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeException;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SuccessFactorsPartitionBuilderTest {
+
+  @Test
+  public void testNoRecordsAvailable() {
+    Assert.assertTrue(SuccessFactorsPartitionBuilder.buildSplits(0, 10).isEmpty());
+  }
+
+  @Test
+  public void testGivenNumberOfSplits() {
+    List<SuccessFactorsInputSplit> splits = SuccessFactorsPartitionBuilder.buildSplits(2_000_003, 20);
+
+    Assert.assertEquals(20, splits.size());
+    // remainder of 3 records is distributed over the first 3 splits
+    Assert.assertEquals(100_001, splits.get(0).getLength());
+    Assert.assertEquals(100_001, splits.get(2).getLength());
+    Assert.assertEquals(100_000, splits.get(3).getLength());
+    assertContiguous(splits, 2_000_003);
+  }
+
+  @Test
+  public void testSplitsNeverExceedRecordCount() {
+    List<SuccessFactorsInputSplit> splits = SuccessFactorsPartitionBuilder.buildSplits(3, 10);
+
+    Assert.assertEquals(3, splits.size());
+    Assert.assertEquals(1, splits.get(0).getPageSize());
+    assertContiguous(splits, 3);
+  }
+
+  @Test
+  public void testDerivedNumberOfSplits() {
+    Assert.assertEquals(1, SuccessFactorsPartitionBuilder.buildSplits(500, 0).size());
+    Assert.assertEquals(3, SuccessFactorsPartitionBuilder.buildSplits(25_000, 0).size());
+
+    List<SuccessFactorsInputSplit> splits = SuccessFactorsPartitionBuilder.buildSplits(5_000_000, 0);
+    Assert.assertEquals(SuccessFactorsPartitionBuilder.MAX_DERIVED_SPLITS, splits.size());
+    Assert.assertEquals(SuccessFactorsPartitionBuilder.DEFAULT_PAGE_SIZE, splits.get(0).getPageSize());
+    assertContiguous(splits, 5_000_000);
+  }
+
+  @Test
+  public void testIntegerKeyRangeSplits() throws EdmSimpleTypeException {
+    List<SuccessFactorsInputSplit> splits = SuccessFactorsPartitionBuilder.buildKeyRangeSplits(
+      1_000, 4, "id", EdmSimpleTypeKind.Int64.getEdmSimpleTypeInstance(), 1, 100);
+
+    Assert.assertEquals(4, splits.size());
+    // first and last ranges are open ended
+    Assert.assertEquals("id lt 26L", splits.get(0).getRangeFilter());
+    Assert.assertEquals("id ge 26L and id lt 51L", splits.get(1).getRangeFilter());
+    Assert.assertEquals("id ge 51L and id lt 76L", splits.get(2).getRangeFilter());
+    Assert.assertEquals("id ge 76L", splits.get(3).getRangeFilter());
+    Assert.assertEquals(250, splits.get(0).getLength());
+  }
+
+  @Test
+  public void testDateKeyRangeSplits() throws EdmSimpleTypeException {
+    List<SuccessFactorsInputSplit> splits = SuccessFactorsPartitionBuilder.buildKeyRangeSplits(
+      1_000, 2, "startDate", EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance(), 1609459200000L, 1609545599999L);
+
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals("startDate lt datetime'2021-01-01T12:00:00'", splits.get(0).getRangeFilter());
+    Assert.assertEquals("startDate ge datetime'2021-01-01T12:00:00'", splits.get(1).getRangeFilter());
+  }
+
+  @Test
+  public void testKeyRangeSplitsNeverExceedKeyValues() throws EdmSimpleTypeException {
+    List<SuccessFactorsInputSplit> splits = SuccessFactorsPartitionBuilder.buildKeyRangeSplits(
+      1_000, 10, "id", EdmSimpleTypeKind.Int32.getEdmSimpleTypeInstance(), 5, 7);
+    Assert.assertEquals(3, splits.size());
+
+    // single key value falls back to one record range split
+    splits = SuccessFactorsPartitionBuilder.buildKeyRangeSplits(
+      1_000, 10, "id", EdmSimpleTypeKind.Int32.getEdmSimpleTypeInstance(), 5, 5);
+    Assert.assertEquals(1, splits.size());
+    Assert.assertNull(splits.get(0).getRangeFilter());
+    assertContiguous(splits, 1_000);
+  }
+
+  private void assertContiguous(List<SuccessFactorsInputSplit> splits, long recordCount) {
+    long expectedStart = 0;
+    for (SuccessFactorsInputSplit split : splits) {
+      Assert.assertEquals("Split ranges are not contiguous.", expectedStart, split.getStart());
+      expectedStart = split.getEnd();
+    }
+    Assert.assertEquals("Splits do not cover all the records.", recordCount, expectedStart);
+  }
+}
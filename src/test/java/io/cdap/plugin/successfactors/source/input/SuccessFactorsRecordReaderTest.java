@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SuccessFactorsRecordReaderTest {
+
+  private static final Schema EMAIL_SCHEMA = Schema.recordOf("email", Schema.Field.of("n", Schema.of(Schema.Type.INT)));
+  private static final Schema USER_SCHEMA = Schema.recordOf(
+    "user",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("emails", Schema.nullableOf(Schema.arrayOf(EMAIL_SCHEMA))));
+
+  private HttpServer server;
+  private String serviceURL;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/odata/v2/User", this::respondUsers);
+    server.createContext("/odata/v2/Emails", this::respondEmails);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    serviceURL = "http://localhost:" + server.getAddress().getPort() + "/odata/v2";
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  @Test
+  public void testExpandedCollectionsWithOneConcurrentRequest() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder()
+      .referenceName("unit-test")
+      .baseURL(serviceURL)
+      .entityName("User")
+      .username("user")
+      .password("password")
+      .paginationType(SuccessFactorsPluginConfig.SERVER_SIDE_PAGINATION)
+      .maxConcurrentRequests(1)
+      .build();
+    Configuration conf = new Configuration();
+    new SuccessFactorsInputFormatProvider(pluginConfig, USER_SCHEMA, Collections.singletonList("id"), null, null)
+      .getInputFormatConfiguration()
+      .forEach(conf::set);
+    SuccessFactorsInputSplit split = new SuccessFactorsInputSplit(0, 2, 100);
+    split.setRequestBudget(0, pluginConfig.getMaxConcurrentRequests());
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // the page of the users holds the only concurrent request slot while the emails are fetched
+      Future<List<StructuredRecord>> read = executor.submit(() -> {
+        List<StructuredRecord> records = new ArrayList<>();
+        try (SuccessFactorsRecordReader recordReader = new SuccessFactorsRecordReader()) {
+          recordReader.initialize(split, new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+          while (recordReader.nextKeyValue()) {
+            records.add(recordReader.getCurrentValue());
+          }
+        }
+        return records;
+      });
+      List<StructuredRecord> records = read.get(30, TimeUnit.SECONDS);
+
+      Assert.assertEquals(2, records.size());
+      for (int i = 0; i < records.size(); i++) {
+        Assert.assertEquals(i + 1, (int) records.get(i).<Integer>get("id"));
+        List<StructuredRecord> emails = records.get(i).get("emails");
+        Assert.assertEquals(3, emails.size());
+        for (int n = 0; n < emails.size(); n++) {
+          Assert.assertEquals(n + 1, (int) emails.get(n).<Integer>get("n"));
+        }
+      }
+      Assert.assertEquals("Collection pages in flight must stay within the budget", 1, maxInFlight.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void respondUsers(HttpExchange exchange) throws IOException {
+    StringBuilder page = new StringBuilder("{\"d\":{\"results\":[");
+    for (int id = 1; id <= 2; id++) {
+      page.append(id == 1 ? "" : ",")
+        .append("{\"id\":").append(id)
+        .append(",\"emails\":{\"results\":[{\"n\":1}],\"__next\":\"").append(serviceURL).append("/Emails?page=2\"}}");
+    }
+    respond(exchange, page.append("]}}").toString());
+  }
+
+  private void respondEmails(HttpExchange exchange) throws IOException {
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      if ("page=2".equals(exchange.getRequestURI().getQuery())) {
+        respond(exchange, "{\"d\":{\"results\":[{\"n\":2}],\"__next\":\"" + serviceURL + "/Emails?page=3\"}}");
+      } else {
+        respond(exchange, "{\"d\":{\"results\":[{\"n\":3}]}}");
+      }
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.getResponseHeaders().add("DataServiceVersion", "2.0");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.input;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class SuccessFactorsWatermarkStoreTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadAndWriteWatermark() throws IOException {
+    File watermarkFile = new File(temporaryFolder.getRoot(), "PerPerson.watermark");
+    SuccessFactorsWatermarkStore watermarkStore = new SuccessFactorsWatermarkStore(watermarkFile.toURI().toString());
+
+    Assert.assertNull("No watermark before the first run", watermarkStore.read());
+
+    watermarkStore.write("datetimeoffset'2022-01-01T00:00:00Z'");
+    Assert.assertEquals("datetimeoffset'2022-01-01T00:00:00Z'", watermarkStore.read());
+
+    watermarkStore.write("datetimeoffset'2022-01-02T00:00:00.123Z'");
+    Assert.assertEquals("datetimeoffset'2022-01-02T00:00:00.123Z'", watermarkStore.read());
+  }
+
+  @Test
+  public void testBuildDeltaFilter() {
+    Assert.assertNull(SuccessFactorsWatermarkStore.buildDeltaFilter("lastModifiedDateTime", null, null));
+    Assert.assertEquals("lastModifiedDateTime le datetimeoffset'2022-01-02T00:00:00Z'",
+                        SuccessFactorsWatermarkStore.buildDeltaFilter("lastModifiedDateTime", null,
+                                                                      "datetimeoffset'2022-01-02T00:00:00Z'"));
+    Assert.assertEquals("lastModifiedDateTime gt datetimeoffset'2022-01-01T00:00:00Z'",
+                        SuccessFactorsWatermarkStore.buildDeltaFilter("lastModifiedDateTime",
+                                                                      "datetimeoffset'2022-01-01T00:00:00Z'", null));
+    Assert.assertEquals("lastModifiedDateTime gt datetimeoffset'2022-01-01T00:00:00Z' and " +
+                          "lastModifiedDateTime le datetimeoffset'2022-01-02T00:00:00Z'",
+                        SuccessFactorsWatermarkStore.buildDeltaFilter("lastModifiedDateTime",
+                                                                      "datetimeoffset'2022-01-01T00:00:00Z'",
+                                                                      "datetimeoffset'2022-01-02T00:00:00Z'"));
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.apache.olingo.odata2.api.ep.EntityProviderException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SuccessFactorsEntityProviderTest {
+
+  private static final String ENTITY_NAME = "C_GLAccountHierarchyNode";
+  private SuccessFactorsEntityProvider entityProvider;
+
+  @Before
+  public void setup() throws EntityProviderException {
+    Edm edm = EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource("successfactors-metadata.xml"), false);
+    entityProvider = new SuccessFactorsEntityProvider(edm);
+  }
+
+  @Test
+  public void testGetEntitySet() throws EdmException {
+    Assert.assertEquals(ENTITY_NAME, entityProvider.getEntitySet(ENTITY_NAME).getName());
+    Assert.assertEquals("C_GLAccountHierarchyNodeType", entityProvider.getEntityType(ENTITY_NAME).getName());
+    Assert.assertNull(entityProvider.getEntitySet("Unknown"));
+    Assert.assertNull(entityProvider.getEntitySet(null));
+  }
+
+  @Test
+  public void testGetNavigationProperty() throws EdmException {
+    Assert.assertEquals("to_Text", entityProvider.getNavigationProperty(ENTITY_NAME, "to_Text").getName());
+    Assert.assertEquals("C_GLAccountHierarchyNodeTType",
+                        entityProvider.getNavigationPropertyEntityType(ENTITY_NAME, "to_Text").getName());
+
+    // the path is resolved from the already resolved parent path
+    Assert.assertEquals("to_GLAccountHierarchyNode",
+                        entityProvider.getNavigationProperty(ENTITY_NAME, "to_Text/to_GLAccountHierarchyNode")
+                          .getName());
+    Assert.assertEquals("C_GLAccountHierarchyNodeType",
+                        entityProvider.getNavigationPropertyEntityType(ENTITY_NAME, "to_Text/to_GLAccountHierarchyNode")
+                          .getName());
+
+    // names which are not navigation properties are skipped
+    Assert.assertEquals("to_Text", entityProvider.getNavigationProperty(ENTITY_NAME, "to_Text/HierarchyNode")
+      .getName());
+    Assert.assertNull(entityProvider.getNavigationProperty(ENTITY_NAME, "HierarchyNode"));
+    Assert.assertNull(entityProvider.getNavigationProperty("Unknown", "to_Text"));
+  }
+
+  @Test
+  public void testGetComplexTypeNotFound() throws EdmException {
+    Assert.assertNull(entityProvider.getComplexType("C_GLACCOUNTHIERARCHYNODE_SRV", "Unknown"));
+    Assert.assertNull(entityProvider.getComplexType("C_GLACCOUNTHIERARCHYNODE_SRV", "Unknown"));
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+
+public class SuccessFactorsMetadataCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testPutAndGet() throws IOException {
+    SuccessFactorsMetadataCache cache = new SuccessFactorsMetadataCache(temporaryFolder.getRoot().toPath(),
+                                                                        SuccessFactorsMetadataCache.DEFAULT_MAX_SIZE);
+    String key = SuccessFactorsMetadataCache.buildKey("https://localhost:5000", "Entity", "user");
+    Assert.assertNull(cache.get(key));
+
+    cache.put(key, "W/\"1\"", "<edmx/>".getBytes(StandardCharsets.UTF_8));
+    SuccessFactorsMetadataCache.CachedMetadata cachedMetadata = cache.get(key);
+    Assert.assertEquals("W/\"1\"", cachedMetadata.getETag());
+    Assert.assertEquals("<edmx/>", new String(cachedMetadata.getMetadata(), StandardCharsets.UTF_8));
+
+    cache.put(key, "W/\"2\"", "<edmx></edmx>".getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals("W/\"2\"", cache.get(key).getETag());
+  }
+
+  @Test
+  public void testKeyIsUserSpecific() {
+    Assert.assertNotEquals(SuccessFactorsMetadataCache.buildKey("https://localhost:5000", "Entity", "user1"),
+                           SuccessFactorsMetadataCache.buildKey("https://localhost:5000", "Entity", "user2"));
+    Assert.assertNotEquals(SuccessFactorsMetadataCache.buildKey("https://localhost:5000", "Entity", null),
+                           SuccessFactorsMetadataCache.buildKey("https://localhost:5000", "Entity2", null));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() throws IOException {
+    Path cacheDirectory = temporaryFolder.getRoot().toPath();
+    byte[] metadata = new byte[100];
+    // room for two entries only
+    SuccessFactorsMetadataCache cache = new SuccessFactorsMetadataCache(cacheDirectory, 250);
+
+    cache.put("first", "1", metadata);
+    cache.put("second", "2", metadata);
+    Files.setLastModifiedTime(cacheDirectory.resolve("first.edmx"), FileTime.fromMillis(1000L));
+    Files.setLastModifiedTime(cacheDirectory.resolve("second.edmx"), FileTime.fromMillis(2000L));
+    // reading marks the entry as recently used
+    Assert.assertNotNull(cache.get("first"));
+
+    cache.put("third", "3", metadata);
+    Assert.assertNotNull(cache.get("first"));
+    Assert.assertNull(cache.get("second"));
+    Assert.assertNotNull(cache.get("third"));
+  }
+
+  @Test
+  public void testDirectoryCreatedForOwnerOnly() throws IOException {
+    Assume.assumeTrue(isPosix());
+    Path cacheDirectory = temporaryFolder.getRoot().toPath().resolve("home").resolve("cache");
+    SuccessFactorsMetadataCache cache = new SuccessFactorsMetadataCache(cacheDirectory,
+                                                                        SuccessFactorsMetadataCache.DEFAULT_MAX_SIZE);
+    Assert.assertNull(cache.get("first"));
+    Assert.assertFalse("Reading must not create the directory", Files.exists(cacheDirectory));
+
+    cache.put("first", "1", new byte[100]);
+    Assert.assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDirectory)));
+  }
+
+  @Test
+  public void testExistingDirectoryRestrictedToOwner() throws IOException {
+    Assume.assumeTrue(isPosix());
+    Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+    Files.setPosixFilePermissions(cacheDirectory, PosixFilePermissions.fromString("rwxrwxrwx"));
+    SuccessFactorsMetadataCache cache = new SuccessFactorsMetadataCache(cacheDirectory,
+                                                                        SuccessFactorsMetadataCache.DEFAULT_MAX_SIZE);
+
+    cache.put("first", "1", new byte[100]);
+    Assert.assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDirectory)));
+    Assert.assertNotNull(cache.get("first"));
+  }
+
+  @Test
+  public void testDirectoryOfAnotherUserRefused() throws IOException {
+    Assume.assumeTrue(isPosix());
+    Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+    Files.write(cacheDirectory.resolve("first.edmx"), new byte[100]);
+    try {
+      UserPrincipal otherUser = cacheDirectory.getFileSystem().getUserPrincipalLookupService()
+        .lookupPrincipalByName("nobody");
+      Files.setOwner(cacheDirectory, otherUser);
+    } catch (IOException e) {
+      // only a privileged user can give away a directory
+      Assume.assumeNoException(e);
+    }
+    SuccessFactorsMetadataCache cache = new SuccessFactorsMetadataCache(cacheDirectory,
+                                                                        SuccessFactorsMetadataCache.DEFAULT_MAX_SIZE);
+
+    try {
+      cache.get("first");
+      Assert.fail("Directory of another user must not be read");
+    } catch (IOException expected) {
+      // expected
+    }
+    try {
+      cache.put("second", "2", new byte[100]);
+      Assert.fail("Directory of another user must not be written");
+    } catch (IOException expected) {
+      // expected
+    }
+    Assert.assertFalse(Files.exists(cacheDirectory.resolve("second.edmx")));
+  }
+
+  private boolean isPosix() {
+    return temporaryFolder.getRoot().toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.apache.olingo.odata2.api.ep.EntityProviderException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+
+public class SuccessFactorsMetadataFilterTest {
+
+  private static final String ENTITY_NAME = "C_GLAccountHierarchyNode";
+  private byte[] metadata;
+
+  @Before
+  public void setup() throws IOException {
+    try (InputStream stream = TestSuccessFactorsUtil.readResource("successfactors-metadata.xml")) {
+      metadata = ByteStreams.toByteArray(stream);
+    }
+  }
+
+  @Test
+  public void testDefaultSchemaOfReducedMetadata() throws Exception {
+    byte[] reducedMetadata = SuccessFactorsMetadataFilter.filter(metadata, ENTITY_NAME, Collections.emptyList());
+
+    Assert.assertTrue("Metadata is not reduced.", reducedMetadata.length < metadata.length);
+    SuccessFactorsEntityProvider reducedProvider = parse(reducedMetadata);
+    Assert.assertNull(reducedProvider.getEntitySet("I_GLAccountInChartOfAccounts"));
+    Assert.assertEquals(new SuccessFactorsSchemaGenerator(parse(metadata)).buildDefaultOutputSchema(ENTITY_NAME),
+                        new SuccessFactorsSchemaGenerator(reducedProvider).buildDefaultOutputSchema(ENTITY_NAME));
+  }
+
+  @Test
+  public void testExpandSchemaOfReducedMetadata() throws Exception {
+    List<String> expandPaths = ImmutableList.of("to_GLAccountInChartOfAccounts", "to_Text/to_GLAccountHierarchyNode");
+    SuccessFactorsEntityProvider reducedProvider = parse(SuccessFactorsMetadataFilter.filter(metadata, ENTITY_NAME,
+                                                                                             expandPaths));
+
+    Assert.assertNotNull(reducedProvider.getEntitySet("I_GLAccountInChartOfAccounts"));
+    for (String expandOption : new String[]{"to_GLAccountInChartOfAccounts", "to_Text/to_GLAccountHierarchyNode",
+      "to_GLAccountInChartOfAccounts,to_Text/to_GLAccountHierarchyNode"}) {
+      Assert.assertEquals(new SuccessFactorsSchemaGenerator(parse(metadata))
+                            .buildExpandOutputSchema(ENTITY_NAME, expandOption),
+                          new SuccessFactorsSchemaGenerator(reducedProvider)
+                            .buildExpandOutputSchema(ENTITY_NAME, expandOption));
+    }
+  }
+
+  @Test
+  public void testSelectSchemaOfReducedMetadata() throws Exception {
+    String selectOption = "to_GLAccountInChartOfAccounts/GLAccount,HierarchyNode";
+    byte[] reducedMetadata = SuccessFactorsMetadataFilter.filter(metadata, ENTITY_NAME,
+                                                                 ImmutableList.copyOf(selectOption.split(",")));
+
+    Schema expected = new SuccessFactorsSchemaGenerator(parse(metadata)).buildSelectOutputSchema(ENTITY_NAME,
+                                                                                               selectOption);
+    Assert.assertEquals(expected, new SuccessFactorsSchemaGenerator(parse(reducedMetadata))
+      .buildSelectOutputSchema(ENTITY_NAME, selectOption));
+  }
+
+  @Test
+  public void testUnknownEntity() throws XMLStreamException {
+    Assert.assertNull(SuccessFactorsMetadataFilter.filter(metadata, "Unknown", Collections.emptyList()));
+  }
+
+  private SuccessFactorsEntityProvider parse(byte[] metadata) throws EntityProviderException {
+    return new SuccessFactorsEntityProvider(EntityProvider.readMetadata(new ByteArrayInputStream(metadata), false));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SuccessFactorsSchemaCacheTest {
+
+  private static final Schema SCHEMA = Schema.recordOf("SuccessFactorsColumnMetadata",
+                                                       Schema.Field.of("id", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testKey() {
+    byte[] metadata = "<edmx/>".getBytes(StandardCharsets.UTF_8);
+    String key = SuccessFactorsSchemaCache.buildKey(metadata, "Entity", null, "to_Text");
+
+    Assert.assertEquals(key, SuccessFactorsSchemaCache.buildKey(metadata, "Entity", "", "to_Text"));
+    Assert.assertNotEquals(key, SuccessFactorsSchemaCache.buildKey(metadata, "Entity", "to_Text", null));
+    Assert.assertNotEquals(key, SuccessFactorsSchemaCache.buildKey("<edmx></edmx>".getBytes(StandardCharsets.UTF_8),
+                                                                   "Entity", null, "to_Text"));
+  }
+
+  @Test
+  public void testSchemaIsGeneratedOnce() throws Exception {
+    SuccessFactorsSchemaCache cache = new SuccessFactorsSchemaCache(10, 1, TimeUnit.MINUTES);
+    AtomicInteger generations = new AtomicInteger();
+    CountDownLatch generating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Schema> first = executor.submit(() -> cache.get("key", () -> {
+        generations.incrementAndGet();
+        generating.countDown();
+        awaitQuietly(release);
+        return SCHEMA;
+      }));
+      Assert.assertTrue(generating.await(10, TimeUnit.SECONDS));
+      // concurrent request for the same key waits for the running generation
+      Future<Schema> second = executor.submit(() -> cache.get("key", () -> {
+        generations.incrementAndGet();
+        return SCHEMA;
+      }));
+      release.countDown();
+
+      Assert.assertSame(SCHEMA, first.get(10, TimeUnit.SECONDS));
+      Assert.assertSame(SCHEMA, second.get(10, TimeUnit.SECONDS));
+      Assert.assertSame(SCHEMA, cache.get("key", () -> {
+        throw new AssertionError("Schema must be cached");
+      }));
+      Assert.assertEquals(1, generations.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailureIsNotCached() throws Exception {
+    SuccessFactorsSchemaCache cache = new SuccessFactorsSchemaCache(10, 1, TimeUnit.MINUTES);
+    try {
+      cache.get("key", () -> {
+        throw new SuccessFactorsServiceException("Entity not found");
+      });
+      Assert.fail("Generation failure must be reported");
+    } catch (SuccessFactorsServiceException e) {
+      Assert.assertEquals("Entity not found", e.getMessage());
+    }
+
+    Assert.assertSame(SCHEMA, cache.get("key", () -> SCHEMA));
+  }
+
+  @Test(expected = TransportException.class)
+  public void testTransportFailure() throws Exception {
+    new SuccessFactorsSchemaCache(10, 1, TimeUnit.MINUTES).get("key", () -> {
+      throw new TransportException("Connection reset", new RuntimeException());
+    });
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -102,6 +102,20 @@ public class SuccessFactorsSchemaGeneratorTest {
                         outputSchema.getFields().get(lastIndex).getSchema().getNonNullable().getFields().size());
   }
 
+  @Test
+  public void testNestedRecordNameIsStable() throws SuccessFactorsServiceException {
+    Schema outputSchema = generator.buildExpandOutputSchema("C_GLAccountHierarchyNode",
+                                                            "to_GLAccountInChartOfAccounts");
+    Schema rebuiltSchema = new SuccessFactorsSchemaGenerator(serviceHelper)
+      .buildExpandOutputSchema("C_GLAccountHierarchyNode", "to_GLAccountInChartOfAccounts");
+
+    Assert.assertEquals("Schema is not same across the builds.", outputSchema, rebuiltSchema);
+    Assert.assertEquals(outputSchema.getSchemaHash(), rebuiltSchema.getSchemaHash());
+    String recordName = getFieldSchema(outputSchema.getFields(), "to_GLAccountInChartOfAccounts").getRecordName();
+    Assert.assertTrue("Nested record name is not valid: " + recordName,
+                      recordName.matches("to_GLAccountInChartOfAccounts_[0-9A-F]{32}"));
+  }
+
   @Test
   public void testBuildDefaultOutputSchema() throws SuccessFactorsServiceException {
     Schema outputSchema = generator.buildDefaultOutputSchema("C_GLAccountHierarchyNode");
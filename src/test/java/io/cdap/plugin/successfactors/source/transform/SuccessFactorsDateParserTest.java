@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+public class SuccessFactorsDateParserTest {
+
+  @Test
+  public void testParseDateLiterals() {
+    Assert.assertEquals(1609459200000L, SuccessFactorsDateParser.parseEpochMillis("/Date(1609459200000)/"));
+    Assert.assertEquals(1609459200000L, SuccessFactorsDateParser.parseEpochMillis("/Date(1609459200000+0060)/"));
+    Assert.assertEquals(-1L, SuccessFactorsDateParser.parseEpochMillis("/Date(-1)/"));
+
+    Assert.assertEquals(LocalDateTime.of(2021, 1, 1, 1, 0),
+                        SuccessFactorsDateParser.parseDateTime("/Date(1609459200000+0060)/"));
+    Assert.assertEquals(LocalDateTime.of(2020, 12, 31, 22, 30),
+                        SuccessFactorsDateParser.parseDateTime("/Date(1609459200000-0090)/"));
+    // before the epoch, the milliseconds are still positive
+    Assert.assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000),
+                        SuccessFactorsDateParser.parseDateTime("/Date(-1)/"));
+  }
+
+  @Test
+  public void testParseSameAsJdk() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      long millis = (long) ((random.nextDouble() - 0.5) * 2 * 253402300799999L);
+      int offsetMinutes = random.nextInt(2 * 18 * 60 + 1) - 18 * 60;
+      String offset = String.format("%s%04d", offsetMinutes < 0 ? "-" : "+", Math.abs(offsetMinutes));
+      LocalDateTime expected = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis),
+                                                       ZoneOffset.ofTotalSeconds(offsetMinutes * 60));
+
+      LocalDateTime dateTime = SuccessFactorsDateParser.parseDateTime("/Date(" + millis + offset + ")/");
+      Assert.assertEquals(expected, dateTime);
+      Assert.assertEquals(expected.format(DateTimeFormatter.ISO_DATE_TIME),
+                          SuccessFactorsDateParser.formatDateTime(dateTime));
+    }
+  }
+
+  @Test
+  public void testFormatSameAsJdk() {
+    LocalDateTime[] dateTimes = {
+      LocalDateTime.of(2021, 1, 1, 0, 0),
+      LocalDateTime.of(2021, 1, 1, 0, 0, 0, 250_000_000),
+      LocalDateTime.of(2021, 1, 1, 0, 0, 0, 123_456_789),
+      LocalDateTime.of(2021, 1, 1, 0, 0, 0, 1),
+      LocalDateTime.of(12, 6, 30, 23, 59, 59),
+      LocalDateTime.of(10000, 1, 1, 0, 0),
+      LocalDateTime.of(-1, 1, 1, 0, 0)
+    };
+    for (LocalDateTime dateTime : dateTimes) {
+      Assert.assertEquals(dateTime.format(DateTimeFormatter.ISO_DATE_TIME),
+                          SuccessFactorsDateParser.formatDateTime(dateTime));
+    }
+  }
+
+  @Test
+  public void testInvalidDateLiterals() {
+    String[] values = {"", "/Date()/", "/Date(-)/", "/Date(12a)/", "/Date(12+060)/", "/Date(12+00600)/",
+      "/Date(12*0060)/", "Date(12)/", "/Date(12)", "/date(12)/", "2021-01-01T00:00:00", "/Date(99999999999999999999)/"};
+    for (String value : values) {
+      try {
+        SuccessFactorsDateParser.parseEpochMillis(value);
+        Assert.fail(String.format("'%s' must not be parsed", value));
+      } catch (IllegalArgumentException expected) {
+        // expected
+      }
+    }
+
+    try {
+      SuccessFactorsDateParser.parseDateTime("/Date(0+9999)/");
+      Assert.fail("Offset beyond 18 hours must not be parsed");
+    } catch (DateTimeException expected) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+public class SuccessFactorsDecimalDecoderTest {
+
+  @Test
+  public void testDecodeSameAsBigDecimal() {
+    String[] values = {"0", "-0", "+1", "1", "-1", ".5", "1.", "0.05", "-0.004", "-0.005", "1234.50", "1234.5",
+      "1234.555", "-1234.555", "9.99", "9.95", "99.9", "0000123.4500", "1234567890123456.78", "1E+3", "1.5e-2"};
+    int[][] precisionScales = {{18, 2}, {10, 1}, {5, 3}, {20, 4}, {6, 0}, {18, 18}};
+
+    for (String value : values) {
+      for (int[] precisionScale : precisionScales) {
+        assertSameAsBigDecimal(value, precisionScale[0], precisionScale[1]);
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeRandomValuesSameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      int precision = 1 + random.nextInt(20);
+      int scale = random.nextInt(precision + 1);
+      StringBuilder value = new StringBuilder(random.nextBoolean() ? "-" : "");
+      int integerDigits = random.nextInt(precision - scale + 2);
+      for (int d = 0; d < integerDigits; d++) {
+        value.append(random.nextInt(10));
+      }
+      value.append('.');
+      int fractionDigits = 1 + random.nextInt(scale + 3);
+      for (int d = 0; d < fractionDigits; d++) {
+        value.append(random.nextInt(10));
+      }
+      assertSameAsBigDecimal(value.toString(), precision, scale);
+    }
+  }
+
+  @Test
+  public void testDecodeInvalidValue() {
+    for (String value : new String[]{"", "-", "+", ".", "1.2.3", "12a", " 1", "--1"}) {
+      try {
+        SuccessFactorsDecimalDecoder.decode(value, 10, 2);
+        Assert.fail("Expected NumberFormatException for '" + value + "'");
+      } catch (NumberFormatException expected) {
+        // expected
+      }
+    }
+
+    try {
+      SuccessFactorsDecimalDecoder.decode("12345678901234567.8", 18, 2);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Value '12345678901234567.80' has precision '19' which is higher than schema precision '18'.",
+                          e.getMessage());
+    }
+  }
+
+  @Test
+  public void testToByteArraySameAsBigInteger() {
+    long[] values = {0, 1, -1, 127, 128, -128, -129, 255, 256, 32767, -32769, Long.MAX_VALUE, Long.MIN_VALUE};
+    for (long value : values) {
+      Assert.assertArrayEquals(String.valueOf(value), BigInteger.valueOf(value).toByteArray(),
+                               SuccessFactorsDecimalDecoder.toByteArray(value));
+    }
+  }
+
+  private static void assertSameAsBigDecimal(String value, int precision, int scale) {
+    BigDecimal decimal = new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP);
+    if (decimal.precision() > precision) {
+      try {
+        SuccessFactorsDecimalDecoder.decode(value, precision, scale);
+        Assert.fail(String.format("Expected IllegalArgumentException for '%s'(%d,%d)", value, precision, scale));
+      } catch (IllegalArgumentException expected) {
+        // expected
+      }
+      return;
+    }
+    Assert.assertArrayEquals(String.format("'%s'(%d,%d)", value, precision, scale),
+                             decimal.unscaledValue().toByteArray(),
+                             SuccessFactorsDecimalDecoder.decode(value, precision, scale));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+public class SuccessFactorsDurationParserTest {
+
+  @Test
+  public void testParseTimeOfDay() {
+    Assert.assertEquals(37815_000_000L, SuccessFactorsDurationParser.parseMicros("PT10H30M15S"));
+    Assert.assertEquals(0L, SuccessFactorsDurationParser.parseMicros("PT00H00M00S"));
+    Assert.assertEquals(1_500_000L, SuccessFactorsDurationParser.parseMicros("PT1.5S"));
+    Assert.assertEquals(123_456L, SuccessFactorsDurationParser.parseMicros("PT0.123456789S"));
+    Assert.assertEquals(1_800_000_000L, SuccessFactorsDurationParser.parseMicros("PT30M"));
+  }
+
+  @Test
+  public void testSameAsJdk() {
+    String[] values = {"PT23H59M59S", "PT8H", "PT45S", "PT1H1S", "PT0.S", "PT1.000000001S", "PT999999H59M59.999S",
+      "P1DT2H", "-PT10H", "PT-10H30M", "PT1,5S", "pt1h", "PT10H30M15.5S", "PT1234567H", "PT1000000000S"};
+    for (String value : values) {
+      Assert.assertEquals(value, Duration.parse(value).toNanos() / 1000,
+                          SuccessFactorsDurationParser.parseMicros(value));
+    }
+
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      String value = String.format("PT%02dH%02dM%02d.%03dS", random.nextInt(24), random.nextInt(60),
+                                   random.nextInt(60), random.nextInt(1000));
+      Assert.assertEquals(value, Duration.parse(value).toNanos() / 1000,
+                          SuccessFactorsDurationParser.parseMicros(value));
+    }
+  }
+
+  @Test
+  public void testInvalidDurations() {
+    String[] values = {"", "PT", "P", "PTH", "PT10", "PT10X", "PT10S30M", "PT10H10H", "PT1.5", "PT1.5M", "10:30:15"};
+    for (String value : values) {
+      try {
+        SuccessFactorsDurationParser.parseMicros(value);
+        Assert.fail(String.format("'%s' must not be parsed", value));
+      } catch (DateTimeParseException expected) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+public class SuccessFactorsTransformerTest {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final Schema ADDRESS_SCHEMA = Schema.recordOf(
+    "address",
+    Schema.Field.of("city", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "entity",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("active", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("amount", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("createdOn", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))),
+    Schema.Field.of("modifiedOn", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("startTime", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MICROS))),
+    Schema.Field.of("homeAddress", Schema.nullableOf(ADDRESS_SCHEMA)),
+    Schema.Field.of("addresses", Schema.nullableOf(Schema.arrayOf(ADDRESS_SCHEMA))));
+
+  @Test
+  public void testTransform() throws IOException {
+    String entry = "{\"__metadata\": {\"uri\": \"u1\"}, \"id\": \"42\", \"active\": true, \"amount\": \"12.345\"," +
+      "\"createdOn\": \"/Date(1609459200000+0060)/\", \"modifiedOn\": \"/Date(1609459200000)/\"," +
+      "\"startTime\": \"PT10H30M15S\", \"homeAddress\": {\"city\": \"Walldorf\"}," +
+      "\"addresses\": {\"results\": [{\"city\": \"Berlin\"}, {\"city\": null}]}}";
+
+    StructuredRecord record = new SuccessFactorsTransformer(SCHEMA).transform(OBJECT_MAPPER.readTree(entry));
+
+    Assert.assertEquals(42L, (long) record.get("id"));
+    Assert.assertTrue(record.get("active"));
+    Assert.assertEquals(new BigDecimal("12.35"), record.getDecimal("amount"));
+    Assert.assertEquals(LocalDateTime.of(2021, 1, 1, 1, 0), record.getDateTime("createdOn"));
+    Assert.assertEquals(1609459200000_000L, (long) record.get("modifiedOn"));
+    Assert.assertEquals(LocalTime.of(10, 30, 15), record.getTime("startTime"));
+    Assert.assertEquals("Walldorf", record.<StructuredRecord>get("homeAddress").get("city"));
+    List<StructuredRecord> addresses = record.get("addresses");
+    Assert.assertEquals(2, addresses.size());
+    Assert.assertEquals("Berlin", addresses.get(0).get("city"));
+    Assert.assertNull(addresses.get(1).get("city"));
+  }
+
+  @Test
+  public void testTransformMissingAndDeferredValues() throws IOException {
+    String entry = "{\"id\": \"1\", \"homeAddress\": {\"__deferred\": {\"uri\": \"u1\"}}}";
+
+    StructuredRecord record = new SuccessFactorsTransformer(SCHEMA).transform(OBJECT_MAPPER.readTree(entry));
+
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertNull(record.get("amount"));
+    Assert.assertNull(record.get("homeAddress"));
+    Assert.assertNull(record.get("addresses"));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testTransformNullNonNullableValue() throws IOException {
+    String entry = "{\"id\": null, \"amount\": null}";
+    new SuccessFactorsTransformer(SCHEMA).transform(OBJECT_MAPPER.readTree(entry));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testTransformDecimalPrecisionOverflow() throws IOException {
+    String entry = "{\"id\": \"1\", \"amount\": \"123456789.1\"}";
+    new SuccessFactorsTransformer(SCHEMA).transform(OBJECT_MAPPER.readTree(entry));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testTransformInvalidDate() throws IOException {
+    String entry = "{\"id\": \"1\", \"createdOn\": \"2021-01-01\"}";
+    new SuccessFactorsTransformer(SCHEMA).transform(OBJECT_MAPPER.readTree(entry));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import okhttp3.OkHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+public class SuccessFactorsHttpClientRegistryTest {
+
+  @Test
+  public void testClientSharedPerBaseURL() throws MalformedURLException {
+    OkHttpClient metadataClient = SuccessFactorsHttpClientRegistry
+      .getClient(new URL("https://localhost/odata/v2/$metadata"), 300, 300, 300);
+    OkHttpClient dataClient = SuccessFactorsHttpClientRegistry
+      .getClient(new URL("https://localhost:443/odata/v2/Entity?$top=10"), 300, 300, 300);
+
+    Assert.assertSame(metadataClient, dataClient);
+    Assert.assertEquals(300_000, dataClient.readTimeoutMillis());
+  }
+
+  @Test
+  public void testConnectionPoolSharedAcrossClients() throws MalformedURLException {
+    OkHttpClient client = SuccessFactorsHttpClientRegistry.getClient(new URL("https://localhost/odata/v2"),
+                                                                     300, 300, 300);
+    OkHttpClient otherHostClient = SuccessFactorsHttpClientRegistry.getClient(new URL("https://remotehost/odata/v2"),
+                                                                              300, 300, 300);
+    OkHttpClient otherTimeoutClient = SuccessFactorsHttpClientRegistry.getClient(new URL("https://localhost/odata/v2"),
+                                                                                 10, 10, 10);
+
+    Assert.assertNotSame(client, otherHostClient);
+    Assert.assertNotSame(client, otherTimeoutClient);
+    Assert.assertSame(client.connectionPool(), otherHostClient.connectionPool());
+    Assert.assertSame(client.connectionPool(), otherTimeoutClient.connectionPool());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SuccessFactorsRateLimiterTest {
+
+  @Test
+  public void testBudgetRebalancedToRunningSplits() throws Exception {
+    URL baseURL = new URL("https://rebalance.localhost/odata/v2");
+    SuccessFactorsRateLimiter.Lease first = SuccessFactorsRateLimiter.acquireLease(baseURL, 2.5, 1.5);
+    SuccessFactorsRateLimiter.Lease second = SuccessFactorsRateLimiter.acquireLease(baseURL, 2.5, 1.5);
+    SuccessFactorsRateLimiter limiter = SuccessFactorsRateLimiter.getLimiter(baseURL);
+    Assert.assertEquals(5.0, limiter.getRequestsPerSecond(), 0.001);
+    Assert.assertEquals(3, limiter.getMaxConcurrentRequests());
+    Assert.assertEquals(2, limiter.getLeaseConcurrentRequests());
+
+    // the budget of the finished split stays with the split still running
+    second.close();
+    Assert.assertEquals(5.0, limiter.getRequestsPerSecond(), 0.001);
+    Assert.assertEquals(3, limiter.getMaxConcurrentRequests());
+    Assert.assertEquals(3, limiter.getLeaseConcurrentRequests());
+
+    // a new split does not add to the budget released by the finished one
+    try (SuccessFactorsRateLimiter.Lease next = SuccessFactorsRateLimiter.acquireLease(baseURL, 2.5, 1.5)) {
+      Assert.assertEquals(5.0, limiter.getRequestsPerSecond(), 0.001);
+      Assert.assertEquals(3, limiter.getMaxConcurrentRequests());
+    }
+
+    // the next splits start over once no split is running anymore
+    first.close();
+    try (SuccessFactorsRateLimiter.Lease next = SuccessFactorsRateLimiter.acquireLease(baseURL, 1, 0.5)) {
+      Assert.assertEquals(1.0, limiter.getRequestsPerSecond(), 0.001);
+      Assert.assertEquals(1, limiter.getMaxConcurrentRequests());
+    }
+  }
+
+  @Test
+  public void testMoreLeasesThanConcurrentRequests() throws Exception {
+    URL baseURL = new URL("https://leases.localhost/odata/v2");
+    int budget = 2;
+    int leases = 5;
+    int requestsPerLease = 20;
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    AtomicInteger completed = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(leases * 2);
+    List<SuccessFactorsRateLimiter.Lease> activeLeases = new ArrayList<>();
+    try {
+      List<Future<?>> requests = new ArrayList<>();
+      for (int l = 0; l < leases; l++) {
+        SuccessFactorsRateLimiter.Lease lease = SuccessFactorsRateLimiter.acquireLease(baseURL, 0,
+                                                                                       (double) budget / leases);
+        activeLeases.add(lease);
+        // two threads per lease, so every lease competes for more slots than its share
+        for (int t = 0; t < 2; t++) {
+          requests.add(executor.submit(() -> {
+            for (int r = 0; r < requestsPerLease / 2; r++) {
+              try (SuccessFactorsRateLimiter.Permit permit = lease.acquire()) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                inFlight.decrementAndGet();
+              }
+              completed.incrementAndGet();
+            }
+            return null;
+          }));
+        }
+      }
+      for (Future<?> request : requests) {
+        request.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      activeLeases.forEach(SuccessFactorsRateLimiter.Lease::close);
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals("Every lease must make progress", leases * requestsPerLease, completed.get());
+    Assert.assertTrue("Requests in flight must stay within the budget", maxInFlight.get() <= budget);
+  }
+
+  @Test
+  public void testConcurrentRequestsLimited() throws Exception {
+    URL baseURL = new URL("https://concurrency.localhost/odata/v2");
+    try (SuccessFactorsRateLimiter.Lease lease = SuccessFactorsRateLimiter.acquireLease(baseURL, 0, 1)) {
+      SuccessFactorsRateLimiter.Permit permit = lease.acquire();
+
+      CountDownLatch acquired = new CountDownLatch(1);
+      Thread waiting = new Thread(() -> {
+        try (SuccessFactorsRateLimiter.Permit next = lease.acquire()) {
+          acquired.countDown();
+        } catch (Exception e) {
+          // the latch is never released
+        }
+      });
+      waiting.start();
+
+      Assert.assertFalse("Second request must wait for the slot", acquired.await(200, TimeUnit.MILLISECONDS));
+      permit.close();
+      // closing the permit twice must not free an extra slot
+      permit.close();
+      Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+      waiting.join();
+    }
+  }
+
+  @Test
+  public void testTryAcquireSharesSlotsWithAcquire() throws Exception {
+    URL baseURL = new URL("https://try.localhost/odata/v2");
+    try (SuccessFactorsRateLimiter.Lease lease = SuccessFactorsRateLimiter.acquireLease(baseURL, 0, 1)) {
+      SuccessFactorsRateLimiter.Permit permit = lease.acquire();
+      Assert.assertNull("No slot is left", lease.tryAcquire());
+
+      permit.close();
+      SuccessFactorsRateLimiter.Permit next = lease.tryAcquire();
+      Assert.assertNotNull(next);
+      Assert.assertNull("No slot is left", lease.tryAcquire());
+      next.close();
+    }
+  }
+
+  @Test
+  public void testRequestRateLimited() throws Exception {
+    URL baseURL = new URL("https://rate.localhost/odata/v2");
+    try (SuccessFactorsRateLimiter.Lease lease = SuccessFactorsRateLimiter.acquireLease(baseURL, 10, 0)) {
+      long startNanos = System.nanoTime();
+      for (int i = 0; i < 6; i++) {
+        lease.acquire().close();
+      }
+      // the first request is free, the next 5 ones are spaced by 100 ms
+      Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) >= 400);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.google.common.io.ByteStreams;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class SuccessFactorsResponseBufferTest {
+
+  @Test
+  public void testSmallBodyKeptOnHeap() throws Exception {
+    byte[] body = randomBytes(1000);
+    try (SuccessFactorsResponseBuffer buffer = SuccessFactorsResponseBuffer.readFully(new Buffer().write(body), 1024)) {
+      Assert.assertFalse(buffer.isSpilled());
+      Assert.assertEquals(body.length, buffer.size());
+      Assert.assertArrayEquals(body, ByteStreams.toByteArray(buffer.getInputStream()));
+    }
+  }
+
+  @Test
+  public void testLargeBodySpilledToMappedFile() throws Exception {
+    byte[] body = randomBytes(100_000);
+    Path spillFile;
+    try (SuccessFactorsResponseBuffer buffer = SuccessFactorsResponseBuffer.readFully(new Buffer().write(body), 1024)) {
+      Assert.assertTrue(buffer.isSpilled());
+      Assert.assertEquals(body.length, buffer.size());
+      spillFile = buffer.getSpillFile();
+      Assert.assertTrue(Files.exists(spillFile));
+      // every stream reads the body from its start
+      Assert.assertArrayEquals(body, ByteStreams.toByteArray(buffer.getInputStream()));
+      Assert.assertArrayEquals(body, ByteStreams.toByteArray(buffer.getInputStream()));
+    }
+    Assert.assertFalse(Files.exists(spillFile));
+  }
+
+  @Test
+  public void testLargeBatchPartSpilled() throws Exception {
+    byte[] page = randomBytes(50_000);
+    ByteArrayOutputStream multipart = new ByteArrayOutputStream();
+    multipart.write(("--b\r\nContent-Type: application/http\r\n\r\nHTTP/1.1 200 OK\r\n" +
+      "Content-Type: application/json\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+    multipart.write(page);
+    multipart.write("\r\n--b--\r\n".getBytes(StandardCharsets.UTF_8));
+    Response response = new Response.Builder()
+      .request(new Request.Builder().url("http://localhost/odata/v2/$batch").build())
+      .protocol(Protocol.HTTP_1_1)
+      .code(202)
+      .message("Accepted")
+      .body(ResponseBody.create(multipart.toByteArray(), MediaType.get("multipart/mixed; boundary=b")))
+      .build();
+
+    try (SuccessFactorsBatchResponse batchResponse = new SuccessFactorsBatchResponse(response, 1, null, 1024);
+         SuccessFactorsResponseContainer part = batchResponse.nextPart()) {
+      Assert.assertEquals(200, part.getHttpStatusCode());
+      Assert.assertArrayEquals(page, ByteStreams.toByteArray(part.getResponseStream()));
+    }
+  }
+
+  private static byte[] randomBytes(int size) {
+    byte[] bytes = new byte[size];
+    new Random(size).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.github.rholder.retry.RetryException;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+public class SuccessFactorsRetryPolicyTest {
+
+  @Test
+  public void testParseRetryAfter() {
+    long now = 1_600_000_000_000L;
+    Assert.assertEquals(120_000L, SuccessFactorsRetryPolicy.parseRetryAfterMillis(" 120 ", now));
+    // Sun, 13 Sep 2020 12:26:40 GMT is 1_600_000_000_000 ms since epoch
+    Assert.assertEquals(30_000L, SuccessFactorsRetryPolicy.parseRetryAfterMillis("Sun, 13 Sep 2020 12:27:10 GMT",
+                                                                                   now));
+    Assert.assertEquals(0L, SuccessFactorsRetryPolicy.parseRetryAfterMillis("Sun, 13 Sep 2020 12:00:00 GMT", now));
+    Assert.assertEquals(-1L, SuccessFactorsRetryPolicy.parseRetryAfterMillis(null, now));
+    Assert.assertEquals(-1L, SuccessFactorsRetryPolicy.parseRetryAfterMillis("-5", now));
+    Assert.assertEquals(-1L, SuccessFactorsRetryPolicy.parseRetryAfterMillis("soon", now));
+  }
+
+  @Test
+  public void testDecorrelatedJitter() {
+    SuccessFactorsRetryPolicy policy = SuccessFactorsRetryPolicy.builder()
+      .baseWaitMillis(100)
+      .maxWaitMillis(1000)
+      .build();
+    Random random = new Random(42);
+
+    long previousWait = 0;
+    for (int i = 0; i < 100; i++) {
+      long wait = policy.nextWaitMillis(previousWait, -1, random);
+      Assert.assertTrue(wait >= 100);
+      Assert.assertTrue(wait <= Math.min(1000, Math.max(100, previousWait) * 3));
+      previousWait = wait;
+    }
+
+    // same previous wait gives different waits, i.e. the callers do not retry in lockstep
+    long firstWait = policy.nextWaitMillis(500, -1, random);
+    boolean spread = false;
+    for (int i = 0; i < 10 && !spread; i++) {
+      spread = policy.nextWaitMillis(500, -1, random) != firstWait;
+    }
+    Assert.assertTrue(spread);
+  }
+
+  @Test
+  public void testRetryAfterHonoured() {
+    SuccessFactorsRetryPolicy policy = SuccessFactorsRetryPolicy.builder()
+      .baseWaitMillis(100)
+      .maxWaitMillis(1000)
+      .build();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 100; i++) {
+      long wait = policy.nextWaitMillis(0, 5000, random);
+      Assert.assertTrue(wait >= 5000 && wait <= 5100);
+    }
+  }
+
+  @Test
+  public void testRetryableResponses() throws Exception {
+    SuccessFactorsRetryPolicy policy = SuccessFactorsRetryPolicy.builder()
+      .baseWaitMillis(0)
+      .maxWaitMillis(0)
+      .build();
+    Deque<Response> responses = new ArrayDeque<>(Arrays.asList(buildResponse(429, "0"), buildResponse(503, null),
+                                                               buildResponse(504, null), buildResponse(200, null)));
+
+    Response response = policy.newRetryer().call(responses::remove);
+
+    Assert.assertEquals(200, response.code());
+    Assert.assertTrue(responses.isEmpty());
+    Assert.assertFalse(policy.isRetryable(buildResponse(500, null)));
+  }
+
+  @Test
+  public void testStopOnMaxAttempts() throws Exception {
+    SuccessFactorsRetryPolicy policy = SuccessFactorsRetryPolicy.builder()
+      .maxAttempts(3)
+      .baseWaitMillis(0)
+      .maxWaitMillis(0)
+      .build();
+
+    try {
+      policy.newRetryer().call(() -> buildResponse(502, null));
+      Assert.fail("Retries must stop after the max attempts");
+    } catch (RetryException re) {
+      Assert.assertEquals(3, re.getNumberOfFailedAttempts());
+    }
+  }
+
+  @Test
+  public void testStopOnTimeBudget() throws Exception {
+    SuccessFactorsRetryPolicy policy = SuccessFactorsRetryPolicy.builder()
+      .timeBudgetMillis(10_000)
+      .build();
+
+    try {
+      // waiting as long as asked would exceed the time budget, so there is no point in waiting at all
+      policy.newRetryer().call(() -> buildResponse(429, "60"));
+      Assert.fail("Retries must stop once the time budget is exhausted");
+    } catch (RetryException re) {
+      Assert.assertEquals(1, re.getNumberOfFailedAttempts());
+    }
+  }
+
+  private static Response buildResponse(int code, String retryAfter) {
+    Response.Builder builder = new Response.Builder()
+      .request(new Request.Builder().url("https://localhost/odata/v2/Entity").build())
+      .protocol(Protocol.HTTP_1_1)
+      .code(code)
+      .message("HTTP " + code);
+    if (retryAfter != null) {
+      builder.header(SuccessFactorsRetryPolicy.RETRY_AFTER, retryAfter);
+    }
+    return builder.build();
+  }
+}
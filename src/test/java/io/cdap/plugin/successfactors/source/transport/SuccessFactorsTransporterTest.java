@@ -0,0 +1,397 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.ConnectionPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class SuccessFactorsTransporterTest {
+
+  private static final String BATCH_BOUNDARY = "batch_response";
+
+  private HttpServer server;
+  private String baseURL;
+  private byte[] payload;
+  private volatile String batchRequest;
+  private final AtomicInteger throttledAttempts = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final CountDownLatch slowResponses = new CountDownLatch(1);
+
+  @Before
+  public void setUp() throws IOException {
+    StringBuilder json = new StringBuilder("{\"d\":{\"results\":[");
+    for (int i = 0; i < 200; i++) {
+      json.append(i == 0 ? "" : ",")
+        .append("{\"__metadata\":{\"uri\":\"https://localhost/odata/v2/Entity(").append(i)
+        .append(")\",\"type\":\"SFOData.Entity\"},\"id\":").append(i).append('}');
+    }
+    payload = json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/gzip", exchange -> respond(exchange, "gzip"));
+    server.createContext("/deflate", exchange -> respond(exchange, "deflate"));
+    server.createContext("/identity", exchange -> respond(exchange, null));
+    server.createContext("/odata/v2/$batch", exchange -> respondBatch(exchange, "404 Not Found"));
+    server.createContext("/throttled/$batch", exchange -> respondBatch(exchange, "429 Too Many Requests"));
+    server.createContext("/throttled", this::respondThrottled);
+    server.createContext("/slow", this::respondSlow);
+    server.createContext("/echo", this::respondEcho);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    baseURL = "http://localhost:" + server.getAddress().getPort();
+  }
+
+  @After
+  public void tearDown() {
+    slowResponses.countDown();
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  @Test
+  public void testGzipResponseDecompressedAsStream() throws Exception {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password");
+    try (SuccessFactorsResponseContainer container = transporter
+      .callSuccessFactorsWithRetry(new URL(baseURL + "/gzip/Entity"))) {
+      Assert.assertArrayEquals(payload, ByteStreams.toByteArray(container.getResponseStream()));
+    }
+
+    SuccessFactorsTransferMetrics metrics = transporter.getTransferMetrics();
+    Assert.assertEquals(payload.length, metrics.getDecodedBytes());
+    Assert.assertTrue("Repetitive JSON must compress well", metrics.getWireBytes() * 5 < metrics.getDecodedBytes());
+  }
+
+  @Test
+  public void testDeflateMetadataResponse() throws Exception {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password");
+    SuccessFactorsResponseContainer container = transporter
+      .callSuccessFactorsMetadata(new URL(baseURL + "/deflate/$metadata"), null);
+
+    Assert.assertArrayEquals(payload, ByteStreams.toByteArray(container.getResponseStream()));
+    Assert.assertTrue(transporter.getTransferMetrics().getWireBytes() < payload.length);
+  }
+
+  @Test
+  public void testUncompressedResponse() throws Exception {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password");
+    try (SuccessFactorsResponseContainer container = transporter
+      .callSuccessFactorsWithRetry(new URL(baseURL + "/identity/Entity"))) {
+      Assert.assertArrayEquals(payload, ByteStreams.toByteArray(container.getResponseStream()));
+    }
+
+    SuccessFactorsTransferMetrics metrics = transporter.getTransferMetrics();
+    Assert.assertEquals(payload.length, metrics.getWireBytes());
+    Assert.assertEquals(payload.length, metrics.getDecodedBytes());
+  }
+
+  @Test
+  public void testBatchResponseReadPartByPart() throws Exception {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password");
+    List<String> requestURIs = Arrays.asList("Entity?$skip=0&$top=200", "Entity?$skip=200&$top=200");
+    try (SuccessFactorsBatchResponse batchResponse = transporter
+      .callSuccessFactorsBatch(new URL(baseURL + "/odata/v2/$batch"), requestURIs)) {
+
+      Assert.assertEquals(2, batchResponse.getPartCount());
+      SuccessFactorsResponseContainer page = batchResponse.nextPart();
+      Assert.assertEquals(200, page.getHttpStatusCode());
+      Assert.assertEquals("2.0", page.getDataServiceVersion());
+      Assert.assertArrayEquals(payload, ByteStreams.toByteArray(page.getResponseStream()));
+
+      SuccessFactorsResponseContainer error = batchResponse.nextPart();
+      Assert.assertEquals(404, error.getHttpStatusCode());
+      Assert.assertEquals("Not Found", error.getHttpStatusMsg());
+      Assert.assertEquals("{\"error\":{\"code\":\"NOT_FOUND\"}}",
+                          new String(ByteStreams.toByteArray(error.getResponseStream()), StandardCharsets.UTF_8));
+
+      try {
+        batchResponse.nextPart();
+        Assert.fail("All the parts are read");
+      } catch (IOException expected) {
+        // expected
+      }
+    }
+
+    Assert.assertTrue(batchRequest.contains("GET Entity?$skip=0&$top=200 HTTP/1.1"));
+    Assert.assertTrue(batchRequest.contains("GET Entity?$skip=200&$top=200 HTTP/1.1"));
+  }
+
+  @Test
+  public void testThrottledBatchPartRetriedOnItsOwn() throws Exception {
+    SuccessFactorsRetryPolicy retryPolicy = SuccessFactorsRetryPolicy.builder()
+      .baseWaitMillis(10)
+      .maxWaitMillis(20)
+      .build();
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password", retryPolicy, null, 2);
+    List<String> requestURIs = Arrays.asList("Entity?$skip=0&$top=200", "Entity?$skip=200&$top=200");
+    try (SuccessFactorsBatchResponse batchResponse = transporter
+      .callSuccessFactorsBatch(new URL(baseURL + "/throttled/$batch"), requestURIs)) {
+
+      try (SuccessFactorsResponseContainer page = transporter
+        .retryBatchPart(new URL(baseURL + "/throttled/Entity?$skip=0&$top=200"), batchResponse.nextPart())) {
+        Assert.assertEquals(200, page.getHttpStatusCode());
+        Assert.assertArrayEquals(payload, ByteStreams.toByteArray(page.getResponseStream()));
+      }
+      Assert.assertEquals("Successful part must not be fetched again", 0, throttledAttempts.get());
+
+      SuccessFactorsResponseContainer throttled = batchResponse.nextPart();
+      Assert.assertEquals(429, throttled.getHttpStatusCode());
+      try (SuccessFactorsResponseContainer retried = transporter
+        .retryBatchPart(new URL(baseURL + "/identity/Entity?$skip=200&$top=200"), throttled)) {
+        Assert.assertEquals(200, retried.getHttpStatusCode());
+        Assert.assertArrayEquals(payload, ByteStreams.toByteArray(retried.getResponseStream()));
+      }
+    }
+  }
+
+  @Test
+  public void testBatchPartNotRetryable() throws Exception {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password");
+    List<String> requestURIs = Arrays.asList("Entity?$skip=0&$top=200", "Entity?$skip=200&$top=200");
+    try (SuccessFactorsBatchResponse batchResponse = transporter
+      .callSuccessFactorsBatch(new URL(baseURL + "/odata/v2/$batch"), requestURIs)) {
+      batchResponse.nextPart().close();
+
+      SuccessFactorsResponseContainer error = batchResponse.nextPart();
+      Assert.assertSame(error, transporter.retryBatchPart(new URL(baseURL + "/throttled/Entity"), error));
+      Assert.assertEquals(0, throttledAttempts.get());
+    }
+  }
+
+  @Test
+  public void testAsyncCallRetriesThrottledResponses() throws Exception {
+    SuccessFactorsRetryPolicy retryPolicy = SuccessFactorsRetryPolicy.builder()
+      .baseWaitMillis(10)
+      .maxWaitMillis(20)
+      .build();
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password", retryPolicy, null, 2);
+    try (SuccessFactorsResponseContainer container = transporter
+      .callSuccessFactorsAsync(new URL(baseURL + "/throttled/Entity")).get(10, TimeUnit.SECONDS)) {
+      Assert.assertEquals(200, container.getHttpStatusCode());
+      Assert.assertArrayEquals(payload, ByteStreams.toByteArray(container.getResponseStream()));
+    }
+    Assert.assertEquals(3, throttledAttempts.get());
+  }
+
+  @Test
+  public void testAsyncCallsBoundedInFlight() throws Exception {
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password",
+                                                                          SuccessFactorsRetryPolicy.getDefault(),
+                                                                          null, 2);
+    List<CompletableFuture<SuccessFactorsResponseContainer>> calls = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      calls.add(transporter.callSuccessFactorsAsync(new URL(baseURL + "/slow/Entity?page=" + i)));
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (inFlight.get() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    // give the queued calls a chance to exceed the limit
+    Thread.sleep(200);
+    Assert.assertEquals(2, inFlight.get());
+
+    // a queued call is cancelled before being sent
+    CompletableFuture<SuccessFactorsResponseContainer> cancelled = calls.remove(calls.size() - 1);
+    Assert.assertTrue(cancelled.cancel(true));
+    slowResponses.countDown();
+
+    for (CompletableFuture<SuccessFactorsResponseContainer> call : calls) {
+      try (SuccessFactorsResponseContainer container = call.get(10, TimeUnit.SECONDS)) {
+        Assert.assertArrayEquals(payload, ByteStreams.toByteArray(container.getResponseStream()));
+      }
+    }
+    Assert.assertEquals(2, maxInFlight.get());
+    Assert.assertTrue(cancelled.isCancelled());
+  }
+
+  @Test
+  public void testAsyncCallsRateLimitedWithoutBlocking() throws Exception {
+    URL endpoint = new URL(baseURL + "/gzip/Entity");
+    try (SuccessFactorsRateLimiter.Lease lease = SuccessFactorsRateLimiter.acquireLease(endpoint, 10, 1)) {
+      SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password",
+                                                                            SuccessFactorsRetryPolicy.getDefault(),
+                                                                            lease);
+      long startNanos = System.nanoTime();
+      List<CompletableFuture<SuccessFactorsResponseContainer>> calls = new ArrayList<>();
+      // the sync call holds the only concurrent request slot, the async calls wait for it without blocking the caller
+      try (SuccessFactorsResponseContainer held = transporter.callSuccessFactorsWithRetry(endpoint)) {
+        for (int i = 0; i < 4; i++) {
+          calls.add(transporter.callSuccessFactorsAsync(endpoint));
+        }
+        Assert.assertTrue("The caller must not wait for the request budget",
+                          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 200);
+        Thread.sleep(300);
+        Assert.assertTrue("Async calls must wait for the slot", calls.stream().noneMatch(CompletableFuture::isDone));
+        Assert.assertArrayEquals(payload, ByteStreams.toByteArray(held.getResponseStream()));
+      }
+
+      // one call at a time holds the slot, the next one only responds once the previous response is closed
+      List<CompletableFuture<SuccessFactorsResponseContainer>> pending = new ArrayList<>(calls);
+      while (!pending.isEmpty()) {
+        CompletableFuture.anyOf(pending.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        List<CompletableFuture<SuccessFactorsResponseContainer>> done = pending.stream()
+          .filter(CompletableFuture::isDone)
+          .collect(Collectors.toList());
+        Assert.assertEquals("Requests in flight must stay within the budget", 1, done.size());
+        try (SuccessFactorsResponseContainer container = done.get(0).get()) {
+          Assert.assertArrayEquals(payload, ByteStreams.toByteArray(container.getResponseStream()));
+        }
+        pending.removeAll(done);
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentCallersGetTheirOwnResponses() throws Exception {
+    int callers = 64;
+    int callsPerCaller = 20;
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter("user", "password");
+    CyclicBarrier start = new CyclicBarrier(callers);
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int caller = 0; caller < callers; caller++) {
+        int callerId = caller;
+        results.add(executor.submit(() -> {
+          start.await();
+          int mismatches = 0;
+          for (int call = 0; call < callsPerCaller; call++) {
+            String id = callerId + "-" + call;
+            try (SuccessFactorsResponseContainer container = transporter
+              .callSuccessFactorsWithRetry(new URL(baseURL + "/echo/Entity?id=" + id))) {
+              String body = new String(ByteStreams.toByteArray(container.getResponseStream()), StandardCharsets.UTF_8);
+              if (!body.equals("{\"id\":\"" + id + "\"}") || !id.equals(container.getDataServiceVersion())) {
+                mismatches++;
+              }
+            }
+          }
+          return mismatches;
+        }));
+      }
+      for (Future<Integer> result : results) {
+        Assert.assertEquals(0, result.get(60, TimeUnit.SECONDS).intValue());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    SuccessFactorsTransferMetrics metrics = transporter.getTransferMetrics();
+    Assert.assertEquals(metrics.getWireBytes(), metrics.getDecodedBytes());
+    // every response was closed, so no connection is still held by a call
+    ConnectionPool connectionPool = SuccessFactorsHttpClientRegistry.getClient(new URL(baseURL), 300, 300, 300)
+      .connectionPool();
+    Assert.assertEquals(connectionPool.connectionCount(), connectionPool.idleConnectionCount());
+  }
+
+  private void respondEcho(HttpExchange exchange) throws IOException {
+    String id = exchange.getRequestURI().getQuery().substring("id=".length());
+    byte[] body = ("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    // echoed in a header too, so crossed headers and bodies are both caught
+    exchange.getResponseHeaders().add("DataServiceVersion", id);
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private void respondThrottled(HttpExchange exchange) throws IOException {
+    if (throttledAttempts.incrementAndGet() < 3) {
+      exchange.getResponseHeaders().add("Retry-After", "0");
+      exchange.sendResponseHeaders(429, -1);
+      exchange.close();
+      return;
+    }
+    respond(exchange, null);
+  }
+
+  private void respondSlow(HttpExchange exchange) throws IOException {
+    int current = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(current, Math::max);
+    try {
+      slowResponses.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    inFlight.decrementAndGet();
+    respond(exchange, null);
+  }
+
+  private void respondBatch(HttpExchange exchange, String secondPartStatus) throws IOException {
+    batchRequest = new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    String partHeaders = "--" + BATCH_BOUNDARY + "\r\nContent-Type: application/http\r\n" +
+      "Content-Transfer-Encoding: binary\r\n\r\n";
+    body.write((partHeaders + "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nDataServiceVersion: 2.0\r\n\r\n")
+                 .getBytes(StandardCharsets.UTF_8));
+    body.write(payload);
+    body.write(("\r\n" + partHeaders + "HTTP/1.1 " + secondPartStatus + "\r\nContent-Type: application/json\r\n\r\n" +
+      "{\"error\":{\"code\":\"NOT_FOUND\"}}\r\n--" + BATCH_BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+    exchange.getResponseHeaders().add("Content-Type", "multipart/mixed; boundary=" + BATCH_BOUNDARY);
+    exchange.sendResponseHeaders(202, body.size());
+    try (OutputStream out = exchange.getResponseBody()) {
+      body.writeTo(out);
+    }
+  }
+
+  private void respond(HttpExchange exchange, String encoding) throws IOException {
+    String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    byte[] body = payload;
+    if (encoding != null && acceptEncoding != null && acceptEncoding.contains(encoding)) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(compressed) :
+        new DeflaterOutputStream(compressed)) {
+        out.write(payload);
+      }
+      body = compressed.toByteArray();
+      exchange.getResponseHeaders().add("Content-Encoding", encoding);
+    }
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
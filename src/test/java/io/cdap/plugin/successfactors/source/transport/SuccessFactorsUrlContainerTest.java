@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SuccessFactorsUrlContainerTest {
+
+  private static final SuccessFactorsUrlContainer URL_CONTAINER = new SuccessFactorsUrlContainer(
+    SuccessFactorsPluginConfig.builder()
+      .referenceName("unit-test")
+      .baseURL("https://localhost:8443/odata/v2")
+      .entityName("User")
+      .build());
+
+  @Test
+  public void testNextLinkOfBaseURLIsFollowed() {
+    Assert.assertEquals("https://localhost:8443/odata/v2/User?$skiptoken=10",
+                        URL_CONTAINER.getNextLinkURL("https://localhost:8443/odata/v2/User?$skiptoken=10")
+                          .toString());
+    Assert.assertNull(URL_CONTAINER.getNextLinkURL(null));
+  }
+
+  @Test
+  public void testNextLinkOfOtherHostIsRejected() {
+    assertRejected("https://example.com:8443/odata/v2/User?$skiptoken=10");
+    assertRejected("https://localhost:9443/odata/v2/User?$skiptoken=10");
+  }
+
+  @Test
+  public void testNextLinkWithSchemeDowngradeIsRejected() {
+    assertRejected("http://localhost:8443/odata/v2/User?$skiptoken=10");
+  }
+
+  private static void assertRejected(String nextLink) {
+    try {
+      URL_CONTAINER.getNextLinkURL(nextLink);
+      Assert.fail("Expected IllegalArgumentException for " + nextLink);
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}